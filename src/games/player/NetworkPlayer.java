@@ -11,7 +11,7 @@ import java.util.function.Consumer;
  * ICS4U RST
  */
 public abstract class NetworkPlayer {
-    protected Consumer<String> gameDataListener;
+    protected Consumer<NetworkMessage> gameDataListener;
 
     /**
      * Should be called when a client sends this client data over the multiplayer network.
@@ -30,7 +30,7 @@ public abstract class NetworkPlayer {
      *
      * @param listener The listener to accept the game data to be sent.
      */
-    public void setOnGameDataSend(Consumer<String> listener) {
+    public void setOnGameDataSend(Consumer<NetworkMessage> listener) {
         this.gameDataListener = listener;
     }
 }
@@ -7,5 +7,5 @@ package games.pong;
  * ICS4U RST
  */
 public enum EndReason {
-    PLAYER_DISCONNECT, PLAYER_END, SCORE_LIMIT_REACHED
+    PLAYER_DISCONNECT, PLAYER_END, SCORE_LIMIT_REACHED, TICK_LIMIT_REACHED
 }
@@ -1,14 +1,20 @@
 package games.pong;
 
 import com.sun.istack.internal.NotNull;
+import games.pong.clock.GameClock;
+import games.pong.clock.SystemClock;
 import games.pong.pieces.Paddle;
 import games.pong.pieces.PongBall;
 import games.pong.pieces.PongPiece;
 import games.pong.pieces.Side;
+import games.pong.players.Action;
 import games.pong.players.PongKeyboardPlayer;
 import games.pong.players.PongPlayer;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Consumer;
 
 /**
@@ -22,16 +28,24 @@ public class Pong {
     // Default width and height for the pong game.
     private static final int WIDTH = 512, HEIGHT = 256;
     // How far the paddles are from the side.
-    private static final int PADDLE_DISTANCE = 5, PADDLE_WIDTH = 3, PADDLE_HEIGHT = 40;
+    private static final int PADDLE_DISTANCE = 5;
+    /**
+     * Size of the paddles, in units.
+     */
+    public static final int PADDLE_WIDTH = 3, PADDLE_HEIGHT = 40;
 
     /**
      * Maximum ball rebound angle, in degrees.
      */
     private static final double MAX_REBOUND_ANGLE = 75;
-    // Ratios for distances and speeds.
-    private static final double BALL_RADIUS = 4;
-    // How many units per second the paddle moves while the button is being held down.
-    private static final double PADDLE_MOVEMENT_RATE = 200;
+    /**
+     * Radius of the ball, in units.
+     */
+    public static final double BALL_RADIUS = 4;
+    /**
+     * How many units per second the paddle moves while the button is being held down.
+     */
+    public static final double PADDLE_MOVEMENT_RATE = 200;
     // Velocity of the pong ball in units per second.
     public static final double PONG_BALL_VELOCITY = 325;
     // How many milliseconds to pause after a player scores.
@@ -40,6 +54,29 @@ public class Pong {
      * Number of points needed to win.
      */
     private static final int WINNING_POINTS = 11;
+    /**
+     * Number of fixed simulation steps calculated per second.
+     */
+    public static final int TICK_RATE = 240;
+    /**
+     * Length of a single fixed simulation step, in nanoseconds.
+     */
+    public static final long TICK_NANOS = 1_000_000_000L / TICK_RATE;
+    /**
+     * Maximum number of fixed steps that may be simulated for a single rendered frame. Any time beyond this is
+     * dropped so that a long frame hitch slows the game down instead of making it catch up all at once.
+     */
+    private static final int MAX_TICKS_PER_FRAME = TICK_RATE / 10;
+    /**
+     * Size (in bytes) of a snapshot of the game's state, as written by {@link #writeSnapshot(ByteBuffer)}.
+     * Made up of the ball and both paddles (four doubles each), both scores, the pause deadline, tick count and
+     * unsimulated time, then one byte each for the last hit paddle, the flags and the end reason.
+     */
+    public static final int SNAPSHOT_SIZE = 3 * 4 * Double.BYTES + 2 * Integer.BYTES + 3 * Long.BYTES + 3;
+    // Bits of the flags byte in a snapshot.
+    private static final byte FLAG_BEGUN = 1, FLAG_READY_NOTIFIED = 1 << 1, FLAG_ENDED = 1 << 2;
+    // Kept so that reading a snapshot doesn't copy the array of reasons each time.
+    private static final EndReason[] END_REASONS = EndReason.values();
 
     private final PongBall ball;
 
@@ -51,13 +88,31 @@ public class Pong {
 
     private final double width, height;
 
-    // Listener for when the ball collides.
-    private final ArrayList<Consumer<PongEvent>> pongEventListeners = new ArrayList<>();
+    /**
+     * Listeners for each type of event, indexed by the type's ordinal.
+     */
+    private final Consumer<PongEvent>[][] pongEventListeners;
+    /**
+     * A single event for each type of event, reused every time that type of event is called.
+     */
+    private final PongEvent[] pongEvents;
 
     /**
      * The last tick time in nanoseconds.
      */
     private long lastTickTime = 0;
+    /**
+     * Time (in nanoseconds) that has passed in frames but has not yet been simulated by a fixed step.
+     */
+    private long unsimulatedNanos = 0;
+    /**
+     * Number of ticks that have actually been simulated (not skipped due to pauses) since the game began.
+     */
+    private long tickCount = 0;
+    /**
+     * The source of time for frames and pauses.
+     */
+    private GameClock clock = new SystemClock();
 
     private Paddle lastHitPaddle;
 
@@ -84,6 +139,20 @@ public class Pong {
      * An action to be run after each tick.
      */
     private final ArrayList<Runnable> tickActions = new ArrayList<>();
+    /**
+     * Actions posted from other threads, waiting to be run on the thread that runs the game.
+     */
+    private final ConcurrentLinkedQueue<Runnable> postedActions = new ConcurrentLinkedQueue<>();
+    /**
+     * The thread that runs the game's frames, or null if no frame has been run yet.
+     */
+    private volatile Thread gameThread;
+    /**
+     * True while listeners should not be told about events, such as when going back over ticks that were already shown.
+     */
+    private boolean eventsSuppressed;
+    // False when another machine decides when players score.
+    private boolean localScoring = true;
 
     /**
      * Constructs a new pong game with the given players.
@@ -122,10 +191,19 @@ public class Pong {
      * @param width  The width of the board.
      * @param height The height of the board.
      */
+    @SuppressWarnings({"unchecked", "rawtypes"})
     public Pong(final int width, final int height) {
         this.width = width;
         this.height = height;
 
+        // Set up an empty listener list and a reusable event for each type of event.
+        final PongEvent.EventType[] types = PongEvent.EventType.values();
+        pongEventListeners = new Consumer[types.length][0];
+        pongEvents = new PongEvent[types.length];
+        for (PongEvent.EventType type : types) {
+            pongEvents[type.ordinal()] = new PongEvent(type);
+        }
+
         // The ball should be a certain ration to the size of the board's diagonal dimension.
         ball = new PongBall((int) Math.floor(BALL_RADIUS));
 
@@ -167,7 +245,7 @@ public class Pong {
     public void begin() {
         hasBegun = true;
         setPauseDuration(SCORE_PAUSE);
-        callEvent(new PongEvent(PongEvent.EventType.GAME_BEGUN));
+        callEvent(PongEvent.EventType.GAME_BEGUN);
     }
 
     /**
@@ -279,7 +357,7 @@ public class Pong {
      * @param timeSinceLastTick The time since the last tick, in nanoseconds.
      */
     public void renderTick(final long timeSinceLastTick) {
-        if (hasBegun && !checkPause() && !ended) {
+        if (hasBegun && !isPaused() && !ended) {
             ball.renderTick(timeSinceLastTick); // Render a tick for the ball.
 
             getRightPaddle().renderTick(timeSinceLastTick);
@@ -291,24 +369,60 @@ public class Pong {
             checkBallBounds();
             // Make sure the paddle is in bounds as well.
             checkPaddleBounds();
+            tickCount++;
 
             if (tickActions.size() > 0) {
                 tickActions.forEach(Runnable::run);
             }
         } else if (!hasBegun && !readyNotified) {
-            callEvent(new PongEvent(PongEvent.EventType.GAME_READY));
+            callEvent(PongEvent.EventType.GAME_READY);
             readyNotified = true;
         }
     }
 
     /**
-     * Completes a tick of the game.
+     * Completes a frame of the game, simulating as many fixed steps of {@link #TICK_NANOS} as have passed since the
+     * last frame. Whatever time is left over is carried on to the next frame so that the game always moves in
+     * constant increments, no matter how often this is called.
      */
     public void renderTick() {
+        runPosted();
         long tempLastTick = lastTickTime;
-        lastTickTime = System.nanoTime(); // Set last tick time to now.
+        lastTickTime = clock.nanoTime(); // Set last tick time to now.
         final long timeSinceLastTick = (tempLastTick > 0) ? lastTickTime - tempLastTick : 0;
-        renderTick(timeSinceLastTick);
+
+        // Never try to catch up more than the maximum number of steps in one frame.
+        unsimulatedNanos = Math.min(unsimulatedNanos + timeSinceLastTick, MAX_TICKS_PER_FRAME * TICK_NANOS);
+        while (unsimulatedNanos >= TICK_NANOS) {
+            unsimulatedNanos -= TICK_NANOS;
+            renderTick(TICK_NANOS);
+        }
+    }
+
+    /**
+     * Runs the given action on the thread that runs the game, which is the only thread that may change the game.
+     * If called from that thread the action is run right away, otherwise it is run at the start of the next frame.
+     *
+     * @param action The action to be run.
+     */
+    public void post(Runnable action) {
+        if (Thread.currentThread() == gameThread) {
+            action.run();
+        } else {
+            postedActions.add(action);
+        }
+    }
+
+    /**
+     * Runs every action posted from other threads since the last frame. Called at the start of each frame, which
+     * also marks the calling thread as the one running the game.
+     */
+    public void runPosted() {
+        gameThread = Thread.currentThread();
+        Runnable action;
+        while ((action = postedActions.poll()) != null) {
+            action.run();
+        }
     }
 
     /**
@@ -320,6 +434,39 @@ public class Pong {
         tickActions.add(action);
     }
 
+    /**
+     * Gets the clock that the game uses for timing frames and pauses.
+     *
+     * @return The game's clock.
+     */
+    public GameClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Sets the clock that the game uses for timing frames and pauses. Any pause in progress keeps the time it has
+     * left on the new clock.
+     *
+     * @param clock The new clock.
+     */
+    public void setClock(GameClock clock) {
+        if (unpauseTime > 0) {
+            unpauseTime = clock.currentTimeMillis() + Math.max(unpauseTime - this.clock.currentTimeMillis(), 0);
+        }
+        this.clock = clock;
+        // The old tick time means nothing on the new clock.
+        lastTickTime = 0;
+    }
+
+    /**
+     * Gets the number of ticks that have been simulated in this game. Ticks where the game was paused are not counted.
+     *
+     * @return The number of simulated ticks.
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
     /**
      * Gets the last time at which a tick was calculated.
      *
@@ -344,12 +491,28 @@ public class Pong {
     }
 
     /**
-     * Sets a consumer to be invoked when the ball enters a collision with a paddle.
+     * Sets a consumer to be invoked whenever any type of event happens in the game.
      *
      * @param listener The listener for the action. Accepts a parameter containing the PongEvent data.
      */
     public void addEventListener(Consumer<PongEvent> listener) {
-        pongEventListeners.add(listener);
+        addEventListener(listener, PongEvent.EventType.values());
+    }
+
+    /**
+     * Sets a consumer to be invoked only when the given types of events happen in the game.
+     * The event passed to the listener is reused for the next event of the same type, so it should not be kept.
+     *
+     * @param listener The listener for the events. Accepts a parameter containing the PongEvent data.
+     * @param types    The types of events that the listener should be called for.
+     */
+    public void addEventListener(Consumer<PongEvent> listener, PongEvent.EventType... types) {
+        for (PongEvent.EventType type : types) {
+            final Consumer<PongEvent>[] listeners = pongEventListeners[type.ordinal()];
+            final Consumer<PongEvent>[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+            newListeners[listeners.length] = listener;
+            pongEventListeners[type.ordinal()] = newListeners;
+        }
     }
 
     /**
@@ -359,9 +522,9 @@ public class Pong {
      */
     public void callBallCollided(Paddle touchedPaddle) {
         // Don't call the event twice for the same paddle.
-        if (pongEventListeners.size() > 0 && touchedPaddle != lastHitPaddle) {
+        if (touchedPaddle != lastHitPaddle) {
             lastHitPaddle = touchedPaddle;
-            PongEvent event = new PongEvent(PongEvent.EventType.BALL_HIT_PADDLE);
+            PongEvent event = prepareEvent(PongEvent.EventType.BALL_HIT_PADDLE);
             event.setBall(getBall());
             event.setPaddle(touchedPaddle);
             callEvent(event);
@@ -374,11 +537,9 @@ public class Pong {
      * @param player The player that scored.
      */
     private void callPlayerScored(PongPlayer player) {
-        if (pongEventListeners.size() > 0) {
-            PongEvent event = new PongEvent(PongEvent.EventType.PLAYER_SCORED);
-            event.setPlayer(player);
-            callEvent(event);
-        }
+        PongEvent event = prepareEvent(PongEvent.EventType.PLAYER_SCORED);
+        event.setPlayer(player);
+        callEvent(event);
     }
 
 
@@ -389,92 +550,169 @@ public class Pong {
      * @param direction The direction of the paddle's movement. Positive for up, negative for down, 0 for stopped.
      */
     private void callPaddleMoved(Paddle paddle, final int direction) {
-        if (pongEventListeners.size() > 0) {
-            PongEvent.EventType eventType;
-            if (direction > 0) {
-                eventType = PongEvent.EventType.PADDLE_MOVED_UP;
-            } else if (direction < 0) {
-                eventType = PongEvent.EventType.PADDLE_MOVED_DOWN;
-            } else {
-                eventType = PongEvent.EventType.PADDLE_STOPPED;
-            }
-            PongEvent event = new PongEvent(eventType);
-            event.setPaddle(paddle);
-            callEvent(event);
+        PongEvent.EventType eventType;
+        if (direction > 0) {
+            eventType = PongEvent.EventType.PADDLE_MOVED_UP;
+        } else if (direction < 0) {
+            eventType = PongEvent.EventType.PADDLE_MOVED_DOWN;
+        } else {
+            eventType = PongEvent.EventType.PADDLE_STOPPED;
         }
+        PongEvent event = prepareEvent(eventType);
+        event.setPaddle(paddle);
+        callEvent(event);
+    }
+
+    /**
+     * Gets the reusable event for the given type, cleared of anything set on it the last time it was called.
+     *
+     * @param type The type of event.
+     * @return The event, ready to be filled in and called.
+     */
+    private PongEvent prepareEvent(PongEvent.EventType type) {
+        final PongEvent event = pongEvents[type.ordinal()];
+        event.setBall(null);
+        event.setPaddle(null);
+        event.setPlayer(null);
+        return event;
+    }
+
+    /**
+     * Notifies listeners that an event with no other data has occurred.
+     *
+     * @param type The type of event.
+     */
+    private void callEvent(PongEvent.EventType type) {
+        callEvent(prepareEvent(type));
     }
 
     /**
-     * Notifies listeners that a pong event has occurred.
+     * Notifies the listeners of the event's type that a pong event has occurred.
      *
      * @param event The PongEvent.
      */
     private void callEvent(PongEvent event) {
-        if (pongEventListeners.size() > 0) {
-            pongEventListeners.forEach(pongEventConsumer -> pongEventConsumer.accept(event));
+        if (!eventsSuppressed) {
+            for (Consumer<PongEvent> listener : pongEventListeners[event.getType().ordinal()]) {
+                listener.accept(event);
+            }
         }
     }
 
     /**
-     * Does retracing of the paddle's and the ball's positions in order to determine if the ball and the paddle
-     * are currently colliding or did previously collide.
-     * Once this has been determined, the appropriate velocity is applied to the ball and it is reflected back
-     * to where it would have reflected.
+     * Sets whether or not event listeners should be notified of events. The game plays on exactly the same either way,
+     * this is just for when the same ticks are simulated more than once and listeners have already heard about them.
+     *
+     * @param eventsSuppressed True to stop notifying listeners, false to notify them again.
+     */
+    public void setEventsSuppressed(boolean eventsSuppressed) {
+        this.eventsSuppressed = eventsSuppressed;
+    }
+
+    /**
+     * Sweeps the ball and the paddle back through the time passed since the last tick in order to determine if the
+     * ball ran into the paddle at any point during that time. Both pieces are treated as moving boxes, so the test
+     * holds no matter how long the tick is, and hits on the paddle's corners are caught as well as hits on its face.
+     * Once the moment of impact has been found, the appropriate velocity is applied to the ball and it is moved on
+     * from the point of impact for the rest of the tick.
      *
      * @param testingPaddle      The paddle to test against.
-     * @param nanosSinceLastTick The time passed (in milliseconds) since the last tick.
+     * @param nanosSinceLastTick The time passed (in nanoseconds) since the last tick.
      * @return True if the ball had entered a collision, false otherwise.
      */
     private boolean testBallCollision(Paddle testingPaddle, final long nanosSinceLastTick) {
-        boolean didIntersect;
-
-        // Determine the old x position of the ball.
-        final double oldBallX = ball.getX() - ball.getRunPerNanoSecond() * nanosSinceLastTick;
+        // The ball can only be hit back by a paddle when it is heading towards the goal behind that paddle.
+        final boolean headingToPaddle = (testingPaddle.getSide() == Side.LEFT) ?
+                ball.getRunPerSecond() < 0 : ball.getRunPerSecond() > 0;
+        final double impactTime = (headingToPaddle && nanosSinceLastTick > 0) ?
+                sweepBallCollision(testingPaddle, nanosSinceLastTick) : -1;
+        final boolean didIntersect = impactTime >= 0;
 
-        // Some points we need to keep track of.
-        final double paddlePoint, ballPoint;
-        if (testingPaddle.getSide() == Side.RIGHT) {
-            paddlePoint = testingPaddle.getX(Side.LEFT);
-            ballPoint = PongBall.getX(ball.getRadius(), oldBallX, Side.RIGHT);
-        } else {
-            paddlePoint = testingPaddle.getX(Side.RIGHT);
-            ballPoint = PongBall.getX(ball.getRadius(), oldBallX, Side.LEFT);
+        if (didIntersect) {
+            final double timeSinceImpact = nanosSinceLastTick - impactTime;
+            // Put both pieces back where they were when they touched.
+            final double paddleX = testingPaddle.getX(), paddleY = testingPaddle.getY();
+            testingPaddle.setX(paddleX - testingPaddle.getVelXNanos() * timeSinceImpact);
+            testingPaddle.setY(paddleY - testingPaddle.getVelYNanos() * timeSinceImpact);
+            ball.setX(ball.getX() - ball.getRunPerNanoSecond() * timeSinceImpact);
+            ball.setY(ball.getY() - ball.getRisePerNanoSecond() * timeSinceImpact);
+
+            applyNewBallVelocity(testingPaddle);
+
+            // Then let the ball travel the rest of the tick rebounded.
+            testingPaddle.setX(paddleX);
+            testingPaddle.setY(paddleY);
+            ball.renderTick((long) timeSinceImpact);
         }
 
-        // If the ball was in intersect range during the last tick, we don't need to deal with it now.
-        didIntersect = ((ballPoint >= paddlePoint && ball.getX(Side.LEFT) < paddlePoint && testingPaddle.getSide() == Side.LEFT) ||
-                (ballPoint <= paddlePoint && ball.getX(Side.RIGHT) > paddlePoint && testingPaddle.getSide() == Side.RIGHT));
+        return didIntersect;
+    }
 
-        // Otherwise, we need to run more calculations.
-        if (didIntersect) {
-            final Side ballSide = testingPaddle.getSide();
-            // Determine how long it's been since the ball would've collided. time = distance / velocity
-            final double timePassedSinceCollision = Math.abs((ball.getX(ballSide) - paddlePoint) / ball.getRunPerNanoSecond());
-            // Determine where the paddle would have been at that time. distance = velocity * time.
-            final double paddleTopAtTime = testingPaddle.getY(Side.TOP) - timePassedSinceCollision * testingPaddle.getVelYNanos();
-            // Also get the bottom position here.
-            final double paddleBottomAtTime = Paddle.getY(testingPaddle.getHeight(), paddleTopAtTime, Side.BOTTOM);
-            final double paddleTopCollisionPoint = paddleTopAtTime + ball.getRadius();
-            final double paddleBottomCollisionPoint = paddleBottomAtTime - ball.getRadius();
-            // Determine the ball's height at that time.
-            final double ballTopYAtTime = ball.getY(Side.TOP) - timePassedSinceCollision * (ball.getRisePerNanoSecond());
-            final double ballCenterAtTime = PongBall.getY(ball.getRadius(), ballTopYAtTime, Side.CENTER);
-
-            didIntersect = doesBallIntersect(ballCenterAtTime, paddleTopCollisionPoint, paddleBottomCollisionPoint);
-
-            // If there was an intersection, we need to continue even more with determining the ball's new location.
-            if (didIntersect) {
-                ball.setX(oldBallX);
-                ball.setY(ballCenterAtTime, Side.CENTER);
-                final double tempPaddleHeight = testingPaddle.getY();
-                testingPaddle.setY(paddleTopAtTime);
-                applyNewBallVelocity(testingPaddle);// Apply new ball velocity.
-                testingPaddle.setY(tempPaddleHeight);
-                ball.renderTick(nanosSinceLastTick - (long) timePassedSinceCollision);
-            }
+    /**
+     * Determines when during the last tick the ball first touched the paddle, using a swept bounding box test.
+     * The ball's center is swept, relative to the paddle, through the paddle's box grown by the ball's radius on every
+     * side. A ball that was already overlapping the paddle at the start of the tick is not counted again.
+     *
+     * @param testingPaddle      The paddle to test against.
+     * @param nanosSinceLastTick The length of the last tick, in nanoseconds.
+     * @return The time (in nanoseconds after the start of the tick) at which the ball touched the paddle,
+     * or -1 if it didn't.
+     */
+    private double sweepBallCollision(Paddle testingPaddle, final long nanosSinceLastTick) {
+        final double radius = ball.getRadius();
+        // Velocity of the ball as seen from the paddle, in units/nanosecond.
+        final double relativeVelX = ball.getRunPerNanoSecond() - testingPaddle.getVelXNanos();
+        final double relativeVelY = ball.getRisePerNanoSecond() - testingPaddle.getVelYNanos();
+        // Where the ball's center was, measured from the paddle's top left corner, at the start of the tick.
+        final double startX = ball.getX(Side.CENTER) - testingPaddle.getX(Side.LEFT) - relativeVelX * nanosSinceLastTick;
+        final double startY = ball.getY(Side.CENTER) - testingPaddle.getY(Side.TOP) - relativeVelY * nanosSinceLastTick;
+
+        final double minX = -radius, maxX = testingPaddle.getWidth() + radius;
+        final double minY = -testingPaddle.getHeight() - radius, maxY = radius;
+        final double entry = Math.max(entryTime(startX, relativeVelX, minX, maxX),
+                entryTime(startY, relativeVelY, minY, maxY));
+        final double exit = Math.min(exitTime(startX, relativeVelX, minX, maxX),
+                exitTime(startY, relativeVelY, minY, maxY));
+
+        return (0 <= entry && entry < exit && entry <= nanosSinceLastTick) ? entry : -1;
+    }
+
+    /**
+     * Determines the time at which a point moving along one axis enters the given range.
+     *
+     * @param start    The starting position of the point.
+     * @param velocity The velocity of the point.
+     * @param min      The lower end of the range.
+     * @param max      The upper end of the range.
+     * @return The entry time. Negative infinity if the point never leaves the range, infinity if it never enters.
+     */
+    private static double entryTime(final double start, final double velocity, final double min, final double max) {
+        final double time;
+        if (velocity == 0) {
+            time = (min <= start && start <= max) ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        } else {
+            time = Math.min((min - start) / velocity, (max - start) / velocity);
         }
+        return time;
+    }
 
-        return didIntersect;
+    /**
+     * Determines the time at which a point moving along one axis leaves the given range.
+     *
+     * @param start    The starting position of the point.
+     * @param velocity The velocity of the point.
+     * @param min      The lower end of the range.
+     * @param max      The upper end of the range.
+     * @return The exit time. Infinity if the point never leaves the range, negative infinity if it never enters.
+     */
+    private static double exitTime(final double start, final double velocity, final double min, final double max) {
+        final double time;
+        if (velocity == 0) {
+            time = (min <= start && start <= max) ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+        } else {
+            time = Math.max((min - start) / velocity, (max - start) / velocity);
+        }
+        return time;
     }
 
     /**
@@ -502,7 +740,8 @@ public class Pong {
 
         /* Get the percentage difference (how far the centers
         are from each other as a percentage of the maximum possible distance).*/
-        double percentageDifference = difference / (paddleHit.getHeight() / 2);
+        // A hit on the paddle's corner counts as a hit on the very end of the paddle.
+        double percentageDifference = Math.max(-1, Math.min(1, difference / (paddleHit.getHeight() / 2)));
         double angle = percentageDifference * MAX_REBOUND_ANGLE;
 
         // Go ahead and set the ball's velocity.
@@ -523,19 +762,6 @@ public class Pong {
                 piece1.getY(Side.TOP) <= piece2.getY(Side.BOTTOM));
     }
 
-    /**
-     * Determines if the ball intersects with the paddle, assuming the ball has already been determined to intersect
-     * horizontally with the paddle.
-     *
-     * @param ballPoint    The y coordinate point of the ball to test against.
-     * @param topPaddle    The top y coordinate of the paddle.
-     * @param bottomPaddle The bottom y coordinate of the paddle.
-     * @return True if the ball and paddle intersect, false otherwise.
-     */
-    private static boolean doesBallIntersect(final double ballPoint, final double topPaddle, final double bottomPaddle) {
-        return bottomPaddle <= ballPoint && ballPoint <= topPaddle;
-    }
-
     /**
      * Checks that the pong ball is in bounds.
      */
@@ -544,23 +770,45 @@ public class Pong {
         if (ball.getY(Side.TOP) >= getBoardHeight()) {
             ball.setVelocity(-Math.abs(ball.getRisePerSecond()), ball.getRunPerSecond());
             ball.setY(2 * getBoardHeight() - ball.getY(Side.TOP), Side.TOP);
-            callEvent(new PongEvent(getBall(), PongEvent.EventType.BALL_HIT_TOP_WALL));
+            callBallHitWall(PongEvent.EventType.BALL_HIT_TOP_WALL);
         } else if (ball.getY(Side.BOTTOM) <= 0) {
             ball.setVelocity(Math.abs(ball.getRisePerSecond()), ball.getRunPerSecond());
             ball.setY(-ball.getY(Side.BOTTOM), Side.BOTTOM);
-            callEvent(new PongEvent(getBall(), PongEvent.EventType.BALL_HIT_BOTTOM_WALL));
+            callBallHitWall(PongEvent.EventType.BALL_HIT_BOTTOM_WALL);
         }
 
         // Now check to see if the ball has hit a vertical barrier.
-        if (ball.getX(Side.LEFT) <= 0) {
+        if (localScoring && ball.getX(Side.LEFT) <= 0) {
             playerScored(getRightPlayer());
         }
         // If the ball hit the right side, then add to the player on the left.
-        else if (ball.getX(Side.RIGHT) >= WIDTH) {
+        else if (localScoring && ball.getX(Side.RIGHT) >= WIDTH) {
             playerScored(getLeftPlayer());
         }
     }
 
+    /**
+     * Sets whether this game decides when a player scores, by the ball passing their opponent. When it doesn't, the
+     * ball just carries on off the board until {@link #playerScored(PongPlayer, int)} is called by whatever does
+     * decide, such as a server running the game for both players.
+     *
+     * @param localScoring True if the ball passing a paddle scores, false otherwise.
+     */
+    public void setLocalScoring(boolean localScoring) {
+        this.localScoring = localScoring;
+    }
+
+    /**
+     * Notifies listeners that the ball has bounced off of the top or the bottom wall.
+     *
+     * @param type {@link PongEvent.EventType#BALL_HIT_TOP_WALL} or {@link PongEvent.EventType#BALL_HIT_BOTTOM_WALL}.
+     */
+    private void callBallHitWall(PongEvent.EventType type) {
+        PongEvent event = prepareEvent(type);
+        event.setBall(getBall());
+        callEvent(event);
+    }
+
     /**
      * Should be called when a player scores.
      *
@@ -572,6 +820,8 @@ public class Pong {
         // Only call the listeners and do the stuff if something has actually changed.
         if (player.getPoints() != newPoints && otherPlayer.canBeScoredOn()) {
             player.setPoints(newPoints);
+            // A new rally begins, so either paddle may be the first to hit the ball.
+            lastHitPaddle = null;
             resetBall((player.getSide() == Side.LEFT) ? Side.RIGHT : Side.LEFT);
             setPauseDuration(SCORE_PAUSE);
             // Important that listeners are called last.
@@ -619,31 +869,49 @@ public class Pong {
         playerScored(player, player.getPoints() + 1);
     }
 
+    /**
+     * Moves a paddle on by a tick and keeps it in bounds, just as {@link #renderTick(long)} would, without changing
+     * anything else in the game. Used to predict where a paddle will be.
+     *
+     * @param paddle            The paddle to be moved.
+     * @param timeSinceLastTick The time since the last tick, in nanoseconds.
+     */
+    public void renderPaddleTick(Paddle paddle, final long timeSinceLastTick) {
+        paddle.renderTick(timeSinceLastTick);
+        checkPaddleBounds(paddle);
+    }
+
     /**
      * Checks each of the paddles in the game to ensure that they are within the boundaries of the
      * board and places them back in the boundaries if they are not.
      */
     private void checkPaddleBounds() {
-        Paddle[] paddles = new Paddle[]{getLeftPaddle(), getRightPaddle()};
+        checkPaddleBounds(getLeftPaddle());
+        checkPaddleBounds(getRightPaddle());
+    }
 
-        // Iterate through all of the paddles checking their boundaries.
-        for (Paddle paddle : paddles) {
-            if (paddle.getY(Side.TOP) > getBoardHeight()) {
-                paddle.setY(getBoardHeight(), Side.TOP);
-                paddle.setVelY(0); // Get rid of velocity so the paddle isn't constantly trying to go off screen.
-            }
-            if (paddle.getY(Side.BOTTOM) < 0) {
-                paddle.setY(0, Side.BOTTOM);
-                paddle.setVelY(0); // Get rid of velocity
-            }
-            if (paddle.getX(Side.RIGHT) > getBoardWidth()) {
-                paddle.setX(getBoardWidth(), Side.RIGHT);
-                paddle.setVelX(0); // Get rid of velocity once the paddle hits the side.
-            }
-            if (paddle.getX(Side.LEFT) < 0) {
-                paddle.setX(0, Side.LEFT);
-                paddle.setVelX(0);
-            }
+    /**
+     * Ensures that the given paddle is within the boundaries of the board, placing it back in the boundaries if not.
+     * Used as well to keep a paddle that was moved from outside the game on the board.
+     *
+     * @param paddle The paddle to be checked.
+     */
+    public void checkPaddleBounds(Paddle paddle) {
+        if (paddle.getY(Side.TOP) > getBoardHeight()) {
+            paddle.setY(getBoardHeight(), Side.TOP);
+            paddle.setVelY(0); // Get rid of velocity so the paddle isn't constantly trying to go off screen.
+        }
+        if (paddle.getY(Side.BOTTOM) < 0) {
+            paddle.setY(0, Side.BOTTOM);
+            paddle.setVelY(0); // Get rid of velocity
+        }
+        if (paddle.getX(Side.RIGHT) > getBoardWidth()) {
+            paddle.setX(getBoardWidth(), Side.RIGHT);
+            paddle.setVelX(0); // Get rid of velocity once the paddle hits the side.
+        }
+        if (paddle.getX(Side.LEFT) < 0) {
+            paddle.setX(0, Side.LEFT);
+            paddle.setVelX(0);
         }
     }
 
@@ -718,6 +986,28 @@ public class Pong {
         }
     }
 
+    /**
+     * Applies the given action to the paddle belonging to the given player.
+     *
+     * @param player The player whose paddle should perform the action.
+     * @param action The action to be performed.
+     */
+    public void applyAction(PongPlayer player, Action action) {
+        Paddle paddle = getPaddle(player);
+
+        switch (action) {
+            case MOVE_DOWN:
+                paddleDown(paddle);
+                break;
+            case MOVE_UP:
+                paddleUp(paddle);
+                break;
+            default:
+                stopPaddle(paddle);
+                break;
+        }
+    }
+
     /**
      * Stops the paddle from moving.
      *
@@ -794,7 +1084,7 @@ public class Pong {
      * @param millisecondsPause The number of milliseconds to pause for. -1 for infinite pause.
      */
     public void setPauseDuration(long millisecondsPause) {
-        setPause(System.currentTimeMillis() + millisecondsPause);
+        setPause(clock.currentTimeMillis() + millisecondsPause);
     }
 
     /**
@@ -811,19 +1101,14 @@ public class Pong {
      *
      * @return True if the game should be paused, false otherwise.
      */
-    private boolean checkPause() {
-        boolean paused = System.currentTimeMillis() < unpauseTime || unpauseTime < 0;
-        if (!paused) {
-            lastTickTime = System.nanoTime(); // Update the last tick time now too.
-        }
-
-        return paused;
+    public boolean isPaused() {
+        return clock.currentTimeMillis() < unpauseTime || unpauseTime < 0;
     }
 
     /**
-     * Gets the time (in nanoseconds) at which the game will unpause. -1 for infinite.
+     * Gets the time (in milliseconds of the game's clock) at which the game will unpause. -1 for infinite.
      *
-     * @return The unpause time, in nanoseconds.
+     * @return The unpause time, in milliseconds.
      */
     public long getUnpauseTime() {
         return unpauseTime;
@@ -836,10 +1121,18 @@ public class Pong {
         if (!ended) {
             ended = true;
             endReason = reason;
-            callEvent(new PongEvent(PongEvent.EventType.GAME_ENDED));
+            callEvent(PongEvent.EventType.GAME_ENDED);
         }
     }
 
+    /**
+     * Notifies listeners that the game has ended. {@link #end(EndReason)} already does so, so this is only needed for a
+     * game that ended while events were suppressed.
+     */
+    public void callGameEnded() {
+        callEvent(PongEvent.EventType.GAME_ENDED);
+    }
+
     /**
      * Determines whether or not the pong game has ended.
      *
@@ -857,4 +1150,99 @@ public class Pong {
     public EndReason getEndReason() {
         return endReason;
     }
+
+    /**
+     * Writes the complete state of the game into the given buffer, starting at its current position, so that it can
+     * later be brought back with {@link #readSnapshot(ByteBuffer)}. Exactly {@link #SNAPSHOT_SIZE} bytes are written
+     * and nothing is allocated, so this is cheap enough to be done every tick.
+     * The pause deadline is kept in terms of the game's clock, so the game restoring the snapshot should use the
+     * same clock (or one that agrees with it).
+     *
+     * @param buffer The buffer to write to, with at least {@link #SNAPSHOT_SIZE} bytes remaining.
+     */
+    public void writeSnapshot(ByteBuffer buffer) {
+        buffer.putDouble(ball.getX()).putDouble(ball.getY())
+                .putDouble(ball.getRisePerSecond()).putDouble(ball.getRunPerSecond());
+        writePaddle(buffer, leftPaddle);
+        writePaddle(buffer, rightPaddle);
+        buffer.putInt(getLeftPlayer().getPoints()).putInt(getRightPlayer().getPoints());
+        buffer.putLong(unpauseTime).putLong(tickCount).putLong(unsimulatedNanos);
+
+        byte lastHit = 0;
+        if (lastHitPaddle == leftPaddle) {
+            lastHit = 1;
+        } else if (lastHitPaddle == rightPaddle) {
+            lastHit = 2;
+        }
+        buffer.put(lastHit);
+
+        final int flags = (hasBegun ? FLAG_BEGUN : 0) | (readyNotified ? FLAG_READY_NOTIFIED : 0)
+                | (ended ? FLAG_ENDED : 0);
+        buffer.put((byte) flags);
+        buffer.put((byte) ((endReason == null) ? -1 : endReason.ordinal()));
+    }
+
+    /**
+     * Restores the complete state of the game from a snapshot written by {@link #writeSnapshot(ByteBuffer)}, reading
+     * {@link #SNAPSHOT_SIZE} bytes from the buffer's current position. No events are called, since nothing has
+     * actually happened in the game.
+     *
+     * @param buffer The buffer to read from.
+     */
+    public void readSnapshot(ByteBuffer buffer) {
+        ball.setX(buffer.getDouble());
+        ball.setY(buffer.getDouble());
+        final double rise = buffer.getDouble();
+        ball.setVelocity(rise, buffer.getDouble());
+        readPaddle(buffer, leftPaddle);
+        readPaddle(buffer, rightPaddle);
+        getLeftPlayer().setPoints(buffer.getInt());
+        getRightPlayer().setPoints(buffer.getInt());
+        unpauseTime = buffer.getLong();
+        tickCount = buffer.getLong();
+        unsimulatedNanos = buffer.getLong();
+
+        switch (buffer.get()) {
+            case 1:
+                lastHitPaddle = leftPaddle;
+                break;
+            case 2:
+                lastHitPaddle = rightPaddle;
+                break;
+            default:
+                lastHitPaddle = null;
+                break;
+        }
+
+        final byte flags = buffer.get();
+        hasBegun = (flags & FLAG_BEGUN) != 0;
+        readyNotified = (flags & FLAG_READY_NOTIFIED) != 0;
+        ended = (flags & FLAG_ENDED) != 0;
+        final byte reason = buffer.get();
+        endReason = (reason < 0) ? null : END_REASONS[reason];
+    }
+
+    /**
+     * Writes the position and velocity of a paddle into a snapshot.
+     *
+     * @param buffer The buffer to write to.
+     * @param paddle The paddle to be written.
+     */
+    private static void writePaddle(ByteBuffer buffer, Paddle paddle) {
+        buffer.putDouble(paddle.getX()).putDouble(paddle.getY())
+                .putDouble(paddle.getVelX()).putDouble(paddle.getVelY());
+    }
+
+    /**
+     * Reads the position and velocity of a paddle from a snapshot.
+     *
+     * @param buffer The buffer to read from.
+     * @param paddle The paddle to be restored.
+     */
+    private static void readPaddle(ByteBuffer buffer, Paddle paddle) {
+        paddle.setX(buffer.getDouble());
+        paddle.setY(buffer.getDouble());
+        paddle.setVelX(buffer.getDouble());
+        paddle.setVelY(buffer.getDouble());
+    }
 }
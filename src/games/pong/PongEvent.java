@@ -6,6 +6,7 @@ import games.pong.players.PongPlayer;
 
 /**
  * Event for representing a collision between the pong ball and something else.
+ * A game reuses one event of each type, so listeners should take what they need from it rather than keep it.
  *
  * @author Kyle Anderson
  * ICS4U RST
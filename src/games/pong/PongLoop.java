@@ -0,0 +1,86 @@
+package games.pong;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a game of pong on its own thread so that nothing happening on the user interface's thread can hold up the
+ * game. After every frame the loop publishes a new {@link PongState}, which the user interface can pick up whenever
+ * it draws without ever waiting on the game.
+ * While the loop is running, only its thread may change the game. Other threads should use {@link Pong#post(Runnable)}.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class PongLoop {
+    private final Pong game;
+    private final Runnable frame;
+    private final AtomicReference<PongState> state;
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * Instantiates a new loop that renders frames of the given game.
+     *
+     * @param game The game to be run.
+     */
+    public PongLoop(Pong game) {
+        this(game, game::renderTick);
+    }
+
+    /**
+     * Instantiates a new loop that runs the given frame action, for when something else drives the game.
+     *
+     * @param game  The game being run, whose state is published after each frame.
+     * @param frame The action that brings the game up to date, run once per loop.
+     */
+    public PongLoop(Pong game, Runnable frame) {
+        this.game = game;
+        this.frame = frame;
+        state = new AtomicReference<>(new PongState(game));
+    }
+
+    /**
+     * Starts running the game on a new thread, if not already running.
+     */
+    public void start() {
+        if (thread == null) {
+            running = true;
+            thread = new Thread(this::run, "Pong game loop");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops running the game. The thread finishes the frame it is on, if any, then exits.
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread = null;
+        }
+    }
+
+    /**
+     * Gets the state of the game as of the last frame.
+     *
+     * @return The latest state of the game.
+     */
+    public PongState getState() {
+        return state.get();
+    }
+
+    /**
+     * Runs frames until stopped, waiting about one tick between them.
+     */
+    private void run() {
+        while (running) {
+            frame.run();
+            state.set(new PongState(game));
+            LockSupport.parkNanos(Pong.TICK_NANOS);
+        }
+    }
+}
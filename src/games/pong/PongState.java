@@ -0,0 +1,119 @@
+package games.pong;
+
+import games.pong.pieces.Paddle;
+import games.pong.pieces.PongBall;
+import games.pong.pieces.Side;
+
+/**
+ * Immutable copy of everything needed to draw a game of pong at one moment.
+ * Since it never changes, it can safely be handed from the thread running the game to the thread drawing it.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public final class PongState {
+    private final double ballX, ballY;
+    private final double leftPaddleX, leftPaddleY, rightPaddleX, rightPaddleY;
+    private final int leftPoints, rightPoints;
+    private final long tickCount;
+
+    /**
+     * Copies the current state of the given game. Should be called on the thread running the game.
+     *
+     * @param game The game to copy.
+     */
+    public PongState(Pong game) {
+        final PongBall ball = game.getBall();
+        final Paddle leftPaddle = game.getLeftPaddle(), rightPaddle = game.getRightPaddle();
+        ballX = ball.getX(Side.LEFT);
+        ballY = ball.getY(Side.TOP);
+        leftPaddleX = leftPaddle.getX(Side.LEFT);
+        leftPaddleY = leftPaddle.getY(Side.TOP);
+        rightPaddleX = rightPaddle.getX(Side.LEFT);
+        rightPaddleY = rightPaddle.getY(Side.TOP);
+        leftPoints = game.getLeftPlayer().getPoints();
+        rightPoints = game.getRightPlayer().getPoints();
+        tickCount = game.getTickCount();
+    }
+
+    /**
+     * Gets the x coordinate of the left of the ball.
+     *
+     * @return The ball's left x coordinate.
+     */
+    public double getBallX() {
+        return ballX;
+    }
+
+    /**
+     * Gets the y coordinate of the top of the ball.
+     *
+     * @return The ball's top y coordinate.
+     */
+    public double getBallY() {
+        return ballY;
+    }
+
+    /**
+     * Gets the x coordinate of the left of the left paddle.
+     *
+     * @return The left paddle's left x coordinate.
+     */
+    public double getLeftPaddleX() {
+        return leftPaddleX;
+    }
+
+    /**
+     * Gets the y coordinate of the top of the left paddle.
+     *
+     * @return The left paddle's top y coordinate.
+     */
+    public double getLeftPaddleY() {
+        return leftPaddleY;
+    }
+
+    /**
+     * Gets the x coordinate of the left of the right paddle.
+     *
+     * @return The right paddle's left x coordinate.
+     */
+    public double getRightPaddleX() {
+        return rightPaddleX;
+    }
+
+    /**
+     * Gets the y coordinate of the top of the right paddle.
+     *
+     * @return The right paddle's top y coordinate.
+     */
+    public double getRightPaddleY() {
+        return rightPaddleY;
+    }
+
+    /**
+     * Gets the points of the player on the left side.
+     *
+     * @return The left player's points.
+     */
+    public int getLeftPoints() {
+        return leftPoints;
+    }
+
+    /**
+     * Gets the points of the player on the right side.
+     *
+     * @return The right player's points.
+     */
+    public int getRightPoints() {
+        return rightPoints;
+    }
+
+    /**
+     * Gets the number of ticks that had been simulated when the state was copied.
+     *
+     * @return The tick count.
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+}
@@ -0,0 +1,25 @@
+package games.pong.clock;
+
+/**
+ * Source of time for a game. Lets the game run on the real clock, on a virtual clock that only moves when told to,
+ * or on a clock that runs faster or slower than real time.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public interface GameClock {
+    /**
+     * Gets the current value of the clock's high-resolution time source. Only meaningful when compared with
+     * other values from the same clock.
+     *
+     * @return The current time, in nanoseconds.
+     */
+    long nanoTime();
+
+    /**
+     * Gets the current time of the clock.
+     *
+     * @return The current time, in milliseconds.
+     */
+    long currentTimeMillis();
+}
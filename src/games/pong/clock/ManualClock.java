@@ -0,0 +1,56 @@
+package games.pong.clock;
+
+/**
+ * Virtual clock whose time only changes when it is told to. Lets simulations and tests skip through time instantly.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class ManualClock implements GameClock {
+    private long nanos;
+
+    /**
+     * Constructs a new manual clock starting at time zero.
+     */
+    public ManualClock() {
+        this(0);
+    }
+
+    /**
+     * Constructs a new manual clock starting at the given time.
+     *
+     * @param startNanos The starting time, in nanoseconds.
+     */
+    public ManualClock(long startNanos) {
+        this.nanos = startNanos;
+    }
+
+    /**
+     * Moves the clock forward by the given amount of time.
+     *
+     * @param nanosPassed The time to move forward, in nanoseconds.
+     */
+    public void advance(long nanosPassed) {
+        nanos += nanosPassed;
+    }
+
+    /**
+     * Sets the clock to the given time.
+     *
+     * @param nanos The new time, in nanoseconds.
+     */
+    public void setNanoTime(long nanos) {
+        this.nanos = nanos;
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanos;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return nanos / 1_000_000L;
+    }
+}
@@ -0,0 +1,83 @@
+package games.pong.clock;
+
+/**
+ * Clock which runs a given number of times faster (or slower) than another clock.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class ScaledClock implements GameClock {
+    private final GameClock source;
+    private double scale;
+
+    // Times at which the current scale was applied, on the source clock and on this clock.
+    private long sourceOriginNanos, originNanos, originMillis;
+
+    /**
+     * Constructs a new clock that runs at a multiple of the real time.
+     *
+     * @param scale How many times faster than real time the clock runs. 10 makes one real second last ten seconds.
+     */
+    public ScaledClock(double scale) {
+        this(new SystemClock(), scale);
+    }
+
+    /**
+     * Constructs a new clock that runs at a multiple of the given clock.
+     *
+     * @param source The clock to be scaled.
+     * @param scale  How many times faster than the source clock this clock runs.
+     */
+    public ScaledClock(GameClock source, double scale) {
+        this.source = source;
+        sourceOriginNanos = source.nanoTime();
+        originNanos = sourceOriginNanos;
+        originMillis = source.currentTimeMillis();
+        setScale(scale);
+    }
+
+    /**
+     * Gets how many times faster than the source clock this clock runs.
+     *
+     * @return The scale of the clock.
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Changes how fast the clock runs. The clock's time continues from where it was; it does not jump.
+     *
+     * @param scale How many times faster than the source clock this clock runs.
+     */
+    public void setScale(double scale) {
+        if (scale < 0) {
+            throw new IllegalArgumentException("Clock scale must not be negative.");
+        }
+        final long now = nanoTime();
+        originMillis = currentTimeMillis();
+        originNanos = now;
+        sourceOriginNanos = source.nanoTime();
+        this.scale = scale;
+    }
+
+    /**
+     * Determines how much time has passed on this clock since the scale was last applied.
+     *
+     * @return The scaled time passed, in nanoseconds.
+     */
+    private long scaledNanosPassed() {
+        return (long) ((source.nanoTime() - sourceOriginNanos) * scale);
+    }
+
+    @Override
+    public long nanoTime() {
+        return originNanos + scaledNanosPassed();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return originMillis + scaledNanosPassed() / 1_000_000L;
+    }
+}
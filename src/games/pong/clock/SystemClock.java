@@ -0,0 +1,19 @@
+package games.pong.clock;
+
+/**
+ * Clock which follows the real (wall clock) time of the machine.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public class SystemClock implements GameClock {
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
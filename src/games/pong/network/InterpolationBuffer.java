@@ -0,0 +1,209 @@
+package games.pong.network;
+
+/**
+ * Keeps the last few states of something that another machine controls, such as the other player's paddle, so that
+ * it can be shown moving smoothly however unevenly its states arrive.
+ * Each state is placed on the local timeline by the time the sender says it was sent, rather than by when it
+ * arrived. The two machines' clocks needn't agree: the difference between them is taken to be the smallest gap seen
+ * between sending and arriving, which is the state that was delayed least. Jitter only ever adds to that gap.
+ * The piece is then shown as it was {@link #getInterpolationDelay() a little while ago}, blending between the two
+ * states on either side of that time. If the next state is late, the piece carries on at its last velocity for a
+ * short while, and then waits where it is.
+ * Nothing is allocated once the buffer is made, so it can be sampled every tick.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class InterpolationBuffer {
+    /**
+     * Default time (in nanoseconds) to show pieces behind the present, enough to cover a few dropped or late states.
+     */
+    public static final long DEFAULT_INTERPOLATION_DELAY = 100_000_000L;
+    /**
+     * Default longest time (in nanoseconds) to carry a piece on past its last state.
+     */
+    public static final long DEFAULT_MAX_EXTRAPOLATION = 250_000_000L;
+    private static final int CAPACITY = 32;
+    // How fast the estimated difference between the clocks may creep up, in case one clock runs faster. (1 ms/s)
+    private static final double OFFSET_DRIFT = 0.001;
+
+    // The states, in a ring in order of time. Times are when they were sent, in nanoseconds by the sender's clock.
+    private final long[] times = new long[CAPACITY];
+    private final double[] xs = new double[CAPACITY], ys = new double[CAPACITY];
+    private final double[] velXs = new double[CAPACITY], velYs = new double[CAPACITY];
+    private int first, count;
+
+    private final long interpolationDelay, maxExtrapolation;
+    // Smallest (local arrival - sent) time seen, in nanoseconds.
+    private long offset;
+    private long lastArrival;
+
+    // The result of the last sample.
+    private double x, y, velX, velY;
+
+    /**
+     * Instantiates a new buffer with the default delay and extrapolation.
+     */
+    public InterpolationBuffer() {
+        this(DEFAULT_INTERPOLATION_DELAY, DEFAULT_MAX_EXTRAPOLATION);
+    }
+
+    /**
+     * Instantiates a new buffer.
+     *
+     * @param interpolationDelay How far behind the present (in nanoseconds) to show the piece.
+     * @param maxExtrapolation   Longest time (in nanoseconds) to carry the piece on past its last state.
+     */
+    public InterpolationBuffer(final long interpolationDelay, final long maxExtrapolation) {
+        this.interpolationDelay = interpolationDelay;
+        this.maxExtrapolation = maxExtrapolation;
+    }
+
+    /**
+     * Gets how far behind the present the piece is shown.
+     *
+     * @return The interpolation delay, in nanoseconds.
+     */
+    public long getInterpolationDelay() {
+        return interpolationDelay;
+    }
+
+    /**
+     * Adds a state that just arrived. States older than the newest one already added are ignored.
+     *
+     * @param sentMillis   The time that the sender sent the state, in milliseconds by the sender's clock.
+     * @param arrivalNanos The time that the state arrived, in nanoseconds by the local clock.
+     * @param x            The x position of the piece.
+     * @param y            The y position of the piece.
+     * @param velX         The horizontal velocity of the piece, in units per second.
+     * @param velY         The vertical velocity of the piece, in units per second.
+     */
+    public void add(final long sentMillis, final long arrivalNanos, final double x, final double y,
+                    final double velX, final double velY) {
+        final long sentNanos = sentMillis * 1_000_000L;
+        if (count == 0) {
+            offset = arrivalNanos - sentNanos;
+        } else {
+            offset = Math.min(offset + (long) ((arrivalNanos - lastArrival) * OFFSET_DRIFT), arrivalNanos - sentNanos);
+        }
+        lastArrival = arrivalNanos;
+
+        if (count == 0 || sentNanos >= times[index(count - 1)]) {
+            if (count == CAPACITY) {
+                first = (first + 1) % CAPACITY;
+                count--;
+            }
+            final int i = index(count);
+            times[i] = sentNanos;
+            xs[i] = x;
+            ys[i] = y;
+            velXs[i] = velX;
+            velYs[i] = velY;
+            count++;
+        }
+    }
+
+    /**
+     * Works out where the piece should be shown at the given time, which can then be had from {@link #getX()},
+     * {@link #getY()}, {@link #getVelX()} and {@link #getVelY()}.
+     *
+     * @param nowNanos The present time, in nanoseconds by the local clock.
+     * @return True if there was a state to work from, false if nothing has been added yet.
+     */
+    public boolean sample(final long nowNanos) {
+        // The time being shown, on the sender's clock.
+        final long renderTime = nowNanos - interpolationDelay - offset;
+        if (count > 0) {
+            // Find the newest state that isn't after the time being shown.
+            int before = count - 1;
+            while (before > 0 && times[index(before)] > renderTime) {
+                before--;
+            }
+            final int i = index(before);
+            if (times[i] > renderTime) {
+                // Everything is after the time being shown, so show the oldest state.
+                set(xs[i], ys[i], velXs[i], velYs[i]);
+            } else if (before < count - 1) {
+                // Blend between the states on either side.
+                final int j = index(before + 1);
+                final double alpha = (double) (renderTime - times[i]) / (times[j] - times[i]);
+                set(xs[i] + (xs[j] - xs[i]) * alpha, ys[i] + (ys[j] - ys[i]) * alpha,
+                        velXs[i] + (velXs[j] - velXs[i]) * alpha, velYs[i] + (velYs[j] - velYs[i]) * alpha);
+            } else {
+                // The next state is late, so carry on from the last one for a while.
+                final double seconds = Math.min(renderTime - times[i], maxExtrapolation) / 1e9;
+                set(xs[i] + velXs[i] * seconds, ys[i] + velYs[i] * seconds, velXs[i], velYs[i]);
+            }
+        }
+        return count > 0;
+    }
+
+    /**
+     * Forgets every state, for when the piece is moved in a way that shouldn't be smoothed over.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Gets the index in the ring of the nth oldest state.
+     *
+     * @param n The position of the state, 0 being the oldest.
+     * @return The index in the arrays.
+     */
+    private int index(final int n) {
+        return (first + n) % CAPACITY;
+    }
+
+    /**
+     * Sets the result of a sample.
+     *
+     * @param x    The x position.
+     * @param y    The y position.
+     * @param velX The horizontal velocity.
+     * @param velY The vertical velocity.
+     */
+    private void set(final double x, final double y, final double velX, final double velY) {
+        this.x = x;
+        this.y = y;
+        this.velX = velX;
+        this.velY = velY;
+    }
+
+    /**
+     * Gets the x position of the piece as of the last sample.
+     *
+     * @return The x position.
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Gets the y position of the piece as of the last sample.
+     *
+     * @return The y position.
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Gets the horizontal velocity of the piece as of the last sample.
+     *
+     * @return The horizontal velocity, in units per second.
+     */
+    public double getVelX() {
+        return velX;
+    }
+
+    /**
+     * Gets the vertical velocity of the piece as of the last sample.
+     *
+     * @return The vertical velocity, in units per second.
+     */
+    public double getVelY() {
+        return velY;
+    }
+}
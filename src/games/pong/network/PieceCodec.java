@@ -0,0 +1,194 @@
+package games.pong.network;
+
+import games.pong.Pong;
+import games.pong.pieces.Paddle;
+import games.pong.pieces.PongBall;
+import games.pong.pieces.Side;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Squeezes the ball and paddles into a few small whole numbers for sending, and turns them back into pieces.
+ * Positions are sent in fixed point, as 16 bits each covering a range of 1024 units around the board, so each one is
+ * off by at most {@link #MAX_POSITION_ERROR}. Anything outside that range is clamped to its edge.
+ * The ball always moves at {@link Pong#PONG_BALL_VELOCITY}, so only the direction it's heading is sent, as a 16 bit
+ * angle, which leaves each part of its velocity off by at most {@link #MAX_BALL_VELOCITY_ERROR}. A ball that isn't
+ * moving is sent as such.
+ * Paddles only ever move up or down at {@link Pong#PADDLE_MOVEMENT_RATE}, or not at all, so that and the paddle's
+ * side are all that's sent of them besides their position, and they come back exactly.
+ * The ball's radius and the paddles' size never change, so they aren't sent at all.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public final class PieceCodec {
+    /**
+     * Smallest difference in position that can be sent, in units.
+     */
+    public static final double POSITION_RESOLUTION = 1.0 / 64;
+    /**
+     * Most that a position (within range) can be off by after being sent, in units.
+     */
+    public static final double MAX_POSITION_ERROR = POSITION_RESOLUTION / 2;
+    // Lowest position that can be sent, so that pieces a little off the board can still be sent.
+    private static final double MIN_POSITION = -256;
+    // Number of steps in half a turn of the ball's heading, which leaves one value over to mean stopped.
+    private static final int HEADING_STEPS = Short.MAX_VALUE;
+    private static final int STOPPED = Short.MIN_VALUE & 0xFFFF;
+    /**
+     * Most that either part of the ball's velocity can be off by after being sent, in units per second. Half a step
+     * of heading, times the ball's speed.
+     */
+    public static final double MAX_BALL_VELOCITY_ERROR = Pong.PONG_BALL_VELOCITY * Math.PI / HEADING_STEPS / 2;
+
+    /**
+     * Number of fields that each piece is sent as: its position, and then how it's moving.
+     */
+    public static final int FIELDS_PER_PIECE = 3;
+    // Size, in bytes, of each field of the ball and of a paddle.
+    private static final int[] BALL_FIELD_SIZES = {2, 2, 2}, PADDLE_FIELD_SIZES = {2, 2, 1};
+    // Bits of a paddle's motion field.
+    private static final int MOVING_UP = 1, MOVING_DOWN = 1 << 1, SIDE_SHIFT = 2;
+
+    private PieceCodec() {
+    }
+
+    /**
+     * Gets the size of one of the fields of a piece.
+     *
+     * @param ball  True for a field of the ball, false for one of a paddle.
+     * @param field The index of the field within the piece.
+     * @return The size of the field, in bytes.
+     */
+    static int fieldSize(final boolean ball, final int field) {
+        return (ball ? BALL_FIELD_SIZES : PADDLE_FIELD_SIZES)[field];
+    }
+
+    /**
+     * Writes a field to the buffer.
+     *
+     * @param buffer The buffer to write to.
+     * @param value  The value of the field.
+     * @param size   The size of the field, in bytes.
+     */
+    static void putField(ByteBuffer buffer, final int value, final int size) {
+        if (size == 1) {
+            buffer.put((byte) value);
+        } else {
+            buffer.putShort((short) value);
+        }
+    }
+
+    /**
+     * Reads a field written by {@link #putField(ByteBuffer, int, int)} from the buffer.
+     *
+     * @param buffer The buffer to read from.
+     * @param size   The size of the field, in bytes.
+     * @return The value of the field.
+     */
+    static int getField(ByteBuffer buffer, final int size) {
+        return (size == 1) ? buffer.get() & 0xFF : buffer.getShort() & 0xFFFF;
+    }
+
+    /**
+     * Puts the fields of the ball in an array.
+     *
+     * @param ball   The ball.
+     * @param fields The array.
+     * @param start  Where the ball's fields start.
+     */
+    static void putBall(PongBall ball, int[] fields, final int start) {
+        fields[start] = quantizePosition(ball.getX());
+        fields[start + 1] = quantizePosition(ball.getY());
+        fields[start + 2] = quantizeHeading(ball.getRisePerSecond(), ball.getRunPerSecond());
+    }
+
+    /**
+     * Makes a ball from its fields.
+     *
+     * @param fields The fields.
+     * @param start  Where the ball's fields start.
+     * @return The ball.
+     */
+    static PongBall getBall(int[] fields, final int start) {
+        final PongBall ball = new PongBall(Pong.BALL_RADIUS);
+        ball.setX(position(fields[start]));
+        ball.setY(position(fields[start + 1]));
+        if (fields[start + 2] != STOPPED) {
+            final double heading = (short) fields[start + 2] * Math.PI / HEADING_STEPS;
+            ball.setVelocity(Pong.PONG_BALL_VELOCITY * Math.sin(heading), Pong.PONG_BALL_VELOCITY * Math.cos(heading));
+        }
+        return ball;
+    }
+
+    /**
+     * Puts the fields of a paddle in an array.
+     *
+     * @param paddle The paddle.
+     * @param fields The array.
+     * @param start  Where the paddle's fields start.
+     */
+    static void putPaddle(Paddle paddle, int[] fields, final int start) {
+        fields[start] = quantizePosition(paddle.getX());
+        fields[start + 1] = quantizePosition(paddle.getY());
+        final double velY = paddle.getVelY();
+        fields[start + 2] = ((velY > 0) ? MOVING_UP : 0) | ((velY < 0) ? MOVING_DOWN : 0)
+                | (paddle.getSide().ordinal() << SIDE_SHIFT);
+    }
+
+    /**
+     * Makes a paddle from its fields.
+     *
+     * @param fields The fields.
+     * @param start  Where the paddle's fields start.
+     * @return The paddle.
+     */
+    static Paddle getPaddle(int[] fields, final int start) {
+        final int motion = fields[start + 2];
+        final Paddle paddle = new Paddle(position(fields[start]), position(fields[start + 1]), Pong.PADDLE_WIDTH,
+                Pong.PADDLE_HEIGHT, Side.values()[motion >>> SIDE_SHIFT]);
+        if ((motion & MOVING_UP) != 0) {
+            paddle.setVelY(Pong.PADDLE_MOVEMENT_RATE);
+        } else if ((motion & MOVING_DOWN) != 0) {
+            paddle.setVelY(-Pong.PADDLE_MOVEMENT_RATE);
+        }
+        return paddle;
+    }
+
+    /**
+     * Converts a position to fixed point.
+     *
+     * @param position The position, in units.
+     * @return The fixed point position, from 0 to 65535.
+     */
+    static int quantizePosition(final double position) {
+        final long steps = Math.round((position - MIN_POSITION) / POSITION_RESOLUTION);
+        return (int) Math.max(0, Math.min(0xFFFF, steps));
+    }
+
+    /**
+     * Converts a fixed point position back to units.
+     *
+     * @param value The fixed point position.
+     * @return The position, in units.
+     */
+    static double position(final int value) {
+        return MIN_POSITION + value * POSITION_RESOLUTION;
+    }
+
+    /**
+     * Converts the ball's velocity to the direction it's heading.
+     *
+     * @param risePerSecond The vertical part of the velocity.
+     * @param runPerSecond  The horizontal part of the velocity.
+     * @return The heading, as a 16 bit angle, or the value for stopped.
+     */
+    static int quantizeHeading(final double risePerSecond, final double runPerSecond) {
+        int value = STOPPED;
+        if (risePerSecond != 0 || runPerSecond != 0) {
+            value = (int) Math.round(Math.atan2(risePerSecond, runPerSecond) / Math.PI * HEADING_STEPS) & 0xFFFF;
+        }
+        return value;
+    }
+}
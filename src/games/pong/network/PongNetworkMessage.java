@@ -1,9 +1,13 @@
 package games.pong.network;
 
-import com.google.gson.Gson;
 import games.pong.PongEvent;
 import games.pong.pieces.Paddle;
 import games.pong.pieces.PongBall;
+import games.pong.players.Action;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 /**
  * Class for sending messages between pong games.
@@ -12,12 +16,26 @@ import games.pong.pieces.PongBall;
  * ICS4U RST
  */
 public class PongNetworkMessage {
-    private static final Gson gson = new Gson();
+    // Size of the fields that every message has: the timestamp, flags, event, scores, action, frame, advantage and
+    // sequence.
+    private static final int HEADER_SIZE = Long.BYTES + 2 + 2 * Integer.BYTES + 1 + Long.BYTES + 2 * Integer.BYTES;
+    // Size of the snapshot sequence and baseline, and of the acknowledgement, when they're set.
+    private static final int SNAPSHOT_SIZE = 2 * Integer.BYTES, ACK_SIZE = Integer.BYTES;
+
+    private static final int FLAG_BALL_HIT_PADDLE = 1, FLAG_IN_GAME = 1 << 1, FLAG_HAS_BALL = 1 << 2,
+            FLAG_HAS_PADDLE = 1 << 3, FLAG_HAS_NETWORK_PADDLE = 1 << 4, FLAG_SNAPSHOT = 1 << 5, FLAG_ACK = 1 << 6;
 
+    // The ball and paddles are written as a list of fields quantized by the PieceCodec, the ball's first.
+    static final int FIELD_COUNT = 3 * PieceCodec.FIELDS_PER_PIECE;
+    // The flag for each of the pieces.
+    private static final int[] PIECE_FLAGS = {FLAG_HAS_BALL, FLAG_HAS_PADDLE, FLAG_HAS_NETWORK_PADDLE};
+    static final int PIECES_PRESENT = FLAG_HAS_BALL | FLAG_HAS_PADDLE | FLAG_HAS_NETWORK_PADDLE;
 
     // Time at which this data was calculated.
     private long timestampSent;
     private Paddle localPlayerPaddle;
+    // The receiver's own paddle, only sent by a server that runs the game for both players.
+    private Paddle networkPlayerPaddle;
     private PongBall ball;
     // True if the ball hit the paddle and bounced off, false otherwise.
     private boolean ballHitPaddle;
@@ -28,6 +46,15 @@ public class PongNetworkMessage {
     // True when the player's in game, false otherwise.
     private boolean isInGame;
 
+    // Input sent in rollback games: the sender's action as of the given frame, and how far ahead the sender is.
+    private Action action;
+    private long inputFrame;
+    private int frameAdvantage;
+    // Number of the input sent to a pong server, or of the last input that the server applied when it sends state.
+    private int inputSequence;
+    // Number of this snapshot, the snapshot its pieces are written relative to, and the last snapshot received.
+    private int snapshotSequence, baselineSequence, snapshotAck;
+
     /**
      * Instantiates a new PongNetworkMessage object with the given time in nanoseconds.
      *
@@ -74,6 +101,25 @@ public class PongNetworkMessage {
         this.localPlayerPaddle = localPlayerPaddle;
     }
 
+    /**
+     * Gets the paddle of the player receiving this data, as the sender sees it. Only a server that runs the game
+     * for both players sends this, since otherwise the receiver is the one who decides where its paddle is.
+     *
+     * @return The receiving player's Paddle object, or null if not sent.
+     */
+    public Paddle getNetworkPlayerPaddle() {
+        return networkPlayerPaddle;
+    }
+
+    /**
+     * Sets the paddle of the player receiving this data.
+     *
+     * @param networkPlayerPaddle The receiving player's paddle.
+     */
+    public void setNetworkPlayerPaddle(Paddle networkPlayerPaddle) {
+        this.networkPlayerPaddle = networkPlayerPaddle;
+    }
+
     /**
      * Gets the PongBall.
      *
@@ -184,32 +230,377 @@ public class PongNetworkMessage {
     }
 
     /**
-     * Converts this PongNetworkMessage to Json string.
+     * Determines if this message carries a player's input for a rollback game rather than the state of the game.
+     *
+     * @return True if this is an input message, false otherwise.
+     */
+    public boolean isInput() {
+        return action != null;
+    }
+
+    /**
+     * Gets the action that the sender's player is taking as of {@link #getInputFrame()}.
+     *
+     * @return The sender's action, or null if this isn't an input message.
+     */
+    public Action getAction() {
+        return action;
+    }
+
+    /**
+     * Sets the action that the sender's player is taking as of the input frame.
+     *
+     * @param action The sender's action.
+     */
+    public void setAction(Action action) {
+        this.action = action;
+    }
+
+    /**
+     * Gets the frame from which the sender's player is taking the action. The player kept their previous action for
+     * every frame since the last input message.
+     *
+     * @return The frame of the input.
+     */
+    public long getInputFrame() {
+        return inputFrame;
+    }
+
+    /**
+     * Sets the frame from which the sender's player is taking the action. In the state sent by a pong server, this is
+     * instead the frame of the receiver's own game that the state is as of, as worked out from the frame of the last
+     * input the server applied.
+     *
+     * @param inputFrame The frame of the input.
+     */
+    public void setInputFrame(long inputFrame) {
+        this.inputFrame = inputFrame;
+    }
+
+    /**
+     * Gets how many frames the sender was ahead of the receiver, as last measured by the sender.
+     *
+     * @return The sender's frame advantage.
+     */
+    public int getFrameAdvantage() {
+        return frameAdvantage;
+    }
+
+    /**
+     * Sets how many frames the sender is ahead of the receiver.
+     *
+     * @param frameAdvantage The sender's frame advantage.
+     */
+    public void setFrameAdvantage(int frameAdvantage) {
+        this.frameAdvantage = frameAdvantage;
+    }
+
+    /**
+     * Gets the sequence number of the input. Each input sent to a pong server is numbered one higher than the last,
+     * and each state that the server sends back carries the number of the last input that it applied.
+     *
+     * @return The sequence number, or 0 if there isn't one.
+     */
+    public int getInputSequence() {
+        return inputSequence;
+    }
+
+    /**
+     * Sets the sequence number of the input.
+     *
+     * @param inputSequence The sequence number.
+     */
+    public void setInputSequence(int inputSequence) {
+        this.inputSequence = inputSequence;
+    }
+
+    /**
+     * Gets the number of this snapshot. Each snapshot of the game sent by a {@link SnapshotEncoder} is numbered one
+     * higher than the last.
+     *
+     * @return The snapshot sequence number, or 0 if this message isn't a snapshot.
+     */
+    public int getSnapshotSequence() {
+        return snapshotSequence;
+    }
+
+    /**
+     * Sets the number of this snapshot.
+     *
+     * @param snapshotSequence The snapshot sequence number.
+     */
+    void setSnapshotSequence(int snapshotSequence) {
+        this.snapshotSequence = snapshotSequence;
+    }
+
+    /**
+     * Gets the number of the snapshot that the pieces in this one were written relative to. Only the fields that
+     * changed since then are sent.
+     *
+     * @return The baseline sequence number, or 0 if every field was sent.
+     */
+    public int getBaselineSequence() {
+        return baselineSequence;
+    }
+
+    /**
+     * Sets the number of the snapshot that the pieces in this one are to be written relative to. The receiver must
+     * have acknowledged it.
+     *
+     * @param baselineSequence The baseline sequence number, or 0 to send every field.
+     */
+    void setBaselineSequence(int baselineSequence) {
+        this.baselineSequence = baselineSequence;
+    }
+
+    /**
+     * Gets the number of the last snapshot that the sender received from the receiver, which the receiver may now
+     * write its snapshots relative to.
+     *
+     * @return The acknowledged snapshot sequence number, or 0 if none.
+     */
+    public int getSnapshotAck() {
+        return snapshotAck;
+    }
+
+    /**
+     * Sets the number of the last snapshot received from the receiver.
+     *
+     * @param snapshotAck The acknowledged snapshot sequence number, or 0 if none.
+     */
+    public void setSnapshotAck(int snapshotAck) {
+        this.snapshotAck = snapshotAck;
+    }
+
+    /**
+     * Converts this PongNetworkMessage to bytes, in a fixed layout. The ball and paddles are only included if set.
+     *
+     * @return The binary representation of this object.
+     */
+    public byte[] toBytes() {
+        final int[] fields = new int[FIELD_COUNT];
+        return toBytes(fields, getFields(fields), null, 0);
+    }
+
+    /**
+     * Converts this PongNetworkMessage to bytes, leaving out any field of the ball and paddles that is the same as in
+     * the baseline. Each piece is then preceded by a mask of which of its fields were written.
      *
-     * @return The json string representation of this object.
+     * @param fields          The fields of this message, from {@link #getFields(int[])}.
+     * @param present         The pieces that this message has.
+     * @param baseline        The fields of the baseline snapshot, or null to write every field.
+     * @param baselinePresent The pieces that the baseline snapshot has.
+     * @return The binary representation of this object.
      */
-    public String toJson() {
-        return toJsonString(this);
+    byte[] toBytes(int[] fields, final int present, int[] baseline, final int baselinePresent) {
+        final boolean delta = baseline != null && baselineSequence != 0;
+        int size = HEADER_SIZE + ((snapshotSequence == 0) ? 0 : SNAPSHOT_SIZE) + ((snapshotAck == 0) ? 0 : ACK_SIZE);
+        int masks = 0;
+        for (int piece = 0; piece < PIECE_FLAGS.length; piece++) {
+            if ((present & PIECE_FLAGS[piece]) != 0) {
+                final int mask = (delta && (baselinePresent & PIECE_FLAGS[piece]) != 0)
+                        ? changedFields(fields, baseline, piece) : fullMask();
+                masks |= mask << (Byte.SIZE * piece);
+                size += (delta ? 1 : 0) + fieldsSize(mask, piece);
+            }
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        final int flags = (ballHitPaddle ? FLAG_BALL_HIT_PADDLE : 0) | (isInGame ? FLAG_IN_GAME : 0) | present
+                | ((snapshotSequence == 0) ? 0 : FLAG_SNAPSHOT) | ((snapshotAck == 0) ? 0 : FLAG_ACK);
+        buffer.putLong(timestampSent);
+        buffer.put((byte) flags);
+        buffer.put((byte) ((triggeringEvent == null) ? -1 : triggeringEvent.ordinal()));
+        buffer.putInt(localPlayerScore).putInt(networkPlayerScore);
+        buffer.put((byte) ((action == null) ? -1 : action.ordinal()));
+        buffer.putLong(inputFrame).putInt(frameAdvantage).putInt(inputSequence);
+        if (snapshotSequence != 0) {
+            buffer.putInt(snapshotSequence).putInt(delta ? baselineSequence : 0);
+        }
+        if (snapshotAck != 0) {
+            buffer.putInt(snapshotAck);
+        }
+
+        for (int piece = 0; piece < PIECE_FLAGS.length; piece++) {
+            if ((present & PIECE_FLAGS[piece]) != 0) {
+                final int mask = (masks >>> (Byte.SIZE * piece)) & 0xFF;
+                if (delta) {
+                    buffer.put((byte) mask);
+                }
+                for (int i = 0; i < PieceCodec.FIELDS_PER_PIECE; i++) {
+                    if ((mask & (1 << i)) != 0) {
+                        PieceCodec.putField(buffer, fields[start(piece) + i], PieceCodec.fieldSize(piece == 0, i));
+                    }
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Gets where the fields of a piece start.
+     *
+     * @param piece The index of the piece.
+     * @return The index of the piece's first field.
+     */
+    private static int start(final int piece) {
+        return piece * PieceCodec.FIELDS_PER_PIECE;
+    }
+
+    /**
+     * Gets the mask of the fields of a piece that changed since the baseline.
+     *
+     * @param fields   The fields of this message.
+     * @param baseline The fields of the baseline snapshot.
+     * @param piece    The index of the piece.
+     * @return The mask, with a bit set for each field that changed.
+     */
+    private static int changedFields(int[] fields, int[] baseline, final int piece) {
+        int mask = 0;
+        for (int i = 0; i < PieceCodec.FIELDS_PER_PIECE; i++) {
+            if (fields[start(piece) + i] != baseline[start(piece) + i]) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
     }
 
     /**
-     * Converts json string to a PongNetworkMessage instance.
+     * Gets the mask with every field of a piece set.
      *
-     * @param jsonString The json string to be parsed.
+     * @return The mask.
+     */
+    private static int fullMask() {
+        return (1 << PieceCodec.FIELDS_PER_PIECE) - 1;
+    }
+
+    /**
+     * Gets the size of the fields of a piece that are in a mask.
+     *
+     * @param mask  The mask of fields.
+     * @param piece The index of the piece.
+     * @return The size, in bytes.
+     */
+    private static int fieldsSize(final int mask, final int piece) {
+        int size = 0;
+        for (int i = 0; i < PieceCodec.FIELDS_PER_PIECE; i++) {
+            if ((mask & (1 << i)) != 0) {
+                size += PieceCodec.fieldSize(piece == 0, i);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Gets the quantized fields of the ball and paddles in this message.
+     *
+     * @param fields The array to put the fields in, of length {@link #FIELD_COUNT}.
+     * @return The flags of the pieces that this message has. The fields of any other piece are left as they were.
+     */
+    int getFields(int[] fields) {
+        int present = 0;
+        if (ball != null) {
+            PieceCodec.putBall(ball, fields, start(0));
+            present |= FLAG_HAS_BALL;
+        }
+        if (localPlayerPaddle != null) {
+            PieceCodec.putPaddle(localPlayerPaddle, fields, start(1));
+            present |= FLAG_HAS_PADDLE;
+        }
+        if (networkPlayerPaddle != null) {
+            PieceCodec.putPaddle(networkPlayerPaddle, fields, start(2));
+            present |= FLAG_HAS_NETWORK_PADDLE;
+        }
+        return present;
+    }
+
+    /**
+     * Converts bytes written by {@link #toBytes()} to a PongNetworkMessage instance.
+     *
+     * @param bytes The bytes to be parsed.
      * @return The PongNetworkMessage object.
+     * @throws IOException Thrown if the bytes aren't a valid message, or only have the changes to a snapshot.
      */
-    public static PongNetworkMessage fromJsonString(String jsonString) {
-        return gson.fromJson(jsonString, PongNetworkMessage.class);
+    public static PongNetworkMessage fromBytes(byte[] bytes) throws IOException {
+        return fromBytes(bytes, null);
     }
 
     /**
-     * Converts a PongNetworkMessage to a json string.
+     * Converts bytes written by {@link #toBytes(int[], int, int[], int)} to a PongNetworkMessage instance,
+     * filling in any field that wasn't sent from the baseline snapshot. If the message is a snapshot, its fields are
+     * added to the received snapshots.
      *
-     * @param message The PongNetworkMessage to be converted.
-     * @return The json string.
+     * @param bytes    The bytes to be parsed.
+     * @param received The snapshots received so far, or null if none are kept.
+     * @return The PongNetworkMessage object.
+     * @throws IOException Thrown if the bytes aren't a valid message, or the baseline snapshot isn't known.
      */
-    @SuppressWarnings("WeakerAccess")
-    public static String toJsonString(PongNetworkMessage message) {
-        return gson.toJson(message);
+    static PongNetworkMessage fromBytes(byte[] bytes, SnapshotRing received) throws IOException {
+        final PongNetworkMessage message;
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            message = new PongNetworkMessage(buffer.getLong());
+            final int flags = buffer.get();
+            final byte event = buffer.get();
+            message.setTriggeringEvent((event < 0) ? null : PongEvent.EventType.values()[event]);
+            message.setLocalPlayerScore(buffer.getInt());
+            message.setNetworkPlayerScore(buffer.getInt());
+            final byte action = buffer.get();
+            message.setAction((action < 0) ? null : Action.values()[action]);
+            message.setInputFrame(buffer.getLong());
+            message.setFrameAdvantage(buffer.getInt());
+            message.setInputSequence(buffer.getInt());
+            message.setBallHitPaddle((flags & FLAG_BALL_HIT_PADDLE) != 0);
+            message.setInGame((flags & FLAG_IN_GAME) != 0);
+            if ((flags & FLAG_SNAPSHOT) != 0) {
+                message.setSnapshotSequence(buffer.getInt());
+                message.setBaselineSequence(buffer.getInt());
+            }
+            if ((flags & FLAG_ACK) != 0) {
+                message.setSnapshotAck(buffer.getInt());
+            }
+
+            final int present = flags & PIECES_PRESENT;
+            final int[] fields = new int[FIELD_COUNT];
+            int baselinePresent = PIECES_PRESENT;
+            if (message.getBaselineSequence() != 0) {
+                final int slot = (received == null) ? -1 : received.find(message.getBaselineSequence());
+                if (slot < 0) {
+                    throw new IOException("Pong network message relative to an unknown snapshot.");
+                }
+                System.arraycopy(received.getFields(slot), 0, fields, 0, FIELD_COUNT);
+                baselinePresent = received.getPresent(slot);
+            }
+            for (int piece = 0; piece < PIECE_FLAGS.length; piece++) {
+                if ((present & PIECE_FLAGS[piece]) != 0) {
+                    final int mask = (message.getBaselineSequence() == 0) ? fullMask() : buffer.get() & 0xFF;
+                    // A piece that the baseline doesn't have can't be written relative to it.
+                    if ((baselinePresent & PIECE_FLAGS[piece]) == 0 && mask != fullMask()) {
+                        throw new IOException("Pong network message relative to a missing piece.");
+                    }
+                    for (int i = 0; i < PieceCodec.FIELDS_PER_PIECE; i++) {
+                        if ((mask & (1 << i)) != 0) {
+                            fields[start(piece) + i] = PieceCodec.getField(buffer, PieceCodec.fieldSize(piece == 0, i));
+                        }
+                    }
+                }
+            }
+
+            if ((present & FLAG_HAS_BALL) != 0) {
+                message.setBall(PieceCodec.getBall(fields, start(0)));
+            }
+            if ((present & FLAG_HAS_PADDLE) != 0) {
+                message.setLocalPlayerPaddle(PieceCodec.getPaddle(fields, start(1)));
+            }
+            if ((present & FLAG_HAS_NETWORK_PADDLE) != 0) {
+                message.setNetworkPlayerPaddle(PieceCodec.getPaddle(fields, start(2)));
+            }
+            if (received != null && message.getSnapshotSequence() != 0) {
+                received.add(message.getSnapshotSequence(), fields, present);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Malformed pong network message.", e);
+        }
+        return message;
     }
 }
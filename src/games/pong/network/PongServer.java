@@ -0,0 +1,282 @@
+package games.pong.network;
+
+import games.pong.PongEvent;
+import network.ConnectionListener;
+import network.NioConnection;
+import network.NioEventLoop;
+import network.TCPSocket;
+import network.party.ClockSync;
+import network.party.network.HostStatus;
+import network.party.network.NetworkMessage;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A server that runs games of pong for its clients, rather than having each pair of players run the game on both of
+ * their machines and trust each other. Clients join it just like a party, and ask to play with a game invite. Once
+ * two have asked, the server accepts the invite on behalf of each of them and runs the game between them as a
+ * {@link ServerMatch}: clients only send it their actions, and it sends back the state of the game
+ * {@link #SNAPSHOT_RATE} times a second, as well as whenever something happens.
+ * Clients are handled on a single {@link NioEventLoop}, and every match is stepped on a single tick thread, so one
+ * server can run a great many matches at once.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class PongServer implements ConnectionListener {
+    /**
+     * Name that the server introduces itself to clients with.
+     */
+    public static final String SERVER_NAME = "Pong server";
+    /**
+     * How many times a second every match is stepped.
+     */
+    public static final int STEP_RATE = 60;
+    /**
+     * How many times a second the state of every match is sent to its clients.
+     */
+    public static final int SNAPSHOT_RATE = 30;
+    private static final int STEPS_PER_SNAPSHOT = STEP_RATE / SNAPSHOT_RATE;
+
+    private final NioEventLoop loop;
+    private final ScheduledExecutorService ticker;
+    // Clients that have asked to play but haven't been matched yet, longest waiting first. Only used on the loop.
+    private final Deque<ServerClient> waiting = new ArrayDeque<>();
+    private final List<ServerMatch> matches = new CopyOnWriteArrayList<>();
+    private final byte[] greetingFrame;
+    private volatile int clientCount;
+    private long stepCount;
+
+    /**
+     * Instantiates a new pong server. It doesn't accept anyone until started.
+     *
+     * @throws IOException Thrown if the event loop can't be created.
+     */
+    public PongServer() throws IOException {
+        loop = new NioEventLoop();
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "Pong server ticks");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final NetworkMessage greeting = new NetworkMessage(HostStatus.CONNECTED);
+        greeting.setHostName(SERVER_NAME);
+        greetingFrame = greeting.toFrame();
+    }
+
+    /**
+     * Starts accepting clients on the given port, and running matches.
+     *
+     * @param port The port to listen on, or 0 for any free port.
+     * @return The port being listened on.
+     * @throws IOException Thrown if the port can't be bound.
+     */
+    public int start(final int port) throws IOException {
+        loop.start();
+        final int boundPort = loop.listen(port, this);
+        ticker.scheduleAtFixedRate(this::step, 0, 1_000_000_000L / STEP_RATE, TimeUnit.NANOSECONDS);
+        return boundPort;
+    }
+
+    /**
+     * Stops the server, disconnecting every client.
+     */
+    public void stop() {
+        ticker.shutdownNow();
+        loop.stop();
+    }
+
+    /**
+     * Gets the number of clients connected to the server.
+     *
+     * @return The number of clients.
+     */
+    public int getClientCount() {
+        return clientCount;
+    }
+
+    /**
+     * Gets the number of matches being played.
+     *
+     * @return The number of matches.
+     */
+    public int getMatchCount() {
+        return matches.size();
+    }
+
+    /**
+     * Steps every match. Called on the tick thread.
+     */
+    private void step() {
+        final boolean sendState = ++stepCount % STEPS_PER_SNAPSHOT == 0;
+        for (ServerMatch match : matches) {
+            try {
+                match.step(sendState);
+            } catch (RuntimeException e) {
+                // A broken match mustn't stop the ticks for every other match.
+                System.err.println("Ending match that failed to step: " + e);
+                matchEnded(match);
+            }
+        }
+    }
+
+    @Override
+    public void connected(NioConnection connection) {
+        connection.setAttachment(new ServerClient(connection));
+        clientCount++;
+    }
+
+    @Override
+    public void frameReceived(NioConnection connection, byte[] frame) {
+        final ServerClient client = (ServerClient) connection.getAttachment();
+        try {
+            final NetworkMessage message = NetworkMessage.fromFrame(frame);
+            switch (message.getHostStatus()) {
+                case CONNECTED:
+                    client.setHostName(message.getHostName());
+                    connection.send(greetingFrame);
+                    break;
+                case PENDING_GAME_INVITE:
+                    if (client.getMatch() == null && !waiting.contains(client)) {
+                        client.setRequestedGame(message.getCurrentGame());
+                        waiting.add(client);
+                        match();
+                    }
+                    break;
+                case IN_GAME:
+                    if (client.getMatch() != null) {
+                        receiveGameData(client, PongNetworkMessage.fromBytes(message.getGameData()));
+                    }
+                    break;
+                case PING:
+                    // Lets the client measure its round trip time to the server.
+                    connection.send(ClockSync.answer(message, System.nanoTime()).toFrame());
+                    break;
+                case HEARTBEAT:
+                    // Shows the client that the server is still there, when there's nothing else to send it.
+                    connection.send(frame);
+                    break;
+                case DISCONNECTING:
+                    // The client closes the connection itself.
+                    leave(client);
+                    break;
+                default:
+                    break;
+            }
+        } catch (IOException e) {
+            System.err.println("Disconnecting client that sent a malformed message.");
+            connection.close();
+        }
+    }
+
+    @Override
+    public void disconnected(NioConnection connection) {
+        final ServerClient client = (ServerClient) connection.getAttachment();
+        if (client != null) {
+            leave(client);
+            clientCount--;
+        }
+    }
+
+    /**
+     * Passes what a client sent about its game on to its match.
+     *
+     * @param client   The client.
+     * @param gameData The game data the client sent.
+     */
+    private void receiveGameData(ServerClient client, PongNetworkMessage gameData) {
+        final ServerMatch match = client.getMatch();
+        if (gameData.getSnapshotAck() != 0) {
+            match.acknowledge(client, gameData.getSnapshotAck());
+        }
+        if (gameData.isInput()) {
+            match.input(client, gameData.getAction(), gameData.getInputSequence(), gameData.getInputFrame());
+        } else if (gameData.getTriggeringEvent() == PongEvent.EventType.GAME_READY) {
+            match.ready(client);
+        } else if (gameData.getTriggeringEvent() == PongEvent.EventType.GAME_ENDED) {
+            leave(client);
+        }
+    }
+
+    /**
+     * Starts a match between the two clients that have been waiting longest, if two are waiting.
+     */
+    private void match() {
+        if (waiting.size() >= 2) {
+            final ServerClient left = waiting.poll(), right = waiting.poll();
+            final ServerMatch match = new ServerMatch(left, right, this::matchEnded);
+            left.setMatch(match);
+            right.setMatch(match);
+            matches.add(match);
+            // Each client starts its game as soon as it hears that its invite was accepted.
+            accept(left, right);
+            accept(right, left);
+            System.out.println(String.format("Started match between %s and %s.", left.getHostName(),
+                    right.getHostName()));
+        }
+    }
+
+    /**
+     * Tells a client that its invite was accepted by its opponent.
+     *
+     * @param client   The client.
+     * @param opponent The client's opponent.
+     */
+    private static void accept(ServerClient client, ServerClient opponent) {
+        final NetworkMessage message = new NetworkMessage(HostStatus.ACCEPTED_GAME_INVITE);
+        message.setHostName(opponent.getHostName());
+        message.setCurrentGame(client.getRequestedGame());
+        client.getConnection().send(message.toFrame());
+    }
+
+    /**
+     * Takes a client out of whatever it was waiting for or playing in. Called on the event loop.
+     *
+     * @param client The client.
+     */
+    private void leave(ServerClient client) {
+        waiting.remove(client);
+        if (client.getMatch() != null) {
+            client.getMatch().leave(client);
+        }
+    }
+
+    /**
+     * Called once a match has ended, to stop stepping it and let its clients play again. Called on the tick thread.
+     *
+     * @param match The match.
+     */
+    private void matchEnded(ServerMatch match) {
+        matches.remove(match);
+        loop.execute(() -> {
+            match.getLeftClient().setMatch(null);
+            match.getRightClient().setMatch(null);
+        });
+    }
+
+    /**
+     * Runs a pong server until the process is killed.
+     *
+     * @param args Command-line arguments: [port]. Defaults to {@link TCPSocket#DEFAULT_PORT}.
+     * @throws IOException          Thrown if the server can't be started.
+     * @throws InterruptedException Thrown if interrupted while running.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final int port = (args.length > 0) ? Integer.parseInt(args[0]) : TCPSocket.DEFAULT_PORT;
+        final PongServer server = new PongServer();
+        System.out.println("Pong server listening on port " + server.start(port) + ".");
+        while (true) {
+            Thread.sleep(60_000);
+            System.out.println(String.format("%d clients connected, %d matches.", server.getClientCount(),
+                    server.getMatchCount()));
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package games.pong.network;
+
+import games.pong.Pong;
+import games.pong.clock.GameClock;
+import games.pong.clock.ManualClock;
+import games.pong.clock.SystemClock;
+import games.pong.players.Action;
+import games.pong.players.PongPlayer;
+import games.pong.players.PongRollbackPlayer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Runs a network game of pong using rollback netcode. Instead of copying the state of the other player's game, both
+ * games simulate the whole match from the players' inputs, one fixed tick (frame) at a time.
+ * The local player's input is applied right away, and the remote player is predicted to keep doing whatever they
+ * were last known to be doing. When an input arrives that proves a prediction wrong, the game is restored to its
+ * snapshot from the frame of that input and every frame since is simulated again with the right inputs, all before
+ * the next frame is drawn.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class RollbackSession {
+    /**
+     * The most frames that the game may be simulated past the last input received from the other player (half a
+     * second). Any later and the game waits for the other player, since a late input could not be rolled back to.
+     */
+    public static final int MAX_ROLLBACK_FRAMES = Pong.TICK_RATE / 2;
+    /**
+     * How often (in frames) the local input is sent even if it hasn't changed, so that the other player can confirm
+     * their predictions and keep going.
+     */
+    private static final int CONFIRM_INTERVAL_FRAMES = Pong.TICK_RATE / 40;
+    /**
+     * The most frames that are simulated in one update, so that a long stall doesn't freeze the game catching up.
+     */
+    private static final int MAX_FRAMES_PER_UPDATE = Pong.TICK_RATE / 10;
+    /**
+     * Number of frames of snapshots kept, enough to go back to any frame that could still be mispredicted.
+     */
+    private static final int HISTORY_SIZE = MAX_ROLLBACK_FRAMES + 1;
+    /**
+     * Number of frames of inputs kept. The other player may be up to a rollback window ahead of this game, so inputs
+     * need more room than snapshots.
+     */
+    private static final int INPUT_HISTORY_SIZE = 4 * HISTORY_SIZE;
+
+    private final Pong game;
+    private final PongPlayer localPlayer;
+    private final PongRollbackPlayer remotePlayer;
+    /**
+     * Clock of the game, moved forward exactly one tick per frame so that pauses end on the same frame in both games.
+     */
+    private final ManualClock gameClock = new ManualClock();
+    private GameClock realClock = new SystemClock();
+
+    // Snapshot of the game taken before each frame in the history.
+    private final ByteBuffer snapshots = ByteBuffer.allocate(HISTORY_SIZE * Pong.SNAPSHOT_SIZE);
+    private final Action[] localInputs = new Action[INPUT_HISTORY_SIZE], remoteInputs = new Action[INPUT_HISTORY_SIZE];
+
+    /**
+     * The next frame to be simulated.
+     */
+    private long frame;
+    /**
+     * The real time (in nanoseconds) at which frame 0 was simulated.
+     */
+    private long startNanos;
+    private Action localAction = Action.STOP, remoteAction = Action.STOP;
+    /**
+     * The last frame for which the remote player's input is known.
+     */
+    private long remoteConfirmedFrame = -1;
+    /**
+     * The earliest frame that was simulated with a wrong input, or {@link Long#MAX_VALUE} if there isn't one.
+     */
+    private long rollbackFrame = Long.MAX_VALUE;
+    private long lastSentFrame;
+    // How many frames each game is ahead of the other, used to keep the two games in step.
+    private int localAdvantage, remoteAdvantage;
+
+    private long rollbacks, resimulatedFrames;
+
+    /**
+     * Instantiates a new rollback session for the given game. The session takes over the game's clock.
+     *
+     * @param game         The game to be run.
+     * @param localPlayer  The player on this machine.
+     * @param remotePlayer The player on the other machine.
+     */
+    public RollbackSession(Pong game, PongPlayer localPlayer, PongRollbackPlayer remotePlayer) {
+        this.game = game;
+        this.localPlayer = localPlayer;
+        this.remotePlayer = remotePlayer;
+        game.setClock(gameClock);
+        remotePlayer.setSession(this);
+    }
+
+    /**
+     * Sets the clock used to determine how many frames should have been simulated. Defaults to the system clock.
+     *
+     * @param realClock The real time clock.
+     */
+    public void setRealClock(GameClock realClock) {
+        this.realClock = realClock;
+    }
+
+    /**
+     * Begins the game at frame 0, if it hasn't begun already.
+     */
+    public void begin() {
+        if (!game.hasBegun()) {
+            frame = 0;
+            gameClock.setNanoTime(0);
+            game.begin();
+            startNanos = realClock.nanoTime();
+        }
+    }
+
+    /**
+     * Brings the game up to date. Should be called once before each frame is drawn.
+     * Any mispredicted frames are simulated again, then new frames are simulated up to the current time.
+     */
+    public void update() {
+        game.runPosted();
+        if (!game.hasBegun()) {
+            // Lets the game announce that it is ready, which is what tells the other player to begin.
+            game.renderTick(0);
+        } else {
+            rollback();
+
+            final long targetFrame = (realClock.nanoTime() - startNanos) / Pong.TICK_NANOS;
+            final long lastFrame = Math.min(Math.min(targetFrame, remoteConfirmedFrame + MAX_ROLLBACK_FRAMES),
+                    frame + MAX_FRAMES_PER_UPDATE);
+            while (frame < lastFrame) {
+                simulateFrame(frame, false);
+                frame++;
+            }
+
+            if (frame - lastSentFrame >= CONFIRM_INTERVAL_FRAMES) {
+                sendLocalInput();
+            }
+
+            // If this game is further ahead of the other than the other is of this one, fall back a frame.
+            if ((localAdvantage - remoteAdvantage) / 2 > 1) {
+                startNanos += Pong.TICK_NANOS;
+                localAdvantage--;
+            }
+        }
+    }
+
+    /**
+     * Sets the action that the local player is taking, from the next frame on.
+     *
+     * @param action The local player's new action.
+     */
+    public void setLocalAction(Action action) {
+        localAction = action;
+        sendLocalInput();
+    }
+
+    /**
+     * Should be called when an input arrives from the remote player.
+     * The remote player is known to have kept their last action for every frame between their last input and this one.
+     *
+     * @param inputFrame      The frame from which the remote player takes the action.
+     * @param action          The remote player's action.
+     * @param remoteAdvantage How many frames the remote game was ahead of this one, as measured by the remote game.
+     */
+    public void receiveRemoteInput(final long inputFrame, Action action, final int remoteAdvantage) {
+        this.remoteAdvantage = remoteAdvantage;
+        localAdvantage = (int) (frame - inputFrame);
+
+        if (inputFrame >= remoteConfirmedFrame) {
+            final Action predicted = getRemoteInput(inputFrame);
+            for (long f = Math.max(remoteConfirmedFrame + 1, inputFrame - INPUT_HISTORY_SIZE + 1); f < inputFrame; f++) {
+                remoteInputs[inputSlot(f)] = remoteAction;
+            }
+            remoteInputs[inputSlot(inputFrame)] = action;
+            remoteAction = action;
+            remoteConfirmedFrame = inputFrame;
+
+            // Only the frame of the input itself could have been predicted wrong.
+            if (action != predicted && inputFrame < frame) {
+                rollbackFrame = Math.min(rollbackFrame, inputFrame);
+            }
+        }
+    }
+
+    /**
+     * Restores the game to before the earliest mispredicted frame, and simulates every frame since then again.
+     * Listeners have already heard about these frames, so they aren't told about them a second time, except for the
+     * game ending, which they wouldn't have heard about if it only ends with the right inputs.
+     */
+    private void rollback() {
+        if (rollbackFrame < frame) {
+            final boolean wasEnded = game.isEnded();
+            snapshots.position(snapshotSlot(rollbackFrame) * Pong.SNAPSHOT_SIZE);
+            game.readSnapshot(snapshots);
+
+            game.setEventsSuppressed(true);
+            for (long f = rollbackFrame; f < frame; f++) {
+                simulateFrame(f, true);
+            }
+            game.setEventsSuppressed(false);
+            if (game.isEnded() && !wasEnded) {
+                game.callGameEnded();
+            }
+
+            rollbacks++;
+            resimulatedFrames += frame - rollbackFrame;
+        }
+        rollbackFrame = Long.MAX_VALUE;
+    }
+
+    /**
+     * Simulates a single frame of the game, saving a snapshot beforehand.
+     *
+     * @param f         The frame to be simulated.
+     * @param replaying True if the frame is being simulated again, in which case the recorded local input is used.
+     */
+    private void simulateFrame(final long f, final boolean replaying) {
+        if (!replaying) {
+            localInputs[inputSlot(f)] = localAction;
+        }
+        snapshots.position(snapshotSlot(f) * Pong.SNAPSHOT_SIZE);
+        game.writeSnapshot(snapshots);
+
+        applyInput(localPlayer, getLocalInput(f), getLocalInput(f - 1));
+        applyInput(remotePlayer, getRemoteInput(f), getRemoteInput(f - 1));
+
+        gameClock.setNanoTime((f + 1) * Pong.TICK_NANOS);
+        game.renderTick(Pong.TICK_NANOS);
+    }
+
+    /**
+     * Applies a player's input to the game, but only if it changed since the last frame, just like a player would.
+     *
+     * @param player   The player.
+     * @param input    The player's action in this frame.
+     * @param previous The player's action in the previous frame.
+     */
+    private void applyInput(PongPlayer player, Action input, Action previous) {
+        if (input != previous) {
+            game.applyAction(player, input);
+        }
+    }
+
+    /**
+     * Gets the local player's action in the given frame.
+     *
+     * @param f The frame.
+     * @return The local player's action.
+     */
+    private Action getLocalInput(final long f) {
+        return (f < 0) ? Action.STOP : localInputs[inputSlot(f)];
+    }
+
+    /**
+     * Gets the remote player's action in the given frame, predicting it if it isn't known yet.
+     *
+     * @param f The frame.
+     * @return The remote player's known or predicted action.
+     */
+    private Action getRemoteInput(final long f) {
+        Action input;
+        if (f < 0) {
+            input = Action.STOP;
+        } else if (f <= remoteConfirmedFrame) {
+            input = remoteInputs[inputSlot(f)];
+        } else {
+            input = remoteAction;
+        }
+        return input;
+    }
+
+    /**
+     * Sends the local player's current action to the remote player.
+     */
+    private void sendLocalInput() {
+        remotePlayer.sendInput(frame, localAction, localAdvantage);
+        lastSentFrame = frame;
+    }
+
+    /**
+     * Gets the position of a frame's snapshot in the snapshot history.
+     *
+     * @param f The frame.
+     * @return The index of the frame's snapshot.
+     */
+    private static int snapshotSlot(final long f) {
+        return (int) (f % HISTORY_SIZE);
+    }
+
+    /**
+     * Gets the position of a frame's inputs in the input history.
+     *
+     * @param f The frame.
+     * @return The index of the frame's inputs.
+     */
+    private static int inputSlot(final long f) {
+        return (int) (f % INPUT_HISTORY_SIZE);
+    }
+
+    /**
+     * Gets the next frame to be simulated.
+     *
+     * @return The current frame.
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    /**
+     * Gets the last frame for which the remote player's input is known. Frames after it use predicted input.
+     *
+     * @return The last confirmed frame, or -1 if no input has arrived yet.
+     */
+    public long getRemoteConfirmedFrame() {
+        return remoteConfirmedFrame;
+    }
+
+    /**
+     * Gets the number of times that the game was rolled back because of a misprediction.
+     *
+     * @return The number of rollbacks.
+     */
+    public long getRollbacks() {
+        return rollbacks;
+    }
+
+    /**
+     * Gets the total number of frames that were simulated again because of rollbacks.
+     *
+     * @return The number of resimulated frames.
+     */
+    public long getResimulatedFrames() {
+        return resimulatedFrames;
+    }
+}
@@ -0,0 +1,90 @@
+package games.pong.network;
+
+import network.NioConnection;
+
+/**
+ * What a {@link PongServer} keeps track of for each connected client. Only used on the server's event loop.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class ServerClient {
+    private final NioConnection connection;
+    private String hostName;
+    // The game that the client asked to play, as named in its invite.
+    private String requestedGame;
+    private ServerMatch match;
+
+    /**
+     * Instantiates a new client that just connected.
+     *
+     * @param connection The connection to the client.
+     */
+    ServerClient(NioConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Gets the connection to the client.
+     *
+     * @return The connection.
+     */
+    public NioConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Gets the host name that the client introduced itself with.
+     *
+     * @return The client's host name, or null if it hasn't introduced itself yet.
+     */
+    public String getHostName() {
+        return hostName;
+    }
+
+    /**
+     * Sets the host name of the client.
+     *
+     * @param hostName The client's host name.
+     */
+    void setHostName(String hostName) {
+        this.hostName = hostName;
+    }
+
+    /**
+     * Gets the game that the client asked to play.
+     *
+     * @return The name of the game, or null if the client hasn't asked to play.
+     */
+    public String getRequestedGame() {
+        return requestedGame;
+    }
+
+    /**
+     * Sets the game that the client asked to play.
+     *
+     * @param requestedGame The name of the game.
+     */
+    void setRequestedGame(String requestedGame) {
+        this.requestedGame = requestedGame;
+    }
+
+    /**
+     * Gets the match that the client is playing in.
+     *
+     * @return The match, or null if not playing.
+     */
+    public ServerMatch getMatch() {
+        return match;
+    }
+
+    /**
+     * Sets the match that the client is playing in.
+     *
+     * @param match The match, or null if not playing.
+     */
+    void setMatch(ServerMatch match) {
+        this.match = match;
+    }
+}
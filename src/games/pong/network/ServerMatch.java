@@ -0,0 +1,249 @@
+package games.pong.network;
+
+import games.pong.EndReason;
+import games.pong.Pong;
+import games.pong.PongEvent;
+import games.pong.pieces.Paddle;
+import games.pong.pieces.PongBall;
+import games.pong.pieces.Side;
+import games.pong.players.Action;
+import games.pong.players.PongPlayer;
+import games.pong.players.PongRemotePlayer;
+import network.party.network.HostStatus;
+import network.party.network.NetworkMessage;
+
+import java.util.function.Consumer;
+
+/**
+ * A game of pong that a {@link PongServer} runs for two of its clients. The game here is the only one that counts:
+ * the clients only send their actions, and are sent back the state of the game.
+ * Every client is shown the game as if it were playing on the left, so the state sent to the client on the right is
+ * mirrored. That way a client plays the same whichever side of the server's game it is on.
+ * Each client is sent its own stream of snapshots, written relative to the last one that the client acknowledged.
+ * The game is stepped on the server's tick thread, and anything from the clients is posted to that thread.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class ServerMatch {
+    private static final PongEvent.EventType[] BROADCAST_EVENTS = {
+            PongEvent.EventType.GAME_BEGUN,
+            PongEvent.EventType.GAME_ENDED,
+            PongEvent.EventType.PLAYER_SCORED,
+            PongEvent.EventType.BALL_HIT_PADDLE,
+            PongEvent.EventType.PADDLE_MOVED_UP,
+            PongEvent.EventType.PADDLE_MOVED_DOWN,
+            PongEvent.EventType.PADDLE_STOPPED
+    };
+
+    private final Pong game = new Pong();
+    private final ServerClient leftClient, rightClient;
+    private final PongRemotePlayer leftPlayer, rightPlayer;
+    private final SnapshotEncoder leftSnapshots = new SnapshotEncoder(), rightSnapshots = new SnapshotEncoder();
+    private final Consumer<ServerMatch> endListener;
+    // Whether each client has its game ready to begin. Only used on the tick thread.
+    private boolean leftReady, rightReady;
+
+    /**
+     * Instantiates a new match between two clients. It doesn't begin until both clients are ready.
+     *
+     * @param leftClient  The client playing on the left of the server's game.
+     * @param rightClient The client playing on the right of the server's game.
+     * @param endListener Called on the tick thread once the match has ended, for whatever reason.
+     */
+    ServerMatch(ServerClient leftClient, ServerClient rightClient, Consumer<ServerMatch> endListener) {
+        this.leftClient = leftClient;
+        this.rightClient = rightClient;
+        this.endListener = endListener;
+
+        leftPlayer = new PongRemotePlayer(leftClient.getHostName());
+        rightPlayer = new PongRemotePlayer(rightClient.getHostName());
+        leftPlayer.setSide(Side.LEFT);
+        rightPlayer.setSide(Side.RIGHT);
+        game.setLocalPlayer(leftPlayer);
+        game.setPlayer2(rightPlayer);
+        game.initialize();
+        game.addEventListener(this::gameUpdated, BROADCAST_EVENTS);
+    }
+
+    /**
+     * Gets the client playing on the left.
+     *
+     * @return The left client.
+     */
+    public ServerClient getLeftClient() {
+        return leftClient;
+    }
+
+    /**
+     * Gets the client playing on the right.
+     *
+     * @return The right client.
+     */
+    public ServerClient getRightClient() {
+        return rightClient;
+    }
+
+    /**
+     * Runs the game up to the current time. Must only be called on the tick thread.
+     *
+     * @param sendState True to send the state of the game to both clients after stepping.
+     */
+    void step(boolean sendState) {
+        game.renderTick();
+        if (sendState && game.hasBegun() && !game.isEnded()) {
+            broadcast(null);
+        }
+    }
+
+    /**
+     * Applies an action taken by one of the clients.
+     *
+     * @param client   The client.
+     * @param action   The client's new action.
+     * @param sequence The sequence number of the input.
+     * @param frame    The frame of the client's game on which the client applied the input.
+     */
+    void input(ServerClient client, Action action, final int sequence, final long frame) {
+        final PongRemotePlayer player = getPlayer(client);
+        game.post(() -> {
+            // Inputs arrive in order, so anything older has been applied already.
+            if (sequence > player.getInputSequence()) {
+                game.applyAction(player, action);
+                player.inputApplied(sequence, frame, game.getTickCount());
+            }
+        });
+    }
+
+    /**
+     * Records that one of the clients received a snapshot. May be called from any one thread.
+     *
+     * @param client   The client.
+     * @param sequence The sequence number of the last snapshot that the client received.
+     */
+    void acknowledge(ServerClient client, final int sequence) {
+        ((client == leftClient) ? leftSnapshots : rightSnapshots).acknowledge(sequence);
+    }
+
+    /**
+     * Records that one of the clients has its game ready to begin. The match begins once both are.
+     *
+     * @param client The client.
+     */
+    void ready(ServerClient client) {
+        game.post(() -> {
+            if (client == leftClient) {
+                leftReady = true;
+            } else {
+                rightReady = true;
+            }
+            if (leftReady && rightReady && !game.hasBegun()) {
+                game.begin();
+            }
+        });
+    }
+
+    /**
+     * Ends the match because one of the clients left it.
+     *
+     * @param client The client that left.
+     */
+    void leave(ServerClient client) {
+        game.post(() -> game.end(EndReason.PLAYER_END));
+    }
+
+    /**
+     * Gets the player in the game that a client controls.
+     *
+     * @param client The client.
+     * @return The client's player.
+     */
+    private PongRemotePlayer getPlayer(ServerClient client) {
+        return (client == leftClient) ? leftPlayer : rightPlayer;
+    }
+
+    /**
+     * Called when something happens in the game that the clients should hear about right away.
+     *
+     * @param event The event.
+     */
+    private void gameUpdated(PongEvent event) {
+        broadcast(event.getType());
+        if (event.getType() == PongEvent.EventType.GAME_ENDED) {
+            endListener.accept(this);
+        }
+    }
+
+    /**
+     * Sends the state of the game to both clients.
+     *
+     * @param triggeringEvent The event that caused the state to be sent, or null if sent because it was time to.
+     */
+    private void broadcast(PongEvent.EventType triggeringEvent) {
+        send(leftClient, leftPlayer, rightPlayer, leftSnapshots, triggeringEvent, false);
+        send(rightClient, rightPlayer, leftPlayer, rightSnapshots, triggeringEvent, true);
+    }
+
+    /**
+     * Sends the state of the game to a client. The server speaks as the client's opponent, so the message is laid
+     * out just as if the opponent had sent it.
+     *
+     * @param client          The client.
+     * @param player          The client's player.
+     * @param opponent        The client's opponent.
+     * @param snapshots       Writes the snapshots sent to the client.
+     * @param triggeringEvent The event that caused the state to be sent, or null.
+     * @param mirror          True to flip the board so that the client sees itself on the left.
+     */
+    private void send(ServerClient client, PongRemotePlayer player, PongPlayer opponent, SnapshotEncoder snapshots,
+                      PongEvent.EventType triggeringEvent, boolean mirror) {
+        final PongNetworkMessage message = new PongNetworkMessage(System.currentTimeMillis());
+        message.setInGame(true);
+        message.setTriggeringEvent(triggeringEvent);
+        // Lets the client tell which of its inputs are in this state, and which it still has to predict.
+        message.setInputSequence(player.getInputSequence());
+        message.setInputFrame(player.getClientFrame(game.getTickCount()));
+        message.setLocalPlayerScore(opponent.getPoints());
+        message.setNetworkPlayerScore(player.getPoints());
+        message.setBallHitPaddle(triggeringEvent == PongEvent.EventType.BALL_HIT_PADDLE);
+        if (mirror) {
+            message.setBall(mirror(game.getBall()));
+            message.setLocalPlayerPaddle(mirror(game.getPaddle(opponent)));
+            message.setNetworkPlayerPaddle(mirror(game.getPaddle(player)));
+        } else {
+            message.setBall(game.getBall());
+            message.setLocalPlayerPaddle(game.getPaddle(opponent));
+            message.setNetworkPlayerPaddle(game.getPaddle(player));
+        }
+        client.getConnection().send(new NetworkMessage(HostStatus.IN_GAME, snapshots.encode(message)).toFrame());
+    }
+
+    /**
+     * Makes a copy of the ball, flipped to the other side of the board.
+     *
+     * @param ball The ball.
+     * @return The mirrored ball.
+     */
+    private PongBall mirror(PongBall ball) {
+        final PongBall mirrored = new PongBall(ball.getRadius());
+        mirrored.setX(game.getBoardWidth() - ball.getX(Side.RIGHT));
+        mirrored.setY(ball.getY());
+        mirrored.setVelocity(ball.getRisePerSecond(), -ball.getRunPerSecond());
+        return mirrored;
+    }
+
+    /**
+     * Makes a copy of a paddle, flipped to the other side of the board.
+     *
+     * @param paddle The paddle.
+     * @return The mirrored paddle.
+     */
+    private Paddle mirror(Paddle paddle) {
+        final Paddle mirrored = new Paddle(game.getBoardWidth() - paddle.getX(Side.RIGHT), paddle.getY(),
+                paddle.getWidth(), paddle.getHeight(), (paddle.getSide() == Side.LEFT) ? Side.RIGHT : Side.LEFT);
+        mirrored.setVelX(-paddle.getVelX());
+        mirrored.setVelY(paddle.getVelY());
+        return mirrored;
+    }
+}
@@ -0,0 +1,44 @@
+package games.pong.network;
+
+import java.io.IOException;
+
+/**
+ * Reads the snapshots of a game written by a {@link SnapshotEncoder}, filling in whatever was left out from the
+ * snapshot it was written relative to. The sequence number of the last snapshot read should be acknowledged to the
+ * sender, so that it knows which snapshots can be written relative to.
+ * Messages that aren't snapshots are read as they are. Messages must all be read on the same thread, in the order
+ * they were sent.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class SnapshotDecoder {
+    private final SnapshotRing received = new SnapshotRing();
+    private volatile int lastSequence;
+
+    /**
+     * Converts bytes to a message.
+     *
+     * @param bytes The bytes to be parsed.
+     * @return The message.
+     * @throws IOException Thrown if the bytes aren't a valid message, or the snapshot they were written relative to
+     *                     isn't known.
+     */
+    public PongNetworkMessage decode(byte[] bytes) throws IOException {
+        final PongNetworkMessage message = PongNetworkMessage.fromBytes(bytes, received);
+        if (message.getSnapshotSequence() > lastSequence) {
+            lastSequence = message.getSnapshotSequence();
+        }
+        return message;
+    }
+
+    /**
+     * Gets the sequence number of the last snapshot read, to be acknowledged to the sender.
+     *
+     * @return The sequence number, or 0 if none has been read.
+     */
+    public int getLastSequence() {
+        return lastSequence;
+    }
+}
@@ -0,0 +1,53 @@
+package games.pong.network;
+
+/**
+ * Writes the snapshots of a game that are sent to one receiver, leaving out whatever hasn't changed. Each snapshot is
+ * numbered, and the receiver acknowledges the last one it got. The ball and paddles in each new snapshot are then
+ * written relative to that one, with a mask of which fields changed, so a snapshot where only a paddle's velocity
+ * changed costs a few bytes rather than every field of every piece.
+ * Only snapshots that the receiver acknowledged are used as baselines, so snapshots that are never sent, such as ones
+ * replaced in the outgoing queue by newer ones, don't matter. If the acknowledged snapshot is too old to still be
+ * kept, every field is sent.
+ * Snapshots must all be written on the same thread, but acknowledgements may come from one other thread.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class SnapshotEncoder {
+    private final SnapshotRing sent = new SnapshotRing();
+    private final int[] fields = new int[PongNetworkMessage.FIELD_COUNT];
+    private int lastSequence;
+    private volatile int acknowledged;
+
+    /**
+     * Numbers a message as the next snapshot, and converts it to bytes relative to the last acknowledged snapshot.
+     *
+     * @param message The message.
+     * @return The binary representation of the message.
+     */
+    public byte[] encode(PongNetworkMessage message) {
+        final int sequence = ++lastSequence;
+        final int baseline = acknowledged, slot = sent.find(baseline);
+        message.setSnapshotSequence(sequence);
+        message.setBaselineSequence((slot < 0) ? 0 : baseline);
+
+        final int present = message.getFields(fields);
+        final byte[] bytes = (slot < 0) ? message.toBytes(fields, present, null, 0)
+                : message.toBytes(fields, present, sent.getFields(slot), sent.getPresent(slot));
+        // Done after writing, since the baseline might be in the slot that this snapshot replaces.
+        sent.add(sequence, fields, present);
+        return bytes;
+    }
+
+    /**
+     * Records that the receiver got a snapshot, so that later snapshots can be written relative to it.
+     *
+     * @param sequence The sequence number of the snapshot.
+     */
+    public void acknowledge(final int sequence) {
+        if (sequence > acknowledged) {
+            acknowledged = sequence;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package games.pong.network;
+
+/**
+ * The fields of the last few snapshots of a game, either sent or received, so that later snapshots can be written
+ * relative to them. Each snapshot is kept in the slot given by its sequence number, so a newer snapshot replaces
+ * whichever one was in its slot.
+ * Nothing is allocated once the ring is made.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+class SnapshotRing {
+    private static final int CAPACITY = 32;
+
+    private final int[] sequences = new int[CAPACITY], presents = new int[CAPACITY];
+    private final int[][] fields = new int[CAPACITY][PongNetworkMessage.FIELD_COUNT];
+
+    /**
+     * Adds a snapshot, copying its fields.
+     *
+     * @param sequence The sequence number of the snapshot.
+     * @param values   The fields of the snapshot.
+     * @param present  The flags of the pieces that the snapshot has.
+     */
+    void add(final int sequence, int[] values, final int present) {
+        final int slot = Math.floorMod(sequence, CAPACITY);
+        sequences[slot] = sequence;
+        presents[slot] = present;
+        System.arraycopy(values, 0, fields[slot], 0, PongNetworkMessage.FIELD_COUNT);
+    }
+
+    /**
+     * Finds a snapshot.
+     *
+     * @param sequence The sequence number of the snapshot.
+     * @return The slot that the snapshot is in, or -1 if it isn't kept.
+     */
+    int find(final int sequence) {
+        final int slot = Math.floorMod(sequence, CAPACITY);
+        return (sequence != 0 && sequences[slot] == sequence) ? slot : -1;
+    }
+
+    /**
+     * Gets the fields of the snapshot in a slot. They mustn't be changed.
+     *
+     * @param slot The slot, from {@link #find(int)}.
+     * @return The fields.
+     */
+    int[] getFields(final int slot) {
+        return fields[slot];
+    }
+
+    /**
+     * Gets the flags of the pieces that the snapshot in a slot has.
+     *
+     * @param slot The slot, from {@link #find(int)}.
+     * @return The flags of the pieces.
+     */
+    int getPresent(final int slot) {
+        return presents[slot];
+    }
+}
@@ -0,0 +1,54 @@
+package games.pong.players;
+
+/**
+ * An input that a {@link PongHostedPlayer} sent to the server and applied to the local game, but which the server
+ * hasn't said it applied yet.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+class PendingInput {
+    private final int sequence;
+    private final long frame;
+    private final Action action;
+
+    /**
+     * Instantiates a new pending input.
+     *
+     * @param sequence The sequence number of the input.
+     * @param frame    The frame of the local game on which the input was applied.
+     * @param action   The action that the local player took.
+     */
+    PendingInput(final int sequence, final long frame, Action action) {
+        this.sequence = sequence;
+        this.frame = frame;
+        this.action = action;
+    }
+
+    /**
+     * Gets the sequence number of the input.
+     *
+     * @return The sequence number.
+     */
+    int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the frame of the local game on which the input was applied.
+     *
+     * @return The frame.
+     */
+    long getFrame() {
+        return frame;
+    }
+
+    /**
+     * Gets the action that the local player took.
+     *
+     * @return The action.
+     */
+    Action getAction() {
+        return action;
+    }
+}
@@ -11,12 +11,22 @@ import games.pong.pieces.Side;
  * at that position.
  */
 public class PongAdvancedBot extends PongBot {
+    private static final PongEvent.EventType[] EVENT_TYPES = {
+            PongEvent.EventType.PLAYER_SCORED,
+            PongEvent.EventType.BALL_HIT_PADDLE
+    };
+
     @Override
     public String getName() {
         return "Advanced Bot " + getSide();
     }
 
 
+    @Override
+    protected PongEvent.EventType[] getEventTypes() {
+        return EVENT_TYPES;
+    }
+
     /**
      * Called when there is an event in the pong game.
      *
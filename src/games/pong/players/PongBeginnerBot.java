@@ -32,4 +32,10 @@ public class PongBeginnerBot extends PongBot {
         setGoTo(game.getBall().getY(Side.CENTER));
         super.runGoTo();
     }
+
+    @Override
+    public long getNanosUntilActionChange() {
+        // The target follows the ball, so it could change at any moment.
+        return 0;
+    }
 }
@@ -56,27 +56,75 @@ public abstract class PongBot implements PongPlayer {
      */
     protected abstract void pongEvent(PongEvent pongEvent);
 
+    /**
+     * Gets the types of events that the bot wants {@link #pongEvent(PongEvent)} to be called for.
+     *
+     * @return The types of events the bot listens to. All of them by default.
+     */
+    protected PongEvent.EventType[] getEventTypes() {
+        return PongEvent.EventType.values();
+    }
+
     /**
      * Runs the bot's logic every tick.
      */
     protected void runGoTo() {
         // If we have a target, do logic to try and go to the target.
         if (hasTarget()) {
+            setAction(determineAction());
+        }
+    }
+
+    /**
+     * Determines the action that will bring the paddle to the target.
+     *
+     * @return The action the paddle should take to reach the target.
+     */
+    protected Action determineAction() {
+        final Paddle thisPaddle = game.getPaddle(this);
+        final double paddleY = thisPaddle.getY(Side.CENTER);
+        final Action action;
+        // If the paddle's y is larger than the target y by enough of a factor, move down.
+        if (paddleY - targetY > thisPaddle.getHeight() / PADDLE_HEIGHT_DIVISOR) {
+            action = Action.MOVE_DOWN;
+        }
+        // If the paddle's y is smaller than the target y by enough of a factor, move up.
+        else if (paddleY - targetY < -thisPaddle.getHeight() / PADDLE_HEIGHT_DIVISOR) {
+            action = Action.MOVE_UP;
+        }
+        // Otherwise just stop moving.
+        else {
+            action = Action.STOP;
+        }
+        return action;
+    }
+
+    /**
+     * Determines how long it will be until the paddle comes close enough to the target that the bot stops it.
+     * The target only changes on game events, so between them this is the only time the bot's action can change.
+     *
+     * @return The time until the bot's action may change, in nanoseconds.
+     */
+    @Override
+    public long getNanosUntilActionChange() {
+        long nanos;
+        if (!hasTarget()) {
+            nanos = Long.MAX_VALUE;
+        } else if (determineAction() != oldAction) {
+            nanos = 0;
+        } else {
             final Paddle thisPaddle = game.getPaddle(this);
-            final double paddleY = thisPaddle.getY(Side.CENTER);
-            // If the paddle's y is larger than the target y by enough of a factor, move down.
-            if (paddleY - targetY > thisPaddle.getHeight() / PADDLE_HEIGHT_DIVISOR) {
-                setAction(Action.MOVE_DOWN);
-            }
-            // If the paddle's y is smaller than the target y by enough of a factor, move up.
-            else if (paddleY - targetY < -thisPaddle.getHeight() / PADDLE_HEIGHT_DIVISOR) {
-                setAction(Action.MOVE_UP);
-            }
-            // Otherwise just stop moving.
-            else {
-                setAction(Action.STOP);
+            final double speed = Math.abs(thisPaddle.getVelYNanos());
+            if (speed == 0 || oldAction == Action.STOP) {
+                // Nothing is moving, so nothing will change until the target does.
+                nanos = Long.MAX_VALUE;
+            } else {
+                final double distance = Math.abs(thisPaddle.getY(Side.CENTER) - targetY)
+                        - thisPaddle.getHeight() / PADDLE_HEIGHT_DIVISOR;
+                nanos = (long) Math.max(distance / speed, 0);
             }
         }
+        return nanos;
     }
 
     /**
@@ -95,7 +143,7 @@ public abstract class PongBot implements PongPlayer {
     public void setGame(Pong game) {
         this.game = game;
         this.game.setOnTick(this::runGoTo);
-        this.game.addEventListener(this::pongEvent);
+        this.game.addEventListener(this::pongEvent, getEventTypes());
         setGoTo(this.game.getBoardHeight() / 2 + 5);
     }
 
@@ -0,0 +1,346 @@
+package games.pong.players;
+
+import games.player.NetworkPlayer;
+import games.pong.EndReason;
+import games.pong.Pong;
+import games.pong.PongEvent;
+import games.pong.network.InterpolationBuffer;
+import games.pong.network.PongNetworkMessage;
+import games.pong.network.SnapshotDecoder;
+import games.pong.pieces.Paddle;
+import games.pong.pieces.PongBall;
+import games.pong.pieces.Side;
+import network.party.network.HostStatus;
+import network.party.network.NetworkMessage;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.BiConsumer;
+
+/**
+ * Represents the opponent in a game of pong run by a {@link games.pong.network.PongServer}. The server's game is the
+ * only one that counts, so this player sends it the local player's actions and copies whatever state it sends back
+ * into the local game. The local game still runs in between, to keep things moving until the next state arrives,
+ * but it never decides who scores.
+ * The local player's actions are applied to the local game right away, so that the paddle moves as soon as a key is
+ * pressed, however far away the server is. Each one is numbered, and kept until the server says it has applied it.
+ * When state arrives, the local paddle is put where the server says, and then every input that the server hasn't
+ * applied yet is played over again on top of it, bringing the paddle back up to the present.
+ * The ball and the other player's paddle are shown a moment in the past instead, blending between the states the
+ * server sent, so that they move smoothly however unevenly the states arrive.
+ * Every state is acknowledged, so that the server can send just what changed since the last one that arrived.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public class PongHostedPlayer extends NetworkPlayer implements PongPlayer {
+    private Pong game;
+    private Side side;
+    private int score;
+    // Name of the other player.
+    private String hostName;
+    // True once the server has said that the game ended, so there's no need to tell it.
+    private boolean endedByServer;
+    // Most ticks to play over again when reconciling, in case the server has fallen far behind.
+    private static final int MAX_REPLAY_TICKS = Pong.TICK_RATE;
+    // The local player's inputs that the server hasn't applied yet, oldest first.
+    private final Deque<PendingInput> pendingInputs = new ArrayDeque<>();
+    private int lastInputSequence;
+    private final InterpolationBuffer paddleBuffer = new InterpolationBuffer();
+    private final InterpolationBuffer ballBuffer = new InterpolationBuffer();
+    private final SnapshotDecoder snapshots = new SnapshotDecoder();
+
+    private static final PongEvent.EventType[] EVENT_FILTER = {
+            PongEvent.EventType.GAME_READY,
+            PongEvent.EventType.GAME_ENDED,
+            PongEvent.EventType.PADDLE_MOVED_DOWN,
+            PongEvent.EventType.PADDLE_MOVED_UP,
+            PongEvent.EventType.PADDLE_STOPPED
+    };
+
+    @Override
+    public void setOnActionChanged(BiConsumer<PongPlayer, Action> listener) {
+        // Only the server moves the opponent's paddle.
+    }
+
+    @Override
+    public Side getSide() {
+        return side;
+    }
+
+    @Override
+    public void setSide(Side side) {
+        this.side = side;
+    }
+
+    @Override
+    public void setPoints(int points) {
+        this.score = points;
+    }
+
+    @Override
+    public int getPoints() {
+        return score;
+    }
+
+    @Override
+    public void setGame(Pong game) {
+        this.game = game;
+        // Players only score when the server says so.
+        game.setLocalScoring(false);
+        game.addEventListener(this::gameUpdated, EVENT_FILTER);
+        game.setOnTick(this::interpolate);
+    }
+
+    @Override
+    public String getName() {
+        return hostName;
+    }
+
+    @Override
+    public boolean canBeScoredOn() {
+        return true;
+    }
+
+    /**
+     * Receives the state of the game from the server.
+     *
+     * @param data The data received.
+     */
+    @Override
+    public void receiveData(NetworkMessage data) {
+        try {
+            final PongNetworkMessage gameData = snapshots.decode(data.getGameData());
+            final long arrivalTime = game.getClock().nanoTime();
+            if (!gameData.isInput()) {
+                game.post(() -> receiveState(data, gameData, arrivalTime));
+            }
+            if (gameData.getSnapshotSequence() != 0) {
+                acknowledge();
+            }
+        } catch (IOException e) {
+            System.err.println("Received malformed game data.");
+        }
+    }
+
+    /**
+     * Replaces the state of the local game with the state sent by the server.
+     *
+     * @param data        The network message received.
+     * @param gameData    The game data from the message.
+     * @param arrivalTime The time that the message arrived, in nanoseconds by the game's clock.
+     */
+    private void receiveState(NetworkMessage data, PongNetworkMessage gameData, final long arrivalTime) {
+        hostName = data.getHostName();
+        final PongEvent.EventType triggeringEvent = gameData.getTriggeringEvent();
+        if (triggeringEvent == PongEvent.EventType.GAME_BEGUN && !game.hasBegun()) {
+            game.begin();
+        }
+
+        // Scores first, since scoring puts the ball back in the middle.
+        final PongPlayer localPlayer = game.getLocalPlayer();
+        if (gameData.getLocalPlayerScore() != getPoints()) {
+            game.playerScored(this, gameData.getLocalPlayerScore());
+        }
+        if (gameData.getNetworkPlayerScore() != localPlayer.getPoints()) {
+            game.playerScored(localPlayer, gameData.getNetworkPlayerScore());
+        }
+        // After a point the ball starts over in the middle, rather than travelling there.
+        if (triggeringEvent == PongEvent.EventType.PLAYER_SCORED) {
+            ballBuffer.clear();
+        }
+
+        final long sent = gameData.timestamp();
+        if (gameData.getBall() != null) {
+            final PongBall networkBall = gameData.getBall();
+            ballBuffer.add(sent, arrivalTime, networkBall.getX(), networkBall.getY(), networkBall.getRunPerSecond(),
+                    networkBall.getRisePerSecond());
+        }
+        if (gameData.getLocalPlayerPaddle() != null) {
+            final Paddle networkPaddle = gameData.getLocalPlayerPaddle();
+            paddleBuffer.add(sent, arrivalTime, networkPaddle.getX(), networkPaddle.getY(), networkPaddle.getVelX(),
+                    networkPaddle.getVelY());
+        }
+        interpolate();
+        if (gameData.getNetworkPlayerPaddle() != null) {
+            reconcile(gameData.getNetworkPlayerPaddle(), gameData.getInputSequence(), gameData.getInputFrame());
+        }
+        // The ball leaves whichever paddle it hit, so the direction it's going tells which one that was.
+        if (gameData.isBallHitPaddle()) {
+            game.callBallCollided((gameData.getBall().getRunPerSecond() > 0) ? game.getLeftPaddle()
+                    : game.getRightPaddle());
+        }
+
+        if (triggeringEvent == PongEvent.EventType.GAME_ENDED) {
+            endedByServer = true;
+            game.end(EndReason.PLAYER_END);
+        }
+    }
+
+    /**
+     * Puts the local paddle where the server says it is, and then plays over again whatever inputs the server hasn't
+     * applied yet, to predict where it is now.
+     *
+     * @param serverPaddle The local player's paddle, as the server sees it.
+     * @param acknowledged The sequence number of the last input that the server applied.
+     * @param serverFrame  The frame of the local game that the server's state is as of.
+     */
+    private void reconcile(Paddle serverPaddle, final int acknowledged, final long serverFrame) {
+        while (!pendingInputs.isEmpty() && pendingInputs.peekFirst().getSequence() <= acknowledged) {
+            pendingInputs.pollFirst();
+        }
+        // Until the server has applied an input, there's no telling which frame its state is as of.
+        if (acknowledged > 0 || pendingInputs.isEmpty()) {
+            final PongPlayer localPlayer = game.getLocalPlayer();
+            final Paddle paddle = game.getPaddle(localPlayer);
+            copyPaddle(serverPaddle, paddle);
+
+            long frame = (acknowledged > 0) ? serverFrame : game.getTickCount();
+            // The inputs were sent already, so playing them over again mustn't send them again.
+            game.setEventsSuppressed(true);
+            for (PendingInput input : pendingInputs) {
+                frame = replay(paddle, frame, input.getFrame());
+                game.applyAction(localPlayer, input.getAction());
+            }
+            replay(paddle, frame, game.getTickCount());
+            game.setEventsSuppressed(false);
+        }
+    }
+
+    /**
+     * Moves a paddle on through the given frames of the local game.
+     *
+     * @param paddle    The paddle.
+     * @param fromFrame The frame that the paddle is at.
+     * @param toFrame   The frame to move the paddle up to.
+     * @return The frame that the paddle is now at.
+     */
+    private long replay(Paddle paddle, final long fromFrame, final long toFrame) {
+        for (long frame = Math.max(fromFrame, toFrame - MAX_REPLAY_TICKS); frame < toFrame; frame++) {
+            game.renderPaddleTick(paddle, Pong.TICK_NANOS);
+        }
+        return Math.max(fromFrame, toFrame);
+    }
+
+    /**
+     * Moves the ball and the other player's paddle to where they were a moment ago, going by the server's states.
+     */
+    private void interpolate() {
+        final long now = game.getClock().nanoTime();
+        if (ballBuffer.sample(now)) {
+            final PongBall ball = game.getBall();
+            ball.setX(ballBuffer.getX());
+            ball.setY(ballBuffer.getY());
+            ball.setVelocity(ballBuffer.getVelY(), ballBuffer.getVelX());
+        }
+        if (paddleBuffer.sample(now)) {
+            final Paddle paddle = game.getPaddle(this);
+            paddle.setX(paddleBuffer.getX());
+            paddle.setY(paddleBuffer.getY());
+            paddle.setVelX(paddleBuffer.getVelX());
+            paddle.setVelY(paddleBuffer.getVelY());
+        }
+    }
+
+    /**
+     * Copies the position and velocity of one paddle onto another.
+     *
+     * @param source      The paddle to copy from.
+     * @param destination The paddle to copy to.
+     */
+    private static void copyPaddle(Paddle source, Paddle destination) {
+        destination.setX(source.getX());
+        destination.setY(source.getY());
+        destination.setVelX(source.getVelX());
+        destination.setVelY(source.getVelY());
+    }
+
+    @Override
+    public void hostDisconnecting() {
+        game.post(() -> game.end(EndReason.PLAYER_DISCONNECT));
+    }
+
+    /**
+     * Called when something about the pong game is updated that the server needs to know about.
+     *
+     * @param changeEvent The change event.
+     */
+    private void gameUpdated(PongEvent changeEvent) {
+        final PongEvent.EventType type = changeEvent.getType();
+        if (type == PongEvent.EventType.GAME_READY ||
+                (type == PongEvent.EventType.GAME_ENDED && game.getEndReason() == EndReason.PLAYER_END
+                        && !endedByServer)) {
+            PongNetworkMessage message = new PongNetworkMessage(System.currentTimeMillis());
+            message.setInGame(true);
+            message.setTriggeringEvent(type);
+            send(message);
+        } else if (type != PongEvent.EventType.GAME_ENDED &&
+                changeEvent.getPaddle() == game.getPaddle(game.getLocalPlayer())) {
+            // Only the local player's actions go to the server, which decides where the paddle really is.
+            final PendingInput input = new PendingInput(++lastInputSequence, game.getTickCount(), getAction(type));
+            pendingInputs.addLast(input);
+            PongNetworkMessage message = new PongNetworkMessage(System.currentTimeMillis());
+            message.setInGame(true);
+            message.setAction(input.getAction());
+            message.setInputSequence(input.getSequence());
+            message.setInputFrame(input.getFrame());
+            send(message);
+        }
+    }
+
+    /**
+     * Gets the action that a paddle event was caused by.
+     *
+     * @param type The type of the paddle event.
+     * @return The action.
+     */
+    private static Action getAction(PongEvent.EventType type) {
+        Action action;
+        switch (type) {
+            case PADDLE_MOVED_UP:
+                action = Action.MOVE_UP;
+                break;
+            case PADDLE_MOVED_DOWN:
+                action = Action.MOVE_DOWN;
+                break;
+            default:
+                action = Action.STOP;
+                break;
+        }
+        return action;
+    }
+
+    /**
+     * Tells the server which of its states arrived last. Only the newest acknowledgement waiting to be sent matters.
+     */
+    private void acknowledge() {
+        final PongNetworkMessage message = new PongNetworkMessage(System.currentTimeMillis());
+        message.setInGame(true);
+        send(message, true);
+    }
+
+    /**
+     * Sends a message to the server.
+     *
+     * @param message The message to be sent.
+     */
+    private void send(PongNetworkMessage message) {
+        send(message, false);
+    }
+
+    /**
+     * Sends a message to the server, along with which of its states arrived last.
+     *
+     * @param message    The message to be sent.
+     * @param latestOnly True if the message may be replaced by a newer one before it's sent.
+     */
+    private void send(PongNetworkMessage message, final boolean latestOnly) {
+        if (gameDataListener != null) {
+            message.setSnapshotAck(snapshots.getLastSequence());
+            final NetworkMessage sending = new NetworkMessage(HostStatus.IN_GAME, message.toBytes());
+            sending.setLatestOnly(latestOnly);
+            gameDataListener.accept(sending);
+        }
+    }
+}
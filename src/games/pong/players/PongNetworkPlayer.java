@@ -4,14 +4,19 @@ import games.player.NetworkPlayer;
 import games.pong.EndReason;
 import games.pong.Pong;
 import games.pong.PongEvent;
+import games.pong.network.InterpolationBuffer;
 import games.pong.network.PongNetworkMessage;
+import games.pong.network.SnapshotDecoder;
+import games.pong.network.SnapshotEncoder;
 import games.pong.pieces.Paddle;
 import games.pong.pieces.PongBall;
 import games.pong.pieces.Side;
+import network.party.ClockSync;
+import network.party.PartyHandler;
+import network.party.network.HostStatus;
 import network.party.network.NetworkMessage;
 
-import java.util.Arrays;
-import java.util.List;
+import java.io.IOException;
 import java.util.function.BiConsumer;
 
 /**
@@ -27,6 +32,21 @@ public class PongNetworkPlayer extends NetworkPlayer implements PongPlayer {
     // Name of the other host.
     private String hostName;
     private boolean allowScoringOn;
+    // States are sent when the other player's paddle changes, and again every so often while it moves, so only jitter
+    // needs covering. A paddle whose states stop coming only carries on for a little while.
+    private static final long INTERPOLATION_DELAY = 50_000_000L;
+    private final InterpolationBuffer paddleBuffer = new InterpolationBuffer(INTERPOLATION_DELAY,
+            InterpolationBuffer.DEFAULT_MAX_EXTRAPOLATION);
+    // Longest time (in nanoseconds) to go without sending a state while the local paddle moves, well short of how long
+    // the other player carries the paddle on for.
+    private static final long STATE_REFRESH_INTERVAL = 100_000_000L;
+    // When the last state was sent, in nanoseconds by the game's clock.
+    private long lastStateSent;
+    // Longest time (in milliseconds) to move the ball on by when the other player hits it, in case of a bad clock.
+    private static final long MAX_LATENCY = 1000;
+    // Each player's messages are written relative to the last one the other player acknowledged in its own messages.
+    private final SnapshotEncoder sentSnapshots = new SnapshotEncoder();
+    private final SnapshotDecoder receivedSnapshots = new SnapshotDecoder();
 
     private static final PongEvent.EventType[] EVENT_FILTER = {
             PongEvent.EventType.BALL_HIT_PADDLE,
@@ -38,20 +58,12 @@ public class PongNetworkPlayer extends NetworkPlayer implements PongPlayer {
             PongEvent.EventType.PADDLE_STOPPED,
             PongEvent.EventType.PLAYER_SCORED
     };
-    private final List<PongEvent.EventType> typeFilter;
 
     /**
      * Set to true if the other player has entered the game, false otherwise.
      */
     private boolean otherPlayerBeganGame;
 
-    /**
-     * Initializes a new pong network player.
-     */
-    public PongNetworkPlayer() {
-        typeFilter = Arrays.asList(EVENT_FILTER);
-    }
-
     @Override
     public void setOnActionChanged(BiConsumer<PongPlayer, Action> listener) {
 
@@ -80,7 +92,8 @@ public class PongNetworkPlayer extends NetworkPlayer implements PongPlayer {
     @Override
     public void setGame(Pong game) {
         this.game = game;
-        game.addEventListener(this::gameUpdated);
+        game.addEventListener(this::gameUpdated, EVENT_FILTER);
+        game.setOnTick(this::tick);
 
     }
 
@@ -101,8 +114,31 @@ public class PongNetworkPlayer extends NetworkPlayer implements PongPlayer {
      */
     @Override
     public void receiveData(NetworkMessage data) {
-        final PongNetworkMessage gameData = PongNetworkMessage.fromJsonString(data.getGameData());
-        final long timeBetweenTickAndNetwork = Math.max(getTimeStamp() - gameData.timestamp(), 0);
+        try {
+            final PongNetworkMessage gameData = receivedSnapshots.decode(data.getGameData());
+            final long arrivalTime = game.getClock().nanoTime();
+            sentSnapshots.acknowledge(gameData.getSnapshotAck());
+            // Inputs only mean something to a rollback game, and don't carry any state to be copied.
+            if (!gameData.isInput()) {
+                game.post(() -> receiveState(data, gameData, arrivalTime));
+            }
+        } catch (IOException e) {
+            System.err.println("Received malformed game data.");
+        }
+    }
+
+    /**
+     * Brings the game up to date with the state sent by the other player.
+     *
+     * @param data        The network message received.
+     * @param gameData    The game data from the message.
+     * @param arrivalTime The time that the message arrived, in nanoseconds by the game's clock.
+     */
+    private void receiveState(NetworkMessage data, PongNetworkMessage gameData, final long arrivalTime) {
+        // How long ago the other player sent the message. Without a shared clock, there's no telling.
+        final ClockSync clock = PartyHandler.getClock();
+        final long timeBetweenTickAndNetwork = clock.isSynchronized()
+                ? Math.min(Math.max(getTimeStamp() - gameData.timestamp(), 0), MAX_LATENCY) * 1_000_000L : 0;
 
         hostName = data.getHostName();
         final PongEvent.EventType triggeringEvent = gameData.getTriggeringEvent();
@@ -136,17 +172,44 @@ public class PongNetworkPlayer extends NetworkPlayer implements PongPlayer {
             game.callBallCollided(game.getPaddle(this));
         }
 
-        // Always trust the other player for the positioning of their paddle.
-        Paddle gamePaddle = game.getPaddle(this), networkPaddle = gameData.getLocalPlayerPaddle();
-        gamePaddle.setX(networkPaddle.getX());
-        gamePaddle.setY(networkPaddle.getY());
-        gamePaddle.setVelX(networkPaddle.getVelX());
-        gamePaddle.setVelY(networkPaddle.getVelY());
+        // Always trust the other player for the positioning of their paddle, but smooth over when it arrived.
+        final Paddle networkPaddle = gameData.getLocalPlayerPaddle();
+        paddleBuffer.add(gameData.timestamp(), arrivalTime, networkPaddle.getX(), networkPaddle.getY(),
+                networkPaddle.getVelX(), networkPaddle.getVelY());
+        interpolate();
+    }
+
+    /**
+     * Called at the end of every tick of the game. Moves the other player's paddle, and reminds the other player where
+     * the local paddle is if it has been moving for a while since the last state was sent.
+     */
+    private void tick() {
+        interpolate();
+        final Paddle localPaddle = game.getPaddle(game.getLocalPlayer());
+        if (localPaddle.getVelY() != 0 && game.getClock().nanoTime() - lastStateSent >= STATE_REFRESH_INTERVAL) {
+            sendState(localPaddle.getVelY() > 0 ? PongEvent.EventType.PADDLE_MOVED_UP
+                    : PongEvent.EventType.PADDLE_MOVED_DOWN, false);
+        }
+    }
+
+    /**
+     * Moves the other player's paddle to where it was a moment ago, going by the states the other player sent, and
+     * keeps it on the board, since carrying it on past its last state could take it off the edge.
+     */
+    private void interpolate() {
+        if (paddleBuffer.sample(game.getClock().nanoTime())) {
+            final Paddle gamePaddle = game.getPaddle(this);
+            gamePaddle.setX(paddleBuffer.getX());
+            gamePaddle.setY(paddleBuffer.getY());
+            gamePaddle.setVelX(paddleBuffer.getVelX());
+            gamePaddle.setVelY(paddleBuffer.getVelY());
+            game.checkPaddleBounds(gamePaddle);
+        }
     }
 
     @Override
     public void hostDisconnecting() {
-        game.end(EndReason.PLAYER_DISCONNECT);
+        game.post(() -> game.end(EndReason.PLAYER_DISCONNECT));
     }
 
 
@@ -156,33 +219,83 @@ public class PongNetworkPlayer extends NetworkPlayer implements PongPlayer {
      * @param changeEvent The change event.
      */
     private void gameUpdated(PongEvent changeEvent) {
-        if (typeFilter.contains((changeEvent.getType()))) {
-            PongNetworkMessage message = new PongNetworkMessage(getTimeStamp());
-            PongPlayer localPlayer = game.getLocalPlayer();
-
-            message.setTriggeringEvent(changeEvent.getType());
-            message.setLocalPlayerScore(localPlayer.getPoints());
-            message.setNetworkPlayerScore(getPoints());
-            message.setBall(game.getBall());
-            message.setLocalPlayerPaddle(game.getPaddle(localPlayer));
-            message.setInGame(true);
-
-            // If the local player just hit the paddle, set that up in the message.
-            message.setBallHitPaddle(changeEvent.getType() == PongEvent.EventType.BALL_HIT_PADDLE &&
-                    changeEvent.getPaddle().getSide() == localPlayer.getSide());
-
-            final String sending = message.toJson();
-            // Send the data as a last step.
-            gameDataListener.accept(sending);
+        // If the local player just hit the paddle, set that up in the message.
+        sendState(changeEvent.getType(), changeEvent.getType() == PongEvent.EventType.BALL_HIT_PADDLE &&
+                changeEvent.getPaddle().getSide() == game.getLocalPlayer().getSide());
+    }
+
+    /**
+     * Sends the state of the game to the other client.
+     *
+     * @param triggeringEvent The type of event that caused the state to be sent.
+     * @param ballHitPaddle   True if the local player just hit the ball, false otherwise.
+     */
+    private void sendState(PongEvent.EventType triggeringEvent, final boolean ballHitPaddle) {
+        PongNetworkMessage message = new PongNetworkMessage(getTimeStamp());
+        PongPlayer localPlayer = game.getLocalPlayer();
+
+        message.setTriggeringEvent(triggeringEvent);
+        message.setLocalPlayerScore(localPlayer.getPoints());
+        message.setNetworkPlayerScore(getPoints());
+        message.setBall(game.getBall());
+        message.setLocalPlayerPaddle(game.getPaddle(localPlayer));
+        message.setInGame(true);
+        message.setBallHitPaddle(ballHitPaddle);
+
+        message.setSnapshotAck(receivedSnapshots.getLastSequence());
+        final NetworkMessage sending = new NetworkMessage(HostStatus.IN_GAME, sentSnapshots.encode(message));
+        // Every message holds the whole state, so a newer one replaces any that hasn't been sent yet, keeping the
+        // events that only the older one told about.
+        sending.setLatestOnly(true);
+        sending.setAttachment(message);
+        sending.setMerger(unsent -> merge(sending, message, unsent));
+        // Send the data as a last step.
+        lastStateSent = game.getClock().nanoTime();
+        gameDataListener.accept(sending);
+    }
+
+    /**
+     * Folds the events of an unsent message into the message replacing it, since the newer state doesn't tell about
+     * them. Called while the newer message is being sent, so on the game's thread.
+     *
+     * @param sending The network message replacing the unsent one.
+     * @param message The game data of the replacing message.
+     * @param unsent  The unsent network message.
+     * @return True if merged, false if both messages tell about an event, so both need to be sent.
+     */
+    private boolean merge(NetworkMessage sending, PongNetworkMessage message, NetworkMessage unsent) {
+        final PongNetworkMessage older = (PongNetworkMessage) unsent.getAttachment();
+        final boolean olderEvent = isOneShot(older.getTriggeringEvent());
+        final boolean merged = !(olderEvent && isOneShot(message.getTriggeringEvent()));
+        if (merged) {
+            if (olderEvent) {
+                message.setTriggeringEvent(older.getTriggeringEvent());
+            }
+            message.setBallHitPaddle(message.isBallHitPaddle() || older.isBallHitPaddle());
+            // Numbered again, since the snapshot it was first given is now never sent.
+            sending.setGameData(sentSnapshots.encode(message));
         }
+        return merged;
+    }
+
+    /**
+     * Determines if an event is something that happens once, which the other player has to be told about, rather
+     * than just a change of state that any newer state covers.
+     *
+     * @param type The type of the event.
+     * @return True if the other player must be told about the event, false otherwise.
+     */
+    private static boolean isOneShot(PongEvent.EventType type) {
+        return type == PongEvent.EventType.GAME_BEGUN || type == PongEvent.EventType.GAME_READY
+                || type == PongEvent.EventType.PLAYER_SCORED || type == PongEvent.EventType.GAME_ENDED;
     }
 
     /**
-     * Gets the timestamp to be used in network calls.
+     * Gets the timestamp to be used in network calls, from the clock shared with the other player.
      *
-     * @return The timestamp to be used in network calls.
+     * @return The timestamp to be used in network calls, in milliseconds.
      */
     private static long getTimeStamp() {
-        return System.currentTimeMillis() / 1000L;
+        return PartyHandler.getClock().currentTimeMillis();
     }
 }
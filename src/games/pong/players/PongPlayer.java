@@ -68,4 +68,15 @@ public interface PongPlayer {
      * @return True if allowed to be scored on, false otherwise.
      */
     boolean canBeScoredOn();
+
+    /**
+     * Determines how long the game can go on before this player might decide to change its action by itself.
+     * Simulations that skip ahead in time instead of ticking at a fixed rate use this to know when the player's logic
+     * needs to run. Players whose actions only come from outside of the game (keyboard, network) never need to run.
+     *
+     * @return The time until this player's action may change, in nanoseconds. 0 if it could change at any moment.
+     */
+    default long getNanosUntilActionChange() {
+        return Long.MAX_VALUE;
+    }
 }
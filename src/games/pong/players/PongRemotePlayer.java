@@ -0,0 +1,104 @@
+package games.pong.players;
+
+import games.pong.Pong;
+import games.pong.pieces.Side;
+
+import java.util.function.BiConsumer;
+
+/**
+ * A player in a game run by a {@link games.pong.network.PongServer}, whose actions come from a client over the
+ * network. The server applies each action to the game as it arrives, so this player never decides anything itself.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public class PongRemotePlayer implements PongPlayer {
+    private final String name;
+    private Side side;
+    private int points;
+    // The last input that the server applied: its sequence number, the client's frame, and the server's tick.
+    private int inputSequence;
+    private long inputFrame, inputTick;
+
+    /**
+     * Instantiates a new remote player.
+     *
+     * @param name The name that the client introduced itself with.
+     */
+    public PongRemotePlayer(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void setOnActionChanged(BiConsumer<PongPlayer, Action> listener) {
+        // The server applies the client's actions to the game itself.
+    }
+
+    @Override
+    public Side getSide() {
+        return side;
+    }
+
+    @Override
+    public void setSide(Side side) {
+        this.side = side;
+    }
+
+    @Override
+    public void setPoints(int points) {
+        this.points = points;
+    }
+
+    @Override
+    public int getPoints() {
+        return points;
+    }
+
+    @Override
+    public void setGame(Pong game) {
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean canBeScoredOn() {
+        // The server's game is the only one that decides scores.
+        return true;
+    }
+
+    /**
+     * Records an input from the client that the server just applied.
+     *
+     * @param sequence The sequence number of the input.
+     * @param frame    The frame of the client's game on which the client applied the input.
+     * @param tick     The tick of the server's game on which the server applied it.
+     */
+    public void inputApplied(final int sequence, final long frame, final long tick) {
+        inputSequence = sequence;
+        inputFrame = frame;
+        inputTick = tick;
+    }
+
+    /**
+     * Gets the sequence number of the last input from the client that the server applied.
+     *
+     * @return The sequence number, or 0 if none has been applied.
+     */
+    public int getInputSequence() {
+        return inputSequence;
+    }
+
+    /**
+     * Works out which frame of the client's game matches a tick of the server's game, going by when both applied the
+     * last input. Both games only count ticks that are simulated, so they keep in step.
+     *
+     * @param tick The tick of the server's game.
+     * @return The matching frame of the client's game.
+     */
+    public long getClientFrame(final long tick) {
+        return inputFrame + tick - inputTick;
+    }
+}
@@ -0,0 +1,171 @@
+package games.pong.players;
+
+import games.player.NetworkPlayer;
+import games.pong.EndReason;
+import games.pong.Pong;
+import games.pong.PongEvent;
+import games.pong.network.PongNetworkMessage;
+import games.pong.network.RollbackSession;
+import games.pong.pieces.Side;
+import network.party.network.HostStatus;
+import network.party.network.NetworkMessage;
+
+import java.io.IOException;
+import java.util.function.BiConsumer;
+
+/**
+ * Represents a network player of a pong game that uses rollback netcode. Only inputs are exchanged with the other
+ * player, along with the beginning and ending of the game. Everything else is simulated locally by the
+ * {@link RollbackSession}.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public class PongRollbackPlayer extends NetworkPlayer implements PongPlayer {
+    private Pong game;
+    private RollbackSession session;
+    private Side side;
+    private int score;
+    // Name of the other host.
+    private String hostName;
+
+    @Override
+    public void setOnActionChanged(BiConsumer<PongPlayer, Action> listener) {
+        // The session applies this player's inputs to the game itself.
+    }
+
+    @Override
+    public Side getSide() {
+        return side;
+    }
+
+    @Override
+    public void setSide(Side side) {
+        this.side = side;
+    }
+
+    @Override
+    public void setPoints(int points) {
+        this.score = points;
+    }
+
+    @Override
+    public int getPoints() {
+        return score;
+    }
+
+    @Override
+    public void setGame(Pong game) {
+        this.game = game;
+        game.addEventListener(this::gameUpdated, PongEvent.EventType.GAME_READY, PongEvent.EventType.GAME_BEGUN,
+                PongEvent.EventType.GAME_ENDED);
+    }
+
+    /**
+     * Sets the rollback session that runs the game.
+     *
+     * @param session The rollback session.
+     */
+    public void setSession(RollbackSession session) {
+        this.session = session;
+    }
+
+    @Override
+    public String getName() {
+        return hostName;
+    }
+
+    /**
+     * Both games play out the same from the same inputs, so each one can decide on its own who scored.
+     *
+     * @return True, always.
+     */
+    @Override
+    public boolean canBeScoredOn() {
+        return true;
+    }
+
+    /**
+     * Receives network data from the other player.
+     *
+     * @param data The data received.
+     */
+    @Override
+    public void receiveData(NetworkMessage data) {
+        try {
+            final PongNetworkMessage gameData = PongNetworkMessage.fromBytes(data.getGameData());
+            hostName = data.getHostName();
+            game.post(() -> receiveGameData(gameData));
+        } catch (IOException e) {
+            System.err.println("Received malformed game data.");
+        }
+    }
+
+    /**
+     * Passes on the data received from the other player to the session or the game.
+     *
+     * @param gameData The game data received.
+     */
+    private void receiveGameData(PongNetworkMessage gameData) {
+        if (gameData.isInput()) {
+            session.receiveRemoteInput(gameData.getInputFrame(), gameData.getAction(), gameData.getFrameAdvantage());
+        } else {
+            final PongEvent.EventType triggeringEvent = gameData.getTriggeringEvent();
+            // Whichever player is ready first, both games begin together.
+            if (triggeringEvent == PongEvent.EventType.GAME_READY ||
+                    triggeringEvent == PongEvent.EventType.GAME_BEGUN) {
+                session.begin();
+            } else if (triggeringEvent == PongEvent.EventType.GAME_ENDED) {
+                game.end(EndReason.PLAYER_END);
+            }
+        }
+    }
+
+    @Override
+    public void hostDisconnecting() {
+        game.post(() -> game.end(EndReason.PLAYER_DISCONNECT));
+    }
+
+    /**
+     * Sends the local player's input to the other player.
+     *
+     * @param frame          The frame from which the local player takes the action.
+     * @param action         The local player's action.
+     * @param frameAdvantage How many frames the local game is ahead of the other player's.
+     */
+    public void sendInput(final long frame, Action action, final int frameAdvantage) {
+        PongNetworkMessage message = new PongNetworkMessage(System.currentTimeMillis());
+        message.setInGame(true);
+        message.setInputFrame(frame);
+        message.setAction(action);
+        message.setFrameAdvantage(frameAdvantage);
+        send(message);
+    }
+
+    /**
+     * Called when something about the pong game is updated. Only the beginning of the game and the local player
+     * ending it are sent, since the other player's game works out everything else by itself.
+     *
+     * @param changeEvent The change event.
+     */
+    private void gameUpdated(PongEvent changeEvent) {
+        final PongEvent.EventType type = changeEvent.getType();
+        if (type != PongEvent.EventType.GAME_ENDED || game.getEndReason() == EndReason.PLAYER_END) {
+            PongNetworkMessage message = new PongNetworkMessage(System.currentTimeMillis());
+            message.setInGame(true);
+            message.setTriggeringEvent(type);
+            send(message);
+        }
+    }
+
+    /**
+     * Sends a message to the other player, if anything is listening for game data.
+     *
+     * @param message The message to be sent.
+     */
+    private void send(PongNetworkMessage message) {
+        if (gameDataListener != null) {
+            gameDataListener.accept(new NetworkMessage(HostStatus.IN_GAME, message.toBytes()));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package games.pong.simulation;
+
+import games.pong.pieces.Side;
+
+import java.util.List;
+
+/**
+ * Combined statistics of a batch of simulated pong matches.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public class BatchResult {
+    private final int matches;
+    private int leftWins, rightWins;
+    private long ticks, steps, paddleHits, rallies;
+    private final long elapsedNanos;
+
+    /**
+     * Combines the given match results into a batch result.
+     *
+     * @param results      The results of the matches in the batch.
+     * @param elapsedNanos The real (wall clock) time that it took to simulate the batch, in nanoseconds.
+     */
+    public BatchResult(List<MatchResult> results, long elapsedNanos) {
+        this.matches = results.size();
+        this.elapsedNanos = elapsedNanos;
+
+        for (MatchResult result : results) {
+            final Side winner = result.getWinner();
+            if (winner == Side.LEFT) {
+                leftWins++;
+            } else if (winner == Side.RIGHT) {
+                rightWins++;
+            }
+            ticks += result.getTicks();
+            steps += result.getSteps();
+            paddleHits += result.getPaddleHits();
+            rallies += result.getRallies();
+        }
+    }
+
+    /**
+     * Gets the number of matches that were played.
+     *
+     * @return The number of matches.
+     */
+    public int getMatches() {
+        return matches;
+    }
+
+    /**
+     * Gets the number of matches won by the player on the left.
+     *
+     * @return The left player's wins.
+     */
+    public int getLeftWins() {
+        return leftWins;
+    }
+
+    /**
+     * Gets the number of matches won by the player on the right.
+     *
+     * @return The right player's wins.
+     */
+    public int getRightWins() {
+        return rightWins;
+    }
+
+    /**
+     * Gets the number of matches that ended without a winner.
+     *
+     * @return The number of undecided matches.
+     */
+    public int getUndecided() {
+        return matches - leftWins - rightWins;
+    }
+
+    /**
+     * Gets the fraction of matches won by the player on the left.
+     *
+     * @return The left win rate, between 0 and 1.
+     */
+    public double getLeftWinRate() {
+        return (matches > 0) ? (double) leftWins / matches : 0;
+    }
+
+    /**
+     * Gets the fraction of matches won by the player on the right.
+     *
+     * @return The right win rate, between 0 and 1.
+     */
+    public double getRightWinRate() {
+        return (matches > 0) ? (double) rightWins / matches : 0;
+    }
+
+    /**
+     * Gets the average number of paddle hits in a rally.
+     *
+     * @return The average rally length, in paddle hits.
+     */
+    public double getAverageRallyLength() {
+        return (rallies > 0) ? (double) paddleHits / rallies : 0;
+    }
+
+    /**
+     * Gets the total number of ticks simulated across every match.
+     *
+     * @return The total number of ticks.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Gets the total number of steps that the matches were advanced in.
+     *
+     * @return The total number of steps.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Gets the real time it took to simulate the batch.
+     *
+     * @return The elapsed wall clock time, in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the number of ticks worth of game time simulated per second of real time, across all threads. Counts game
+     * time rather than steps, so that fixed tick and event driven batches can be compared.
+     *
+     * @return The simulation throughput, in ticks per second.
+     */
+    public double getTicksPerSecond() {
+        return (elapsedNanos > 0) ? ticks / (elapsedNanos / 1E9) : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Batch | matches: %d | left win rate: %.3f | right win rate: %.3f | undecided: %d |" +
+                        " average rally length: %.2f | ticks per second: %.0f | steps: %d", getMatches(), getLeftWinRate(),
+                getRightWinRate(), getUndecided(), getAverageRallyLength(), getTicksPerSecond(), getSteps());
+    }
+}
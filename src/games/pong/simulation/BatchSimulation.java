@@ -0,0 +1,131 @@
+package games.pong.simulation;
+
+import games.pong.players.PongPlayer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Simulates many independent pong matches in parallel and combines their results.
+ * Each match gets its own game and its own freshly created players, so nothing is shared between threads.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class BatchSimulation {
+    private final Supplier<? extends PongPlayer> leftPlayerFactory, rightPlayerFactory;
+    private Executor executor = ForkJoinPool.commonPool();
+    private long tickLimit = HeadlessPongMatch.DEFAULT_TICK_LIMIT;
+    private SimulationMode mode = SimulationMode.FIXED_TICK;
+
+    /**
+     * Instantiates a new batch simulation.
+     *
+     * @param leftPlayerFactory  Creates a new player for the left side of each match.
+     * @param rightPlayerFactory Creates a new player for the right side of each match.
+     */
+    public BatchSimulation(Supplier<? extends PongPlayer> leftPlayerFactory,
+                           Supplier<? extends PongPlayer> rightPlayerFactory) {
+        this.leftPlayerFactory = leftPlayerFactory;
+        this.rightPlayerFactory = rightPlayerFactory;
+    }
+
+    /**
+     * Sets the executor on which the matches are run. Defaults to the common fork join pool.
+     *
+     * @param executor The executor to be used.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the maximum number of ticks that a single match may take.
+     *
+     * @param tickLimit The maximum number of ticks per match.
+     */
+    public void setTickLimit(long tickLimit) {
+        this.tickLimit = tickLimit;
+    }
+
+    /**
+     * Sets how each match is advanced through time.
+     *
+     * @param mode The simulation mode.
+     */
+    public void setMode(SimulationMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Simulates the given number of matches, blocking until they have all finished.
+     *
+     * @param matches The number of matches to be played.
+     * @return The combined results of all the matches.
+     */
+    public BatchResult run(final int matches) {
+        final long start = System.nanoTime();
+
+        List<CompletableFuture<MatchResult>> futures = new ArrayList<>(matches);
+        for (int i = 0; i < matches; i++) {
+            futures.add(CompletableFuture.supplyAsync(this::runMatch, executor));
+        }
+
+        List<MatchResult> results = new ArrayList<>(matches);
+        for (CompletableFuture<MatchResult> future : futures) {
+            results.add(future.join());
+        }
+
+        return new BatchResult(results, System.nanoTime() - start);
+    }
+
+    /**
+     * Simulates a single match with new players.
+     *
+     * @return The result of the match.
+     */
+    private MatchResult runMatch() {
+        HeadlessPongMatch match = new HeadlessPongMatch(leftPlayerFactory.get(), rightPlayerFactory.get());
+        match.setTickLimit(tickLimit);
+        match.setMode(mode);
+        return match.run();
+    }
+
+    /**
+     * Runs a batch of bot versus bot matches and prints the combined results.
+     *
+     * @param args Command-line arguments: [left bot] [right bot] [matches] [threads] [mode].
+     *             Bots are either "advanced" or "beginner". Threads defaults to the number of processors.
+     *             The mode is either "fixed" or "event".
+     */
+    public static void main(String[] args) {
+        final String leftName = (args.length > 0) ? args[0] : "advanced";
+        final String rightName = (args.length > 1) ? args[1] : "beginner";
+        final SimulationMode mode = HeadlessPongMatch.parseMode((args.length > 4) ? args[4] : "fixed");
+        int matches = -1, threads = -1;
+        try {
+            matches = (args.length > 2) ? Integer.parseInt(args[2]) : 100;
+            threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        } catch (NumberFormatException ignored) {
+        }
+
+        if (HeadlessPongMatch.createBot(leftName) == null || HeadlessPongMatch.createBot(rightName) == null
+                || matches <= 0 || threads <= 0 || mode == null) {
+            System.err.println("Arguments: [left bot] [right bot] [matches] [threads] [mode]. " +
+                    "Bots are either \"advanced\" or \"beginner\", the mode is either \"fixed\" or \"event\".");
+        } else {
+            BatchSimulation simulation = new BatchSimulation(() -> HeadlessPongMatch.createBot(leftName),
+                    () -> HeadlessPongMatch.createBot(rightName));
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            simulation.setExecutor(pool);
+            simulation.setMode(mode);
+            System.out.println(simulation.run(matches));
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package games.pong.simulation;
+
+import games.pong.Pong;
+import games.pong.pieces.Paddle;
+import games.pong.pieces.PongBall;
+import games.pong.pieces.Side;
+import games.pong.players.PongPlayer;
+
+/**
+ * Advances a pong game from one event to the next instead of one fixed tick at a time.
+ * Between impacts the ball moves in a straight line and the paddles move at a constant rate, so the time of the next
+ * wall, paddle or goal line impact can be calculated exactly. Each step skips every tick before the one in which that
+ * impact happens, ending where that tick ends. Players only ever get to act at the end of a step, so ending steps on
+ * the fixed tick boundaries has them act at the same moments and see the same game as they would in a fixed tick
+ * simulation, which therefore plays out the same. The only difference is in rounding: a piece moved several ticks at
+ * once ends up a tiny fraction of a unit from where moving it one tick at a time would. Over many minutes of rallies
+ * that can be enough to change a later bounce, so long matches may end up a paddle hit or so apart.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class EventDrivenStepper {
+    /**
+     * Time (in nanoseconds) to step past an impact so that the game sees the ball as having crossed the boundary.
+     */
+    private static final long IMPACT_MARGIN_NANOS = 1;
+
+    private final Pong game;
+    /**
+     * How often players whose action could change at any moment get to run their logic, in nanoseconds.
+     */
+    private long decisionInterval = Pong.TICK_NANOS;
+
+    /**
+     * Instantiates a new event driven stepper for the given game.
+     *
+     * @param game The game to be advanced.
+     */
+    public EventDrivenStepper(Pong game) {
+        this.game = game;
+    }
+
+    /**
+     * Sets how often players whose action could change at any moment (such as bots chasing the ball) get to run
+     * their logic. Defaults to one fixed tick, which makes their behaviour match the fixed tick simulation. Rounded up
+     * to a whole number of ticks.
+     *
+     * @param decisionInterval The interval, in nanoseconds.
+     */
+    public void setDecisionInterval(long decisionInterval) {
+        this.decisionInterval = decisionInterval;
+    }
+
+    /**
+     * Determines how far the game can be advanced before something happens, being an impact of the ball or a paddle,
+     * or a player possibly changing their action.
+     *
+     * @param maxNanos The most that the game may be advanced, in nanoseconds.
+     * @return The length of the next step, in nanoseconds. A whole number of ticks, unless cut short by the maximum.
+     */
+    public long nextStep(final long maxNanos) {
+        double seconds = Math.min(nextBallImpact(), Math.min(nextPaddleImpact(game.getLeftPaddle()),
+                nextPaddleImpact(game.getRightPaddle())));
+
+        long nanos = (seconds == Double.POSITIVE_INFINITY) ? Long.MAX_VALUE
+                : (long) Math.ceil(seconds * 1E9) + IMPACT_MARGIN_NANOS;
+        nanos = Math.min(nanos, nextDecision(game.getLeftPlayer()));
+        nanos = Math.min(nanos, nextDecision(game.getRightPlayer()));
+
+        // Finish the tick in which the event happens, checking first that rounding up doesn't overflow.
+        final long ticks = Math.max(nanos / Pong.TICK_NANOS + ((nanos % Pong.TICK_NANOS > 0) ? 1 : 0), 1);
+        nanos = (ticks > maxNanos / Pong.TICK_NANOS) ? maxNanos : ticks * Pong.TICK_NANOS;
+
+        return Math.max(nanos, 1);
+    }
+
+    /**
+     * Advances the game to its next event, or by the given amount of time if nothing happens before then.
+     *
+     * @param maxNanos The most that the game may be advanced, in nanoseconds.
+     * @return The time that the game was advanced, in nanoseconds.
+     */
+    public long step(final long maxNanos) {
+        final long nanos = nextStep(maxNanos);
+        game.renderTick(nanos);
+        return nanos;
+    }
+
+    /**
+     * Determines how long until the given player might change their action.
+     *
+     * @param player The player.
+     * @return The time until the player's next decision, in nanoseconds.
+     */
+    private long nextDecision(PongPlayer player) {
+        final long nanos = player.getNanosUntilActionChange();
+        return (nanos <= 0) ? decisionInterval : nanos;
+    }
+
+    /**
+     * Determines the time until the ball next reaches a wall, the face of the paddle it is moving towards, or the
+     * goal line behind that paddle.
+     *
+     * @return The time until the next impact of the ball, in seconds. Infinity if there isn't one.
+     */
+    private double nextBallImpact() {
+        final PongBall ball = game.getBall();
+        final double rise = ball.getRisePerSecond(), run = ball.getRunPerSecond();
+        double seconds = Double.POSITIVE_INFINITY;
+
+        if (rise > 0) {
+            seconds = (game.getBoardHeight() - ball.getY(Side.TOP)) / rise;
+        } else if (rise < 0) {
+            seconds = (0 - ball.getY(Side.BOTTOM)) / rise;
+        }
+
+        if (run != 0) {
+            final Side ballFront = (run > 0) ? Side.RIGHT : Side.LEFT;
+            final double ballX = ball.getX(ballFront);
+            final Paddle paddle = (run > 0) ? game.getRightPaddle() : game.getLeftPaddle();
+            // The face of the paddle is the side looking at the ball.
+            final double faceX = paddle.getX((run > 0) ? Side.LEFT : Side.RIGHT);
+            final double goalX = (run > 0) ? game.getBoardWidth() : 0;
+
+            // Only care about the paddle if the ball hasn't gone past it already.
+            if ((run > 0) ? ballX <= faceX : ballX >= faceX) {
+                seconds = Math.min(seconds, (faceX - ballX) / run);
+            }
+            seconds = Math.min(seconds, (goalX - ballX) / run);
+        }
+
+        return Math.max(seconds, 0);
+    }
+
+    /**
+     * Determines the time until the given paddle reaches the top or the bottom of the board.
+     *
+     * @param paddle The paddle.
+     * @return The time until the paddle reaches a wall, in seconds. Infinity if it isn't moving.
+     */
+    private double nextPaddleImpact(Paddle paddle) {
+        final double velY = paddle.getVelY();
+        double seconds = Double.POSITIVE_INFINITY;
+        if (velY > 0) {
+            seconds = (game.getBoardHeight() - paddle.getY(Side.TOP)) / velY;
+        } else if (velY < 0) {
+            seconds = (0 - paddle.getY(Side.BOTTOM)) / velY;
+        }
+        return Math.max(seconds, 0);
+    }
+}
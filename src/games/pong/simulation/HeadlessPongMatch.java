@@ -0,0 +1,204 @@
+package games.pong.simulation;
+
+import games.pong.EndReason;
+import games.pong.Pong;
+import games.pong.PongEvent;
+import games.pong.clock.ManualClock;
+import games.pong.pieces.Side;
+import games.pong.players.PongAdvancedBot;
+import games.pong.players.PongBeginnerBot;
+import games.pong.players.PongPlayer;
+
+/**
+ * Runs a game of pong to completion as fast as possible, without any user interface.
+ * Useful for pitting bots or scripted players against each other on machines without a display.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class HeadlessPongMatch {
+    /**
+     * Default maximum number of ticks worth of game time to simulate before giving up on the match (20 minutes).
+     */
+    public static final long DEFAULT_TICK_LIMIT = 20L * 60 * Pong.TICK_RATE;
+
+    private final Pong game;
+    private final ManualClock clock = new ManualClock();
+    private long tickLimit = DEFAULT_TICK_LIMIT;
+    private SimulationMode mode = SimulationMode.FIXED_TICK;
+    private final EventDrivenStepper stepper;
+    private int paddleHits;
+
+    /**
+     * Instantiates a new headless match between the two given players.
+     *
+     * @param leftPlayer  The player who will control the left paddle.
+     * @param rightPlayer The player who will control the right paddle.
+     */
+    public HeadlessPongMatch(PongPlayer leftPlayer, PongPlayer rightPlayer) {
+        game = new Pong();
+        game.setClock(clock);
+        leftPlayer.setSide(Side.LEFT);
+        rightPlayer.setSide(Side.RIGHT);
+        game.setLocalPlayer(leftPlayer);
+        game.setPlayer2(rightPlayer);
+        leftPlayer.setOnActionChanged(game::applyAction);
+        rightPlayer.setOnActionChanged(game::applyAction);
+        game.addEventListener(this::ballHitPaddle, PongEvent.EventType.BALL_HIT_PADDLE);
+        stepper = new EventDrivenStepper(game);
+    }
+
+    /**
+     * Gets the game being simulated.
+     *
+     * @return The pong game.
+     */
+    public Pong getGame() {
+        return game;
+    }
+
+    /**
+     * Sets the maximum number of ticks worth of game time to be simulated before the match is ended with
+     * {@link EndReason#TICK_LIMIT_REACHED}. This stops two evenly matched bots from rallying forever.
+     *
+     * @param tickLimit The maximum number of ticks.
+     */
+    public void setTickLimit(long tickLimit) {
+        this.tickLimit = tickLimit;
+    }
+
+    /**
+     * Sets how the match is advanced through time. Defaults to {@link SimulationMode#FIXED_TICK}.
+     *
+     * @param mode The simulation mode.
+     */
+    public void setMode(SimulationMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Gets the stepper used to advance the match in {@link SimulationMode#EVENT_DRIVEN} mode.
+     *
+     * @return The event driven stepper.
+     */
+    public EventDrivenStepper getStepper() {
+        return stepper;
+    }
+
+    /**
+     * Simulates the match until it ends.
+     *
+     * @return The result of the match.
+     */
+    public MatchResult run() {
+        game.initialize();
+        game.begin();
+
+        final long nanosLimit = tickLimit * Pong.TICK_NANOS;
+        long simulatedNanos = 0;
+        while (!game.isEnded()) {
+            if (simulatedNanos >= nanosLimit) {
+                game.end(EndReason.TICK_LIMIT_REACHED);
+            } else {
+                skipPause();
+                final long nanos = (mode == SimulationMode.EVENT_DRIVEN) ?
+                        stepper.nextStep(nanosLimit - simulatedNanos) : Pong.TICK_NANOS;
+                clock.advance(nanos);
+                game.renderTick(nanos);
+                simulatedNanos += nanos;
+            }
+        }
+
+        return new MatchResult(game.getLeftPlayer().getPoints(), game.getRightPlayer().getPoints(),
+                game.getEndReason(), game.getTickCount(), simulatedNanos, paddleHits);
+    }
+
+    /**
+     * Nobody is watching, so if the game is waiting out a pause (after it begins or a player scores), jump the
+     * clock straight to the end of it.
+     */
+    private void skipPause() {
+        final long unpauseTime = game.getUnpauseTime();
+        if (game.isPaused() && unpauseTime > 0) {
+            clock.advance((unpauseTime - clock.currentTimeMillis()) * 1_000_000L);
+        }
+    }
+
+    /**
+     * Called when the ball hits a paddle in order to keep statistics.
+     *
+     * @param event The pong event.
+     */
+    private void ballHitPaddle(PongEvent event) {
+        paddleHits++;
+    }
+
+    /**
+     * Creates a bot from its command-line name.
+     *
+     * @param name "advanced" or "beginner".
+     * @return The bot, or null if the name is not known.
+     */
+    static PongPlayer createBot(String name) {
+        PongPlayer bot;
+        switch (name.toLowerCase()) {
+            case "advanced":
+                bot = new PongAdvancedBot();
+                break;
+            case "beginner":
+                bot = new PongBeginnerBot();
+                break;
+            default:
+                bot = null;
+                break;
+        }
+        return bot;
+    }
+
+    /**
+     * Parses a simulation mode from its command-line name.
+     *
+     * @param name "fixed" or "event".
+     * @return The simulation mode, or null if the name is not known.
+     */
+    static SimulationMode parseMode(String name) {
+        SimulationMode mode;
+        switch (name.toLowerCase()) {
+            case "fixed":
+                mode = SimulationMode.FIXED_TICK;
+                break;
+            case "event":
+                mode = SimulationMode.EVENT_DRIVEN;
+                break;
+            default:
+                mode = null;
+                break;
+        }
+        return mode;
+    }
+
+    /**
+     * Runs a single bot versus bot match and prints the result.
+     *
+     * @param args Command-line arguments: [left bot] [right bot] [mode]. Bots are either "advanced" or "beginner",
+     *             the mode is either "fixed" or "event".
+     */
+    public static void main(String[] args) {
+        final PongPlayer left = createBot((args.length > 0) ? args[0] : "advanced");
+        final PongPlayer right = createBot((args.length > 1) ? args[1] : "beginner");
+        final SimulationMode mode = parseMode((args.length > 2) ? args[2] : "fixed");
+
+        if (left == null || right == null || mode == null) {
+            System.err.println("Arguments: [left bot] [right bot] [mode]. " +
+                    "Bots are either \"advanced\" or \"beginner\", the mode is either \"fixed\" or \"event\".");
+        } else {
+            final long start = System.nanoTime();
+            final HeadlessPongMatch match = new HeadlessPongMatch(left, right);
+            match.setMode(mode);
+            final MatchResult result = match.run();
+            System.out.println(result);
+            System.out.println(String.format("Simulated in %.1f ms.", (System.nanoTime() - start) / 1E6));
+        }
+    }
+}
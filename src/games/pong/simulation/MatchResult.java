@@ -0,0 +1,136 @@
+package games.pong.simulation;
+
+import games.pong.EndReason;
+import games.pong.Pong;
+import games.pong.pieces.Side;
+
+/**
+ * Immutable summary of a pong match that was simulated without a user interface.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public class MatchResult {
+    private final int leftPoints, rightPoints;
+    private final EndReason endReason;
+    private final long steps, simulatedNanos;
+    private final int paddleHits;
+
+    /**
+     * Constructs a new match result.
+     *
+     * @param leftPoints     The points of the player on the left side.
+     * @param rightPoints    The points of the player on the right side.
+     * @param endReason      The reason for which the match ended.
+     * @param steps          The number of steps that the game was advanced in.
+     * @param simulatedNanos The amount of game time that was simulated, in nanoseconds.
+     * @param paddleHits     The number of times the ball was hit by a paddle.
+     */
+    public MatchResult(int leftPoints, int rightPoints, EndReason endReason, long steps, long simulatedNanos,
+                       int paddleHits) {
+        this.leftPoints = leftPoints;
+        this.rightPoints = rightPoints;
+        this.endReason = endReason;
+        this.steps = steps;
+        this.simulatedNanos = simulatedNanos;
+        this.paddleHits = paddleHits;
+    }
+
+    /**
+     * Gets the points of the player on the left side.
+     *
+     * @return The left player's points.
+     */
+    public int getLeftPoints() {
+        return leftPoints;
+    }
+
+    /**
+     * Gets the points of the player on the right side.
+     *
+     * @return The right player's points.
+     */
+    public int getRightPoints() {
+        return rightPoints;
+    }
+
+    /**
+     * Gets the reason for which the match ended.
+     *
+     * @return The end reason.
+     */
+    public EndReason getEndReason() {
+        return endReason;
+    }
+
+    /**
+     * Gets the number of fixed ticks worth of game time that were simulated during the match, however many steps
+     * that took.
+     *
+     * @return The number of simulated ticks.
+     */
+    public long getTicks() {
+        return simulatedNanos / Pong.TICK_NANOS;
+    }
+
+    /**
+     * Gets the number of steps that the game was advanced in during the match. The same as the number of ticks when
+     * advanced in fixed ticks, and usually far fewer when advanced from one event to the next.
+     *
+     * @return The number of steps.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Gets the number of times that the ball was hit by a paddle during the match.
+     *
+     * @return The number of paddle hits.
+     */
+    public int getPaddleHits() {
+        return paddleHits;
+    }
+
+    /**
+     * Gets the number of rallies played in the match. Every point ends a rally, and a match that was stopped
+     * before the score limit was reached also ends the rally that was in play.
+     *
+     * @return The number of rallies.
+     */
+    public int getRallies() {
+        return leftPoints + rightPoints + ((endReason == EndReason.SCORE_LIMIT_REACHED) ? 0 : 1);
+    }
+
+    /**
+     * Gets the amount of game time that was simulated during the match.
+     *
+     * @return The simulated game time, in nanoseconds.
+     */
+    public long getSimulatedNanos() {
+        return simulatedNanos;
+    }
+
+    /**
+     * Determines the side that won the match.
+     *
+     * @return {@link Side#LEFT} or {@link Side#RIGHT} for the winning side, or null if the match ended without a
+     * winner.
+     */
+    public Side getWinner() {
+        Side winner;
+        if (endReason != EndReason.SCORE_LIMIT_REACHED || leftPoints == rightPoints) {
+            winner = null;
+        } else {
+            winner = (leftPoints > rightPoints) ? Side.LEFT : Side.RIGHT;
+        }
+        return winner;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Match | left: %d | right: %d | winner: %s | end reason: %s | ticks: %d | steps: %d |" +
+                        " paddle hits: %d", getLeftPoints(), getRightPoints(), getWinner(), getEndReason(), getTicks(),
+                getSteps(), getPaddleHits());
+    }
+}
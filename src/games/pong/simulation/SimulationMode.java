@@ -0,0 +1,18 @@
+package games.pong.simulation;
+
+/**
+ * The ways in which a headless pong match can be advanced through time.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public enum SimulationMode {
+    /**
+     * Advance the game in fixed ticks of {@link games.pong.Pong#TICK_NANOS}, just like the user interface does.
+     */
+    FIXED_TICK,
+    /**
+     * Jump straight from one impact or player decision to the next with an {@link EventDrivenStepper}.
+     */
+    EVENT_DRIVEN
+}
@@ -1,12 +1,14 @@
 package games.pong.ui;
 
 import games.Game;
+import games.player.NetworkPlayer;
 import games.player.PongKeyBinding;
 import games.pong.EndReason;
 import games.pong.Pong;
 import games.pong.PongEvent;
-import games.pong.pieces.Paddle;
-import games.pong.pieces.PongPiece;
+import games.pong.PongLoop;
+import games.pong.PongState;
+import games.pong.network.RollbackSession;
 import games.pong.pieces.Side;
 import games.pong.players.*;
 import javafx.animation.KeyFrame;
@@ -14,6 +16,7 @@ import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.geometry.VPos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
@@ -32,6 +35,8 @@ import javafx.util.Duration;
 import menu.MainMenu;
 import network.party.PartyHandler;
 import network.party.PartyRole;
+import network.party.network.ConnectionStats;
+import preferences.Preferences;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -73,14 +78,27 @@ public class PongUI extends Pane implements Game {
      * Key used to end the game.
      */
     private static final KeyCode END_GAME_KEYCODE = KeyCode.BACK_SPACE;
+    /**
+     * Key used to show or hide how the connection is doing in a network game.
+     */
+    private static final KeyCode STATS_KEYCODE = KeyCode.F3;
     private static final String HELP_TEXT = String.format("Press the up and down arrows to move your player (or the q and a keys for local multiplayer)\n" +
-            "End the game by pressing the %s key repeatedly.", END_GAME_KEYCODE.getName());
+            "End the game by pressing the %s key repeatedly.\n" +
+            "Press %s in an online game to see how the connection is doing.", END_GAME_KEYCODE.getName(), STATS_KEYCODE.getName());
+    // Font and position of the connection stats, and how often (in milliseconds) they're updated so they can be read.
+    private static final Font STATS_FONT = Font.font("Monospaced", 12);
+    private static final double STATS_MARGIN = 8;
+    private static final long STATS_UPDATE_MILLISECONDS = 250;
     /**
      * The time period in which the player must hit the end key to end the game.
      */
     private static final long END_KEY_MILLISECONDS = 3000;
     private static final int END_KEY_NUMBER_PRESSES = 3;
     private Pong game;
+    // Runs the game when playing over the network with rollback netcode, null otherwise.
+    private RollbackSession rollbackSession;
+    // Runs the game on its own thread once started.
+    private PongLoop gameLoop;
     // How much the units in the pong game backend are scaled to make a nice looking UI.
     private double scaleFactor;
 
@@ -92,6 +110,9 @@ public class PongUI extends Pane implements Game {
     private final Rectangle leftPaddle;
     private final Rectangle rightPaddle;
     private final Scoreboard scoreboard;
+    // Shows how the connection is doing, when toggled on in a network game.
+    private final Text statsOverlay;
+    private long lastStatsUpdate;
 
     // Set up key bindings list.
     private ArrayList<HashMap<KeyCode, PongKeyBinding>> keyBindings;
@@ -138,7 +159,14 @@ public class PongUI extends Pane implements Game {
         ball = new Rectangle();
         ball.setFill(FOREGROUND_COLOUR);
 
-        getChildren().addAll(divider, leftPaddle, rightPaddle, ball, scoreboard);
+        statsOverlay = new Text();
+        statsOverlay.setFont(STATS_FONT);
+        statsOverlay.setFill(FOREGROUND_COLOUR);
+        statsOverlay.setTextOrigin(VPos.TOP);
+        statsOverlay.relocate(STATS_MARGIN, STATS_MARGIN);
+        statsOverlay.setVisible(false);
+
+        getChildren().addAll(divider, leftPaddle, rightPaddle, ball, scoreboard, statsOverlay);
 
         setOnKeyPressed(this::keyPressed);
         setOnKeyReleased(this::keyReleased);
@@ -204,6 +232,8 @@ public class PongUI extends Pane implements Game {
         KeyCode keyDown = event.getCode();
         if (keyDown.equals(END_GAME_KEYCODE)) {
             endGameKeyPressed();
+        } else if (keyDown.equals(STATS_KEYCODE)) {
+            statsOverlay.setVisible(!statsOverlay.isVisible() && isNetworkGame());
         } else if (!keysDown.contains(keyDown)) {
             keysDown.add(keyDown);
             updatePlayerKeys();
@@ -255,7 +285,7 @@ public class PongUI extends Pane implements Game {
         if ((endKeyPressTimes[endKeyPressTimes.length - 1] != null)
                 && (endKeyPressTimes[0] != null)
                 && ((endKeyPressTimes[endKeyPressTimes.length - 1] - endKeyPressTimes[0]) <= END_KEY_MILLISECONDS)) {
-            game.end(EndReason.PLAYER_END);
+            game.post(() -> game.end(EndReason.PLAYER_END));
         }
     }
 
@@ -273,8 +303,11 @@ public class PongUI extends Pane implements Game {
         ball.setHeight(game.getBall().getHeight() * scaleFactor);
         scoreboard.changeSize(scaleFactor);
         divider.calculate(getWorkingWidth(), getWorkingHeight());
-        updatePaddleLocations();
-        updateBallLocation();
+        if (gameLoop != null) {
+            final PongState state = gameLoop.getState();
+            updatePaddleLocations(state);
+            updateBallLocation(state);
+        }
     }
 
     /**
@@ -283,6 +316,10 @@ public class PongUI extends Pane implements Game {
     @Override
     public void start() {
         if (hasInitializedPlayers) {
+            if (gameLoop == null) {
+                gameLoop = (rollbackSession != null) ? new PongLoop(game, rollbackSession::update) : new PongLoop(game);
+                gameLoop.start();
+            }
             MainMenu.getCurrentInstance().sizeToScene();
             recalculateScreenDimensions();
             requestFocus();
@@ -299,7 +336,7 @@ public class PongUI extends Pane implements Game {
 
             // If this isn't a network game, we can start the game right away. Otherwise, it's up to the PongNetworkPlayer.
             if (!isNetworkGame()) {
-                game.begin();
+                game.post(game::begin);
             }
         }
     }
@@ -323,68 +360,82 @@ public class PongUI extends Pane implements Game {
     }
 
     /**
-     * Renders a new frame on screen.
+     * Renders a new frame on screen from the latest state published by the game's thread.
      */
     private void renderFrame() {
-        updateBallLocation();
-        updatePaddleLocations();
-        updateScoreboard();
-        game.renderTick();
+        final PongState state = gameLoop.getState();
+        updateBallLocation(state);
+        updatePaddleLocations(state);
+        updateScoreboard(state);
+        if (statsOverlay.isVisible()) {
+            updateStats();
+        }
+    }
+
+    /**
+     * Updates the connection stats display, if it's been long enough since the last update.
+     */
+    private void updateStats() {
+        final long now = System.currentTimeMillis();
+        if (now - lastStatsUpdate >= STATS_UPDATE_MILLISECONDS) {
+            lastStatsUpdate = now;
+            final ConnectionStats stats = PartyHandler.getStats();
+            final long lastMessageAge = stats.getLastMessageAge();
+            statsOverlay.setText(String.format("RTT %.1f ms  jitter %.1f ms%n" +
+                            "out %.0f msg/s  %.2f kB/s  queued %d%n" +
+                            "in  %.0f msg/s  %.2f kB/s  queued %d%n" +
+                            "serialize %.1f us  deserialize %.1f us%n" +
+                            "last message %s",
+                    stats.getRoundTripTime() / 1e6, stats.getJitter() / 1e6,
+                    stats.getSentMessageRate(), stats.getSentByteRate() / 1000, stats.getOutgoingDepth(),
+                    stats.getReceivedMessageRate(), stats.getReceivedByteRate() / 1000, stats.getIncomingDepth(),
+                    stats.getSerializationTime() / 1e3, stats.getDeserializationTime() / 1e3,
+                    (lastMessageAge < 0) ? "never" : String.format("%d ms ago", lastMessageAge / 1_000_000)));
+        }
     }
 
     /**
      * Updates the scoreboard display with the correct scores.
+     *
+     * @param state The state of the game to be shown.
      */
-    private void updateScoreboard() {
-        scoreboard.setLeftScore(game.getLeftPlayer().getPoints());
-        scoreboard.setRightScore(game.getRightPlayer().getPoints());
+    private void updateScoreboard(PongState state) {
+        scoreboard.setLeftScore(state.getLeftPoints());
+        scoreboard.setRightScore(state.getRightPoints());
         scoreboard.calculate(getWorkingWidth(), getWorkingHeight());
     }
 
     /**
      * Updates the on-screen locations of the paddles.
+     *
+     * @param state The state of the game to be shown.
      */
-    private void updatePaddleLocations() {
-        leftPaddle.setX(game.getLeftPaddle().getX() * scaleFactor);
-        leftPaddle.setY(transformY(game.getBoardHeight(), game.getLeftPaddle(), Side.TOP) * scaleFactor);
-        rightPaddle.setX(game.getRightPaddle().getX() * scaleFactor);
-        rightPaddle.setY(transformY(game.getBoardHeight(), game.getRightPaddle(), Side.TOP) * scaleFactor);
+    private void updatePaddleLocations(PongState state) {
+        leftPaddle.setX(state.getLeftPaddleX() * scaleFactor);
+        leftPaddle.setY(transformY(game.getBoardHeight(), state.getLeftPaddleY()) * scaleFactor);
+        rightPaddle.setX(state.getRightPaddleX() * scaleFactor);
+        rightPaddle.setY(transformY(game.getBoardHeight(), state.getRightPaddleY()) * scaleFactor);
     }
 
     /**
      * Updates hte on-screen location of the pong ball.
+     *
+     * @param state The state of the game to be shown.
      */
-    private void updateBallLocation() {
-        ball.setX(game.getBall().getX(Side.LEFT) * scaleFactor);
-        ball.setY(transformY(game.getBoardHeight(), game.getBall(), Side.TOP) * scaleFactor);
+    private void updateBallLocation(PongState state) {
+        ball.setX(state.getBallX() * scaleFactor);
+        ball.setY(transformY(game.getBoardHeight(), state.getBallY()) * scaleFactor);
     }
 
     /**
-     * Translates a y value from being measured from the bottom to the top to top to bottom.
+     * Translates the top y value of a piece from being measured from the bottom to the top to top to bottom.
      *
      * @param boardHeight The height of the pong board.
-     * @param piece       The piece whose coordinates shall be transformed.
-     * @param desiredSide The desired coordinate (Side.TOP, Side.CENTER, Side.BOTTOM) that needs to be calculated.
+     * @param topY        The y coordinate of the top of the piece, measured from the bottom of the board.
      * @return The transformed value.
      */
-    private static double transformY(double boardHeight, PongPiece piece, Side desiredSide) {
-        double newY;
-        double topLeftY = boardHeight - piece.getY(Side.TOP);
-        switch (desiredSide) {
-            case TOP:
-                newY = topLeftY;
-                break;
-            case BOTTOM:
-                newY = topLeftY + piece.getHeight();
-                break;
-            case CENTER:
-                newY = topLeftY + piece.getHeight() / 2;
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid selection for position.");
-        }
-
-        return newY;
+    private static double transformY(double boardHeight, double topY) {
+        return boardHeight - topY;
     }
 
     @Override
@@ -393,6 +444,7 @@ public class PongUI extends Pane implements Game {
             renderFrameTimer.stop();
             renderFrameTimer = null;
         }
+        stopGameLoop();
 
         // If the game ended because of player disconnect, notify the user.
         switch (game.getEndReason()) {
@@ -440,7 +492,7 @@ public class PongUI extends Pane implements Game {
      */
     @Override
     public boolean isNetworkGame() {
-        return game.getPlayer2() instanceof PongNetworkPlayer;
+        return game.getPlayer2() instanceof NetworkPlayer;
     }
 
     @Override
@@ -448,13 +500,27 @@ public class PongUI extends Pane implements Game {
         return this;
     }
 
+    /**
+     * Stops the thread running the game, if there is one.
+     */
+    private void stopGameLoop() {
+        if (gameLoop != null) {
+            gameLoop.stop();
+            gameLoop = null;
+        }
+    }
+
     @Override
     public void reset() {
+        stopGameLoop();
         hasInitializedPlayers = false;
         getChildren().remove(selector); // Make sure the selector isn't on screen anymore
         game = new Pong(); // Initialize new pong game with the correct type of players
+        rollbackSession = null;
         resetKeyBindings();
-        game.addEventListener(this::gameEventHappened);
+        game.addEventListener(this::gameEventHappened, PongEvent.EventType.PLAYER_SCORED,
+                PongEvent.EventType.BALL_HIT_PADDLE, PongEvent.EventType.BALL_HIT_BOTTOM_WALL,
+                PongEvent.EventType.BALL_HIT_TOP_WALL, PongEvent.EventType.GAME_ENDED);
         SfxPongPlayer.init();
     }
 
@@ -504,19 +570,15 @@ public class PongUI extends Pane implements Game {
      * @param newAction      The new action to be performed.
      */
     private void paddleActionChanged(PongPlayer affectedPlayer, Action newAction) {
-        Paddle paddle = game.getPaddle(affectedPlayer);
-
-        switch (newAction) {
-            case MOVE_DOWN:
-                game.paddleDown(paddle);
-                break;
-            case MOVE_UP:
-                game.paddleUp(paddle);
-                break;
-            default:
-                game.stopPaddle(paddle);
-                break;
-        }
+        // Keyboard players change on this thread, bots on the game's thread. Either way, the game's thread applies it.
+        game.post(() -> {
+            // With rollback netcode, the session decides on which frame the local player's action is applied.
+            if (rollbackSession != null && affectedPlayer == game.getLocalPlayer()) {
+                rollbackSession.setLocalAction(newAction);
+            } else {
+                game.applyAction(affectedPlayer, newAction);
+            }
+        });
     }
 
     /**
@@ -655,12 +717,20 @@ public class PongUI extends Pane implements Game {
     @Override
     public void setNetworkGame() {
         PongKeyboardPlayer p1 = new PongKeyboardPlayer();
-        PongNetworkPlayer p2 = new PongNetworkPlayer();
-
         game.setLocalPlayer(p1);
-        game.setPlayer2(p2);
 
-        // Set the side depending on who's hosting.
+        if (Preferences.getInstance().isDedicatedServer()) {
+            // The server shows every player the game as if they were on the left, which they are as a client.
+            game.setPlayer2(new PongHostedPlayer());
+        } else if (Preferences.getInstance().isRollbackNetcode()) {
+            PongRollbackPlayer p2 = new PongRollbackPlayer();
+            game.setPlayer2(p2);
+            rollbackSession = new RollbackSession(game, p1, p2);
+        } else {
+            game.setPlayer2(new PongNetworkPlayer());
+        }
+
+        // Set the side depending on who's hosting, or who the lobby picked to host when both connected to it.
         if (PartyHandler.getRole() == PartyRole.SERVER) {
             game.getLocalPlayer().setSide(Side.RIGHT);
         } else {
@@ -671,13 +741,13 @@ public class PongUI extends Pane implements Game {
     /**
      * Gets the network player playing this game.
      *
-     * @return The PongNetworkPlayer in this game, or null if there isn't one.
+     * @return The network player in this game, or null if there isn't one.
      */
     @Override
-    public PongNetworkPlayer getNetworkPlayer() {
-        PongNetworkPlayer player = null;
+    public NetworkPlayer getNetworkPlayer() {
+        NetworkPlayer player = null;
         if (isNetworkGame()) {
-            player = (PongNetworkPlayer) game.getPlayer2();
+            player = (NetworkPlayer) game.getPlayer2();
         }
         return player;
     }
@@ -469,6 +469,8 @@ public class MainMenu extends Application {
             }
             if (currentGame.isNetworkGame()) {
                 currentGame.getNetworkPlayer().setOnGameDataSend(this::sendGameData);
+                // The game's network player hands received data to the game's own thread, so skip the JavaFX thread.
+                PartyHandler.setInGameMessageListener(currentGame.getNetworkPlayer()::receiveData);
             }
             currentGame.initializePlayers();
             currentGame.start();
@@ -484,6 +486,7 @@ public class MainMenu extends Application {
         // Only actually end if the ended game was the game being played.
         if (currentGame == endedGame) {
             currentGame = null;
+            PartyHandler.setInGameMessageListener(null);
             setDisplay(screenRoot);
         }
     }
@@ -504,6 +507,7 @@ public class MainMenu extends Application {
         if (currentGame != null) {
             currentGame.end();
             currentGame = null;
+            PartyHandler.setInGameMessageListener(null);
         }
     }
 
@@ -753,11 +757,11 @@ public class MainMenu extends Application {
     /**
      * Called when a game wishes to send game data to the connected client.
      *
-     * @param gameData The string data to be sent.
+     * @param gameMessage The game message to be sent.
      */
-    private void sendGameData(final String gameData) {
+    private void sendGameData(final NetworkMessage gameMessage) {
         if (PartyHandler.isConnected()) {
-            sendNetworkMessage(new NetworkMessage(HostStatus.IN_GAME, gameData));
+            sendNetworkMessage(gameMessage);
         }
 
     }
@@ -0,0 +1,32 @@
+package network;
+
+/**
+ * Listens for what happens on connections served by a {@link NioEventLoop}.
+ * All methods are called on the event loop's thread, so they should return quickly and never block.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public interface ConnectionListener {
+    /**
+     * Called once the connection is established and ready to send frames.
+     *
+     * @param connection The connection.
+     */
+    void connected(NioConnection connection);
+
+    /**
+     * Called when a whole frame is received on the connection.
+     *
+     * @param connection The connection on which the frame arrived.
+     * @param frame      The frame, starting with its type byte, in the same format as {@link TCPSocket#listenForFrame()}.
+     */
+    void frameReceived(NioConnection connection, byte[] frame);
+
+    /**
+     * Called once when the connection is closed, by either end, or when it fails to connect at all.
+     *
+     * @param connection The connection.
+     */
+    void disconnected(NioConnection connection);
+}
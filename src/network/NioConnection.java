@@ -0,0 +1,301 @@
+package network;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A single non-blocking connection served by a {@link NioEventLoop}. Frames use the same format as {@link TCPSocket},
+ * so either end of a connection can be a plain socket.
+ * Frames may be sent from any thread. They are queued and written out by the event loop as the socket has room for
+ * them, and received frames are handed to the connection's {@link ConnectionListener} on the event loop's thread.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class NioConnection {
+    /**
+     * Starting size of each connection's buffers. They only grow if a single frame doesn't fit.
+     */
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final NioEventLoop loop;
+    private final SocketChannel channel;
+    private final ConnectionListener listener;
+    private SelectionKey key;
+
+    // Both buffers are only touched by the event loop. The write buffer is kept ready to be put into.
+    private ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Queue<byte[]> outgoing = new ConcurrentLinkedQueue<>();
+    // True while the event loop has been asked to flush but hasn't yet, so that a burst of sends only asks once.
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private volatile boolean open = true;
+    private boolean connected;
+
+    private volatile Object attachment;
+
+    /**
+     * Instantiates a new connection. Should only be called by the event loop.
+     *
+     * @param loop     The event loop serving the connection.
+     * @param channel  The non-blocking channel of the connection.
+     * @param listener The listener to be told what happens on the connection.
+     */
+    NioConnection(NioEventLoop loop, SocketChannel channel, ConnectionListener listener) {
+        this.loop = loop;
+        this.channel = channel;
+        this.listener = listener;
+    }
+
+    /**
+     * Registers the connection with the event loop's selector. Should only be called on the event loop's thread.
+     *
+     * @param selector The selector.
+     * @param pending  True if the channel is still connecting, false if it's already connected.
+     */
+    void register(Selector selector, boolean pending) {
+        try {
+            key = channel.register(selector, pending ? SelectionKey.OP_CONNECT : SelectionKey.OP_READ, this);
+            if (!pending) {
+                connectionReady();
+            }
+        } catch (ClosedChannelException e) {
+            closeNow();
+        }
+    }
+
+    /**
+     * Sends a frame over the connection. May be called from any thread; the frame is written out by the event loop.
+     * Frames sent before the connection is established are held until it is, and frames sent after it closes are
+     * dropped.
+     *
+     * @param frame The frame to be sent, starting with its type byte.
+     * @throws IllegalArgumentException Thrown if the frame has an invalid length.
+     */
+    public void send(byte[] frame) {
+        if (frame.length < 1 || frame.length > TCPSocket.MAX_FRAME_SIZE) {
+            throw new IllegalArgumentException("Invalid frame length: " + frame.length);
+        }
+        if (open) {
+            outgoing.add(frame);
+            if (flushScheduled.compareAndSet(false, true)) {
+                loop.execute(this::flush);
+            }
+        }
+    }
+
+    /**
+     * Closes the connection. May be called from any thread; frames that haven't been written yet are dropped. When
+     * called by the listener, the connection is closed right away, so no more frames are passed on, even ones that
+     * arrived in the same read.
+     */
+    public void close() {
+        if (loop.inEventLoop()) {
+            closeNow();
+        } else {
+            loop.execute(this::closeNow);
+        }
+    }
+
+    /**
+     * Determines if the connection is still open. It may not have finished connecting yet.
+     *
+     * @return True if open, false once closed.
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Gets the address of the other end of the connection.
+     *
+     * @return The remote address, or null if it isn't known.
+     */
+    public SocketAddress getRemoteAddress() {
+        SocketAddress address;
+        try {
+            address = channel.getRemoteAddress();
+        } catch (IOException e) {
+            address = null;
+        }
+        return address;
+    }
+
+    /**
+     * Gets the number of frames waiting to be written to the socket, not counting any that are partly written.
+     *
+     * @return The number of queued frames.
+     */
+    public int getQueuedFrames() {
+        return outgoing.size();
+    }
+
+    /**
+     * Gets the object attached to this connection.
+     *
+     * @return The attachment, or null if there isn't one.
+     */
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    /**
+     * Attaches an object to this connection, such as whatever the server keeps track of for each of its clients.
+     *
+     * @param attachment The object to attach.
+     */
+    public void setAttachment(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    /**
+     * Finishes connecting once the selector says the channel is ready to.
+     */
+    void handleConnect() {
+        try {
+            if (channel.finishConnect()) {
+                key.interestOps(SelectionKey.OP_READ);
+                connectionReady();
+            }
+        } catch (IOException e) {
+            closeNow();
+        }
+    }
+
+    /**
+     * Called once the channel is connected. Anything sent while connecting is flushed.
+     */
+    private void connectionReady() {
+        connected = true;
+        listener.connected(this);
+        flush();
+    }
+
+    /**
+     * Reads whatever has arrived, passing on every whole frame. Partial frames are kept until the rest arrives.
+     */
+    void handleRead() {
+        try {
+            if (channel.read(readBuffer) < 0) {
+                closeNow();
+            } else {
+                readFrames();
+            }
+        } catch (IOException e) {
+            closeNow();
+        }
+    }
+
+    /**
+     * Takes every whole frame out of the read buffer and passes them on to the listener.
+     *
+     * @throws IOException Thrown if a frame has an invalid length.
+     */
+    private void readFrames() throws IOException {
+        readBuffer.flip();
+        int needed = 0;
+        while (open && needed == 0 && readBuffer.remaining() >= Integer.BYTES) {
+            final int length = readBuffer.getInt(readBuffer.position());
+            if (length < 1 || length > TCPSocket.MAX_FRAME_SIZE) {
+                throw new IOException("Invalid frame length: " + length);
+            }
+            if (readBuffer.remaining() < Integer.BYTES + length) {
+                needed = Integer.BYTES + length;
+            } else {
+                readBuffer.position(readBuffer.position() + Integer.BYTES);
+                final byte[] frame = new byte[length];
+                readBuffer.get(frame);
+                listener.frameReceived(this, frame);
+            }
+        }
+        readBuffer.compact();
+
+        // Make room for the rest of a frame that is bigger than the buffer.
+        if (needed > readBuffer.capacity()) {
+            final ByteBuffer bigger = ByteBuffer.allocateDirect(needed);
+            readBuffer.flip();
+            bigger.put(readBuffer);
+            readBuffer = bigger;
+        }
+    }
+
+    /**
+     * Writes out queued frames once the selector says the socket has room for them.
+     */
+    void handleWrite() {
+        flush();
+    }
+
+    /**
+     * Writes as many queued frames as the socket will take. If it won't take them all, the event loop waits until it
+     * has room for the rest.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        if (open && connected) {
+            try {
+                boolean done = false;
+                while (!done) {
+                    fillWriteBuffer();
+                    writeBuffer.flip();
+                    channel.write(writeBuffer);
+                    done = writeBuffer.hasRemaining() || outgoing.isEmpty();
+                    writeBuffer.compact();
+                }
+                final boolean waitingToWrite = writeBuffer.position() > 0;
+                key.interestOps(waitingToWrite ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            } catch (IOException e) {
+                closeNow();
+            }
+        }
+    }
+
+    /**
+     * Moves as many queued frames into the write buffer as will fit, each preceded by its length.
+     */
+    private void fillWriteBuffer() {
+        byte[] frame = outgoing.peek();
+        boolean full = false;
+        while (frame != null && !full) {
+            final int size = Integer.BYTES + frame.length;
+            if (writeBuffer.position() == 0 && writeBuffer.capacity() < size) {
+                writeBuffer = ByteBuffer.allocateDirect(size);
+            }
+            full = writeBuffer.remaining() < size;
+            if (!full) {
+                writeBuffer.putInt(frame.length).put(frame);
+                outgoing.poll();
+                frame = outgoing.peek();
+            }
+        }
+    }
+
+    /**
+     * Closes the connection right away, telling the listener if it wasn't already closed. Should only be called on the
+     * event loop's thread.
+     */
+    void closeNow() {
+        if (open) {
+            open = false;
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close connection.");
+            }
+            outgoing.clear();
+            listener.disconnected(this);
+        }
+    }
+}
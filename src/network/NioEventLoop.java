@@ -0,0 +1,247 @@
+package network;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Serves any number of non-blocking connections from a single thread, using a selector. Unlike {@link TCPSocket},
+ * which needs a thread blocked on every connection, one event loop can host hundreds of sessions.
+ * Everything to do with the selector and the channels happens on the loop's thread. Other threads hand it work with
+ * {@link #execute(Runnable)}.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class NioEventLoop {
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private volatile boolean running;
+    private volatile Thread thread;
+
+    /**
+     * Instantiates a new event loop. It doesn't serve anything until started.
+     *
+     * @throws IOException Thrown if the selector can't be opened.
+     */
+    public NioEventLoop() throws IOException {
+        selector = Selector.open();
+    }
+
+    /**
+     * Starts running the event loop on a new thread, if not already running.
+     */
+    public void start() {
+        if (thread == null) {
+            running = true;
+            thread = new Thread(this::run, "Network event loop");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the event loop. Every connection and server is closed, and every connection's listener is told so.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Determines if the calling thread is the event loop's thread.
+     *
+     * @return True if called on the event loop, false otherwise.
+     */
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Runs the given task on the event loop's thread, as soon as it's done with what it's currently doing.
+     *
+     * @param task The task to run.
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Starts accepting connections on the given port. Every connection accepted is told to the listener.
+     *
+     * @param port     The port to listen on, or 0 for any free port.
+     * @param listener The listener for the accepted connections.
+     * @return The port being listened on.
+     * @throws IOException Thrown if the port can't be bound.
+     */
+    public int listen(final int port, ConnectionListener listener) throws IOException {
+        final ServerSocketChannel server = ServerSocketChannel.open();
+        server.configureBlocking(false);
+        server.bind(new InetSocketAddress(port));
+        execute(() -> registerServer(server, listener));
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Starts connecting to a server. The listener is told once the connection is established, or that it disconnected
+     * if the connection fails.
+     *
+     * @param host     The host name or IP address of the server.
+     * @param port     The port of the server.
+     * @param listener The listener for the connection.
+     * @return The new connection, on which frames may be sent right away.
+     * @throws IOException Thrown if the connection can't be started, such as when the host can't be found.
+     */
+    public NioConnection connect(String host, final int port, ConnectionListener listener) throws IOException {
+        final SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        final boolean pending = !channel.connect(new InetSocketAddress(host, port));
+        final NioConnection connection = new NioConnection(this, channel, listener);
+        execute(() -> connection.register(selector, pending));
+        return connection;
+    }
+
+    /**
+     * Registers a server channel with the selector so that connections are accepted.
+     *
+     * @param server   The server channel.
+     * @param listener The listener for the accepted connections.
+     */
+    private void registerServer(ServerSocketChannel server, ConnectionListener listener) {
+        try {
+            server.register(selector, SelectionKey.OP_ACCEPT, listener);
+        } catch (ClosedChannelException e) {
+            System.err.println("Server closed before it could be registered.");
+        }
+    }
+
+    /**
+     * Selects and handles ready channels until stopped.
+     */
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                System.err.println("Network event loop failed: " + e.getMessage());
+                running = false;
+            }
+            runTasks();
+
+            final Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+            while (selected.hasNext()) {
+                final SelectionKey key = selected.next();
+                selected.remove();
+                try {
+                    handleKey(key);
+                } catch (RuntimeException e) {
+                    // A listener failing shouldn't take every other connection down with it.
+                    System.err.println("Closing connection after error: " + e);
+                    closeKey(key);
+                }
+            }
+        }
+        closeAll();
+    }
+
+    /**
+     * Runs every task handed to the loop by other threads.
+     */
+    private void runTasks() {
+        Runnable task = tasks.poll();
+        while (task != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // As with listeners, one failing task shouldn't take every connection down with it.
+                System.err.println("Network event loop task failed: " + e);
+            }
+            task = tasks.poll();
+        }
+    }
+
+    /**
+     * Handles whatever a selected channel is ready for.
+     *
+     * @param key The selected key.
+     */
+    private void handleKey(SelectionKey key) {
+        final Object attachment = key.attachment();
+        if (key.isValid() && key.isAcceptable()) {
+            accept((ServerSocketChannel) key.channel(), (ConnectionListener) attachment);
+        } else if (attachment instanceof NioConnection) {
+            final NioConnection connection = (NioConnection) attachment;
+            if (key.isValid() && key.isConnectable()) {
+                connection.handleConnect();
+            }
+            if (key.isValid() && key.isReadable()) {
+                connection.handleRead();
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.handleWrite();
+            }
+        }
+    }
+
+    /**
+     * Accepts every connection waiting on the server.
+     *
+     * @param server   The server channel.
+     * @param listener The listener for the accepted connections.
+     */
+    private void accept(ServerSocketChannel server, ConnectionListener listener) {
+        try {
+            SocketChannel channel = server.accept();
+            while (channel != null) {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                new NioConnection(this, channel, listener).register(selector, false);
+                channel = server.accept();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to accept connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes the connection or server of a key.
+     *
+     * @param key The key to close.
+     */
+    private static void closeKey(SelectionKey key) {
+        if (key.attachment() instanceof NioConnection) {
+            ((NioConnection) key.attachment()).closeNow();
+        } else {
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                System.err.println("Failed to close server.");
+            }
+        }
+    }
+
+    /**
+     * Closes every connection and server, and then the selector.
+     */
+    private void closeAll() {
+        runTasks();
+        for (SelectionKey key : selector.keys()) {
+            closeKey(key);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close selector.");
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.*;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * @author s405751 (Nicolas Hawrysh)
@@ -15,12 +16,19 @@ import java.net.UnknownHostException;
 
 public class TCPSocket {
     public static final int DEFAULT_PORT = 3001;
+    /**
+     * The largest frame (type byte and payload) that will be accepted, so that a corrupt length can't exhaust memory.
+     */
+    public static final int MAX_FRAME_SIZE = 64 * 1024;
+    /**
+     * Type byte of frames holding plain UTF-8 text, as sent by {@link #send(String)}.
+     */
+    public static final byte TEXT_FRAME = 0;
 
     protected Socket stSocket;
 
-    private InputStreamReader isInputStreamReader;
-    private BufferedReader brBufferedReader;
-    private PrintWriter pwOut;
+    private DataInputStream disIn;
+    private DataOutputStream dosOut;
 
     /**
      * Determines if this TCP socket is connected.
@@ -32,60 +40,131 @@ public class TCPSocket {
     }
 
     /**
-     * Sets up the buffered reader.
+     * Sets up the data input stream.
      *
      * @throws IOException Thrown if there's an issue.
      */
-    private void setupBufferedReader() throws IOException {
+    private void setupInputStream() throws IOException {
         // create variable for the sockets input stream
         InputStream isSocketInputStream = stSocket.getInputStream();
-        isInputStreamReader = new InputStreamReader(isSocketInputStream);
 
-        // create a new buffered reader of the socket input stream reader
-        brBufferedReader = new BufferedReader(new InputStreamReader(isSocketInputStream));
+        // create a new data input stream, buffered so that reading a frame doesn't take several system calls
+        disIn = new DataInputStream(new BufferedInputStream(isSocketInputStream));
     }
 
     /**
-     * Listens for data being sent to this client.
+     * Listens for a frame being sent to this client. Each frame is its length as an int, followed by that many bytes:
+     * a type byte and then the payload.
      *
-     * @return The string data sent to the client.
-     * @throws IOException Thrown when there is some sort of IO problem.
+     * @return The frame sent to the client, starting with its type byte, or null if the other end closed the socket.
+     * @throws IOException Thrown when there is some sort of IO problem, or the frame has an invalid length.
+     */
+    public byte[] listenForFrame() throws IOException {
+        if (disIn == null) {
+            setupInputStream();
+        }
+
+        byte[] frame = null;
+        try {
+            final int length = disIn.readInt();
+            if (length < 1 || length > MAX_FRAME_SIZE) {
+                throw new IOException("Invalid frame length: " + length);
+            }
+            frame = new byte[length];
+            disIn.readFully(frame);
+        } catch (EOFException e) {
+            // The other end closed the socket between frames, or partway through one.
+            frame = null;
+        }
+        return frame;
+    }
+
+    /**
+     * Listens for text being sent to this client.
+     *
+     * @return The string data sent to the client, or null if the other end closed the socket.
+     * @throws IOException Thrown when there is some sort of IO problem, or a frame other than text is received.
      */
     public String listenForData() throws IOException {
-        if (brBufferedReader == null) {
-            setupBufferedReader();
+        final byte[] frame = listenForFrame();
+        String data = null;
+        if (frame != null) {
+            if (frame[0] != TEXT_FRAME) {
+                throw new IOException("Expected a text frame, received type " + frame[0]);
+            }
+            data = new String(frame, 1, frame.length - 1, StandardCharsets.UTF_8);
         }
 
         // return data received
-        return brBufferedReader.readLine();
+        return data;
     }
 
     /**
-     * Sets up the print writer for outputting to the socket.
+     * Sets up the data output stream for outputting to the socket.
      *
      * @throws IOException Thrown when there is some sort of problem.
      */
-    private void setupPrintWriter() throws IOException {
+    private void setupOutputStream() throws IOException {
         // create a new output stream
         OutputStream osSocketOutputStream = stSocket.getOutputStream();
 
-        // use PrintWriter to send a line of text to the outputStream
-        pwOut = new PrintWriter(osSocketOutputStream, true);
+        // buffer it so that the length and the frame go out together when flushed
+        dosOut = new DataOutputStream(new BufferedOutputStream(osSocketOutputStream));
     }
 
     /**
-     * Sends data to the client/server.
+     * Sends a frame to the client/server.
+     *
+     * @param frame The frame to be sent, starting with its type byte.
+     * @throws IOException Thrown when there is some sort of IO problem, or the frame has an invalid length.
+     */
+    public void send(byte[] frame) throws IOException {
+        write(frame);
+        flush();
+    }
+
+    /**
+     * Writes a frame to the socket's buffer without sending it yet, so that several frames can go out together with
+     * a single {@link #flush()}. The buffer is also sent whenever it fills up.
+     *
+     * @param frame The frame to be written, starting with its type byte.
+     * @throws IOException Thrown when there is some sort of IO problem, or the frame has an invalid length.
+     */
+    public void write(byte[] frame) throws IOException {
+        if (frame.length < 1 || frame.length > MAX_FRAME_SIZE) {
+            throw new IOException("Invalid frame length: " + frame.length);
+        }
+        if (dosOut == null) {
+            setupOutputStream();
+        }
+
+        dosOut.writeInt(frame.length);
+        dosOut.write(frame);
+    }
+
+    /**
+     * Sends every frame written to the socket's buffer.
      *
-     * @param data The string data to be set.
      * @throws IOException Thrown when there is some sort of IO problem.
      */
-    public void send(String data) throws IOException {
-        if (pwOut == null) {
-            setupPrintWriter();
+    public void flush() throws IOException {
+        if (dosOut != null) {
+            dosOut.flush();
         }
+    }
 
-        pwOut.println(data);
-        pwOut.flush();
+    /**
+     * Sends text to the client/server.
+     *
+     * @param data The string data to be set.
+     * @throws IOException Thrown when there is some sort of IO problem.
+     */
+    public void send(String data) throws IOException {
+        final byte[] text = data.getBytes(StandardCharsets.UTF_8);
+        final byte[] frame = new byte[text.length + 1];
+        frame[0] = TEXT_FRAME;
+        System.arraycopy(text, 0, frame, 1, text.length);
+        send(frame);
     }
 
     /**
@@ -94,18 +173,15 @@ public class TCPSocket {
      * @throws IOException Thrown when there is an IO problem.
      */
     public void close() throws IOException {
-        // close InputStream and Buffered reader
-        if (isInputStreamReader != null) {
-            isInputStreamReader.close();
-        }
-        if (brBufferedReader != null) {
-            brBufferedReader.close();
+        // close the data streams and the socket
+        if (disIn != null) {
+            disIn.close();
         }
         if (stSocket != null) {
             stSocket.close();
         }
-        if (pwOut != null) {
-            pwOut.close();
+        if (dosOut != null) {
+            dosOut.close();
         }
     }
 
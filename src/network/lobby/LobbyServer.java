@@ -0,0 +1,182 @@
+package network.lobby;
+
+import network.ConnectionListener;
+import network.NioConnection;
+import network.NioEventLoop;
+import network.TCPSocket;
+import network.party.network.HostStatus;
+import network.party.network.NetworkMessage;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A host that any number of party clients can connect to at once, instead of connecting to each other directly.
+ * Clients are matched up in pairs, in the order that they introduce themselves, and from then on every message from
+ * one member of a match is passed along to the other. To each client, its partner looks just like a directly
+ * connected peer: it is introduced by the partner's own CONNECTED message, and told DISCONNECTING when the partner
+ * leaves. Since both members connected as clients, the one that waited longer is told HOSTING first, so that it takes
+ * the part of the host, and the two don't both play the same side of a game.
+ * Everything runs on a single {@link NioEventLoop}, so one lobby can serve a whole floor of players.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class LobbyServer implements ConnectionListener {
+    private static final byte[] DISCONNECTING_FRAME = new NetworkMessage(HostStatus.DISCONNECTING).toFrame();
+    private static final byte[] HEARTBEAT_FRAME = new NetworkMessage(HostStatus.HEARTBEAT).toFrame();
+    private static final byte[] HOSTING_FRAME = new NetworkMessage(HostStatus.HOSTING).toFrame();
+
+    private final NioEventLoop loop;
+    // Clients that have introduced themselves but haven't been matched yet, longest waiting first.
+    private final Deque<LobbySession> waiting = new ArrayDeque<>();
+    private volatile int sessionCount, matchCount;
+
+    /**
+     * Instantiates a new lobby server. It doesn't accept anyone until started.
+     *
+     * @throws IOException Thrown if the event loop can't be created.
+     */
+    public LobbyServer() throws IOException {
+        loop = new NioEventLoop();
+    }
+
+    /**
+     * Starts accepting clients on the given port.
+     *
+     * @param port The port to listen on, or 0 for any free port.
+     * @return The port being listened on.
+     * @throws IOException Thrown if the port can't be bound.
+     */
+    public int start(final int port) throws IOException {
+        loop.start();
+        return loop.listen(port, this);
+    }
+
+    /**
+     * Stops the lobby, disconnecting every client.
+     */
+    public void stop() {
+        loop.stop();
+    }
+
+    /**
+     * Gets the number of clients connected to the lobby.
+     *
+     * @return The number of sessions.
+     */
+    public int getSessionCount() {
+        return sessionCount;
+    }
+
+    /**
+     * Gets the number of pairs of clients that are currently matched.
+     *
+     * @return The number of matches.
+     */
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    @Override
+    public void connected(NioConnection connection) {
+        connection.setAttachment(new LobbySession(connection));
+        sessionCount++;
+    }
+
+    @Override
+    public void frameReceived(NioConnection connection, byte[] frame) {
+        final LobbySession session = (LobbySession) connection.getAttachment();
+        try {
+            final HostStatus status = NetworkMessage.peekHostStatus(frame);
+            // Pings and heartbeats only measure the connection, and say nothing about what the client is doing.
+            if (status != HostStatus.PING && status != HostStatus.PONG && status != HostStatus.HEARTBEAT) {
+                session.setStatus(status);
+            }
+            if (status == HostStatus.CONNECTED && !session.hasGreeted()) {
+                session.setGreeting(frame, NetworkMessage.fromFrame(frame).getHostName());
+                match(session);
+            } else if (status == HostStatus.DISCONNECTING) {
+                // The partner is told by the client's own message, and the client closes the connection itself.
+                unmatch(session, frame);
+            } else if (session.getPartner() != null) {
+                session.getPartner().getConnection().send(frame);
+            } else {
+                // Nobody else is there to answer yet, so the lobby shows the client that it's still there itself.
+                connection.send(HEARTBEAT_FRAME);
+            }
+        } catch (IOException e) {
+            System.err.println("Disconnecting client that sent a malformed message.");
+            connection.close();
+        }
+    }
+
+    @Override
+    public void disconnected(NioConnection connection) {
+        final LobbySession session = (LobbySession) connection.getAttachment();
+        if (session != null) {
+            waiting.remove(session);
+            unmatch(session, DISCONNECTING_FRAME);
+            sessionCount--;
+        }
+    }
+
+    /**
+     * Matches a client that just introduced itself with the client that has been waiting longest, or has it wait if
+     * there isn't anyone.
+     *
+     * @param session The session of the client.
+     */
+    private void match(LobbySession session) {
+        final LobbySession other = waiting.poll();
+        if (other == null) {
+            waiting.add(session);
+        } else {
+            session.setPartner(other);
+            other.setPartner(session);
+            // The one that waited longer hosts, and is told so before meeting its partner.
+            other.getConnection().send(HOSTING_FRAME);
+            // Introduce each of them to the other, just like a directly connected peer would.
+            session.getConnection().send(other.getGreeting());
+            other.getConnection().send(session.getGreeting());
+            matchCount++;
+            System.out.println(String.format("Matched %s with %s.", other.getHostName(), session.getHostName()));
+        }
+    }
+
+    /**
+     * Ends the match that a client is in, if any, telling its partner with the given frame.
+     *
+     * @param session The session of the client leaving.
+     * @param frame   The DISCONNECTING frame to pass along to the partner.
+     */
+    private void unmatch(LobbySession session, byte[] frame) {
+        final LobbySession partner = session.getPartner();
+        if (partner != null) {
+            partner.getConnection().send(frame);
+            partner.setPartner(null);
+            session.setPartner(null);
+            matchCount--;
+        }
+    }
+
+    /**
+     * Runs a lobby server until the process is killed.
+     *
+     * @param args Command-line arguments: [port]. Defaults to {@link TCPSocket#DEFAULT_PORT}.
+     * @throws IOException          Thrown if the lobby can't be started.
+     * @throws InterruptedException Thrown if interrupted while running.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final int port = (args.length > 0) ? Integer.parseInt(args[0]) : TCPSocket.DEFAULT_PORT;
+        final LobbyServer server = new LobbyServer();
+        System.out.println("Lobby listening on port " + server.start(port) + ".");
+        while (true) {
+            Thread.sleep(60_000);
+            System.out.println(String.format("%d clients connected, %d matches.", server.getSessionCount(),
+                    server.getMatchCount()));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package network.lobby;
+
+import network.NioConnection;
+import network.party.network.HostStatus;
+
+/**
+ * What a {@link LobbyServer} keeps track of for each connected client.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class LobbySession {
+    private final NioConnection connection;
+    private String hostName;
+    private HostStatus status;
+    // The CONNECTED message that the client introduced itself with, passed on to whoever it is matched with.
+    private byte[] greeting;
+    private LobbySession partner;
+
+    /**
+     * Instantiates a new session for a client that just connected.
+     *
+     * @param connection The connection to the client.
+     */
+    LobbySession(NioConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Gets the connection to the client.
+     *
+     * @return The connection.
+     */
+    public NioConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Gets the host name that the client introduced itself with.
+     *
+     * @return The client's host name, or null if it hasn't introduced itself yet.
+     */
+    public String getHostName() {
+        return hostName;
+    }
+
+    /**
+     * Gets the status of the client, as of the last message it sent.
+     *
+     * @return The client's status, or null if it hasn't sent anything yet.
+     */
+    public HostStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Sets the status of the client.
+     *
+     * @param status The client's status.
+     */
+    void setStatus(HostStatus status) {
+        this.status = status;
+    }
+
+    /**
+     * Determines if the client has introduced itself, which it must do before it can be matched.
+     *
+     * @return True if the client has introduced itself, false otherwise.
+     */
+    public boolean hasGreeted() {
+        return greeting != null;
+    }
+
+    /**
+     * Gets the frame of the message that the client introduced itself with.
+     *
+     * @return The greeting frame.
+     */
+    byte[] getGreeting() {
+        return greeting;
+    }
+
+    /**
+     * Records how the client introduced itself.
+     *
+     * @param greeting The frame of the client's CONNECTED message.
+     * @param hostName The host name in the message.
+     */
+    void setGreeting(byte[] greeting, String hostName) {
+        this.greeting = greeting;
+        this.hostName = hostName;
+    }
+
+    /**
+     * Gets the client that this one is matched with.
+     *
+     * @return The partner's session, or null if not matched.
+     */
+    public LobbySession getPartner() {
+        return partner;
+    }
+
+    /**
+     * Sets the client that this one is matched with.
+     *
+     * @param partner The partner's session, or null if not matched.
+     */
+    void setPartner(LobbySession partner) {
+        this.partner = partner;
+    }
+}
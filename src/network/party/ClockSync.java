@@ -0,0 +1,183 @@
+package network.party;
+
+import network.party.network.HostStatus;
+import network.party.network.NetworkMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Works out how far the other user's clock is from this one, the way NTP does, so that both users can share a clock.
+ * Every so often a {@link HostStatus#PING} is sent with the time it left. The other user answers with a
+ * {@link HostStatus#PONG} holding that time, when the ping arrived and when the answer left. From those four times
+ * come both the round trip time, and the offset between the clocks, assuming that the trip there took as long as
+ * the trip back. Of the last few answers, the one with the shortest round trip is trusted, since it was held up least.
+ * Both users do this, and the shared clock is halfway between the two clocks, so that both agree on it without either
+ * having to be in charge. The shared clock never goes backwards once synchronized, which makes it safe to measure
+ * latency with.
+ * All times are from {@link System#nanoTime()}, so changes to either machine's wall clock don't matter.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class ClockSync {
+    /**
+     * How often (in milliseconds) a ping is sent to the other user once synchronized.
+     */
+    public static final long PING_INTERVAL = 1000;
+    /**
+     * How often (in milliseconds) a ping is sent to the other user at first, to have a good estimate quickly.
+     */
+    public static final long FIRST_PING_INTERVAL = 100;
+    // How many of the latest answers to pick the best from.
+    private static final int SAMPLES = 8;
+    private static final int PING_SIZE = Long.BYTES, PONG_SIZE = 3 * Long.BYTES;
+
+    // The latest answers, in a ring.
+    private final long[] offsets = new long[SAMPLES], roundTrips = new long[SAMPLES];
+    private int next, count, pingsSent;
+    private long lastPingTime;
+    // Other clock minus this clock, and the round trip, of the best answer. Both in nanoseconds.
+    private volatile long offset, roundTripTime;
+    private volatile boolean synced;
+    // Latest time the shared clock has given out, so that it never goes backwards.
+    private final AtomicLong lastTime = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Gets the time from this machine's own clock.
+     *
+     * @return The local time, in nanoseconds.
+     */
+    private static long localTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Creates a ping to be sent to the other user, if it's time for one. Meant to be called every
+     * {@link #FIRST_PING_INTERVAL}: the first few pings are sent quickly, and the rest every {@link #PING_INTERVAL}.
+     *
+     * @return The ping message, or null if it isn't time yet.
+     */
+    public synchronized NetworkMessage createPing() {
+        final long now = localTime();
+        NetworkMessage ping = null;
+        if (pingsSent < SAMPLES || now - lastPingTime >= PING_INTERVAL * 1_000_000L) {
+            pingsSent = Math.min(pingsSent + 1, SAMPLES);
+            lastPingTime = now;
+            ping = new NetworkMessage(HostStatus.PING, ByteBuffer.allocate(PING_SIZE).putLong(now).array());
+        }
+        return ping;
+    }
+
+    /**
+     * Creates the answer to a ping from the other user. Should be called as soon as the ping arrives.
+     *
+     * @param ping        The ping.
+     * @param arrivalTime The local time that the ping arrived, from {@link System#nanoTime()}.
+     * @return The pong message to send back.
+     * @throws IOException Thrown if the ping is malformed.
+     */
+    public static NetworkMessage answer(NetworkMessage ping, final long arrivalTime) throws IOException {
+        final long sent = read(ping, PING_SIZE).getLong();
+        final ByteBuffer buffer = ByteBuffer.allocate(PONG_SIZE).putLong(sent).putLong(arrivalTime).putLong(localTime());
+        return new NetworkMessage(HostStatus.PONG, buffer.array());
+    }
+
+    /**
+     * Takes the answer to one of this user's pings into account.
+     *
+     * @param pong        The pong.
+     * @param arrivalTime The local time that the pong arrived, from {@link System#nanoTime()}.
+     * @return The round trip time of this answer, in nanoseconds, or -1 if it can't be trusted.
+     * @throws IOException Thrown if the pong is malformed.
+     */
+    public synchronized long pongReceived(NetworkMessage pong, final long arrivalTime) throws IOException {
+        final ByteBuffer buffer = read(pong, PONG_SIZE);
+        final long pingSent = buffer.getLong(), pingArrived = buffer.getLong(), pongSent = buffer.getLong();
+        // The time spent getting there and back, leaving out however long the other user took to answer.
+        final long roundTrip = (arrivalTime - pingSent) - (pongSent - pingArrived);
+        // Anything else is a pong that doesn't match a ping, and can't be trusted.
+        if (roundTrip >= 0 && arrivalTime >= pingSent) {
+            offsets[next] = ((pingArrived - pingSent) + (pongSent - arrivalTime)) / 2;
+            roundTrips[next] = roundTrip;
+            next = (next + 1) % SAMPLES;
+            count = Math.min(count + 1, SAMPLES);
+
+            int best = 0;
+            for (int i = 1; i < count; i++) {
+                if (roundTrips[i] < roundTrips[best]) {
+                    best = i;
+                }
+            }
+            offset = offsets[best];
+            roundTripTime = roundTrips[best];
+            synced = true;
+        }
+        return (roundTrip >= 0 && arrivalTime >= pingSent) ? roundTrip : -1;
+    }
+
+    /**
+     * Reads the times in a ping or pong.
+     *
+     * @param message The message.
+     * @param size    The size that the message's data should be.
+     * @return A buffer of the message's data.
+     * @throws IOException Thrown if the data isn't the right size.
+     */
+    private static ByteBuffer read(NetworkMessage message, final int size) throws IOException {
+        final byte[] data = message.getGameData();
+        if (data == null || data.length != size) {
+            throw new IOException("Malformed clock message.");
+        }
+        return ByteBuffer.wrap(data);
+    }
+
+    /**
+     * Determines if an answer has come back from the other user, so that the shared clock is actually shared.
+     *
+     * @return True if synchronized, false otherwise.
+     */
+    public boolean isSynchronized() {
+        return synced;
+    }
+
+    /**
+     * Gets the time of the shared clock. Until synchronized, this is just the local clock.
+     *
+     * @return The shared time, in nanoseconds.
+     */
+    public long nanoTime() {
+        final long time = localTime() + offset / 2;
+        // Refining the offset may move the clock back a little, in which case it waits for time to catch up.
+        return synced ? lastTime.accumulateAndGet(time, Math::max) : time;
+    }
+
+    /**
+     * Gets the time of the shared clock in milliseconds.
+     *
+     * @return The shared time, in milliseconds.
+     */
+    public long currentTimeMillis() {
+        return nanoTime() / 1_000_000L;
+    }
+
+    /**
+     * Gets the round trip time to the other user, as of the best recent answer.
+     *
+     * @return The round trip time, in nanoseconds, or 0 if not synchronized.
+     */
+    public long getRoundTripTime() {
+        return roundTripTime;
+    }
+
+    /**
+     * Gets how far ahead the other user's clock is of this one.
+     *
+     * @return The offset, in nanoseconds, or 0 if not synchronized.
+     */
+    public long getOffset() {
+        return offset;
+    }
+}
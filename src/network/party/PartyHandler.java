@@ -3,35 +3,31 @@ package network.party;
 import advancedIO.AdvancedIO;
 import network.Client;
 import network.Server;
-import network.TCPSocket;
+import network.party.network.ConnectionStats;
 import network.party.network.NetworkMessage;
 import network.party.network.ReceivedDataEvent;
-import network.party.network.ReceiverTask;
-import network.party.network.SenderTask;
 
 import java.io.IOException;
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 
 /**
- * Class for handling a party with another user.
+ * Class for handling a party with another user. Keeps track of the application's current {@link PartySession}, so that
+ * the rest of the application doesn't need to pass one around. Each time a party is connected or hosted, a new session
+ * is started with the listeners set here.
  *
  * @author Kyle Anderson
  * ICS4U RST
  */
 public class PartyHandler {
-    private static PartyRole role;
-    private static TCPSocket socket;
+    private static volatile PartySession session = new PartySession();
 
-    // Queues for communicating cross-thread.
-    private static Queue<NetworkMessage> outgoingQueue, incomingQueue;
-    private static ReceiverTask incomingTask;
-    private static SenderTask outgoingTask;
-    private static Consumer<ReceivedDataEvent> incomingListener;
-    private static Runnable receiverClosedListener;
+    private static volatile Consumer<ReceivedDataEvent> incomingListener;
+    private static volatile Consumer<NetworkMessage> inGameListener;
+    private static volatile Runnable receiverClosedListener;
+    private static volatile long heartbeatInterval = PartySession.DEFAULT_HEARTBEAT_INTERVAL;
+    private static volatile long heartbeatTimeout = PartySession.DEFAULT_HEARTBEAT_TIMEOUT;
 
     /**
      * Begins a party session with the user at the given IP address.
@@ -43,19 +39,8 @@ public class PartyHandler {
     public static boolean connect(final String ip, final int port) {
         boolean didConnect = false;
         if (!isConnected()) {
-            try {
-                Client client = new Client();
-                client.connect(ip, port);
-                didConnect = true;
-                socket = client;
-            } catch (IOException ignored) {
-            }
+            didConnect = startSession().connect(ip, port);
         }
-        if (didConnect) {
-            role = PartyRole.CLIENT;
-            setupConnection();
-        }
-
         return didConnect;
     }
 
@@ -67,35 +52,40 @@ public class PartyHandler {
      */
     public static void host(final int port) throws IOException {
         if (!isConnected()) {
-            role = PartyRole.SERVER;
-            Server server = new Server(port);
-            socket = server;
-            server.accept();
-            if (isConnected()) {
-                setupConnection();
-            }
+            startSession().host(port);
         }
     }
 
+    /**
+     * Replaces the current session with a new one, disconnecting the current session if it's still going.
+     *
+     * @return The new session.
+     */
+    private static PartySession startSession() {
+        session.disconnect();
+        final PartySession newSession = new PartySession();
+        newSession.setIncomingMessageListener(incomingListener);
+        newSession.setInGameMessageListener(inGameListener);
+        newSession.setOnReceiverClosed(receiverClosedListener);
+        newSession.setHeartbeat(heartbeatInterval, heartbeatTimeout);
+        session = newSession;
+        return newSession;
+    }
+
+    /**
+     * Gets the current party session.
+     *
+     * @return The session.
+     */
+    public static PartySession getSession() {
+        return session;
+    }
+
     /**
      * Disconnects from the party.
      */
     public static void disconnect() {
-        // Only try to disconnect if connected.
-        if (incomingTask != null) {
-            incomingTask.cancel(true);
-        }
-        if (outgoingTask != null) {
-            outgoingTask.cancel(true);
-        }
-        if (socket != null) {
-            try {
-                socket.close();
-            } catch (IOException e) {
-                System.err.println("Failed to close socket.");
-            }
-        }
-        role = null;
+        session.disconnect();
     }
 
     /**
@@ -104,7 +94,7 @@ public class PartyHandler {
      * @return The role of the local user.
      */
     public static PartyRole getRole() {
-        return role;
+        return session.getRole();
     }
 
     /**
@@ -113,7 +103,7 @@ public class PartyHandler {
      * @return True if there is a party in session, false otherwise.
      */
     public static boolean isConnected() {
-        return role != null && socket.isConnected();
+        return session.isConnected();
     }
 
     /**
@@ -122,7 +112,7 @@ public class PartyHandler {
      * @return The Client object.,
      */
     public static Client getClient() {
-        return (getRole() == PartyRole.CLIENT && socket instanceof Client) ? (Client) socket : null;
+        return session.getClient();
     }
 
     /**
@@ -131,27 +121,61 @@ public class PartyHandler {
      * @return The Server object.
      */
     public static Server getServer() {
-        return (getRole() == PartyRole.SERVER && socket instanceof Server) ? (Server) socket : null;
+        return session.getServer();
     }
 
     /**
-     * Gets the TCP socket object for the party.
+     * Sends a message to the other client.
      *
-     * @return The TCP socket object.
+     * @param message The string to be sent.
      */
-    private static TCPSocket getTCPSocket() {
-        return socket;
+    public static void sendMessage(NetworkMessage message) {
+        session.sendMessage(message);
     }
 
     /**
-     * Sends a message to the other client.
+     * Gets the clock shared with the other client in the current session.
      *
-     * @param message The string to be sent.
+     * @return The shared clock.
      */
-    public static void sendMessage(NetworkMessage message) {
-        if (isConnected()) {
-            outgoingQueue.add(message);
-        }
+    public static ClockSync getClock() {
+        return session.getClock();
+    }
+
+    /**
+     * Gets the measurements of how the connection to the other client in the current session is doing.
+     *
+     * @return The connection stats.
+     */
+    public static ConnectionStats getStats() {
+        return session.getStats();
+    }
+
+    /**
+     * Gets the number of messages waiting to be sent to the other client.
+     *
+     * @return The number of outgoing messages.
+     */
+    public static int getOutgoingDepth() {
+        return session.getOutgoingDepth();
+    }
+
+    /**
+     * Gets the most messages that have been waiting to be sent to the other client at once.
+     *
+     * @return The peak number of outgoing messages.
+     */
+    public static int getOutgoingPeakDepth() {
+        return session.getOutgoingPeakDepth();
+    }
+
+    /**
+     * Gets the number of latest only messages that were replaced by newer ones before they were sent.
+     *
+     * @return The number of dropped outgoing messages.
+     */
+    public static long getDroppedOutgoing() {
+        return session.getDroppedOutgoing();
     }
 
     /**
@@ -160,7 +184,7 @@ public class PartyHandler {
      * @return The incoming message.
      */
     public static NetworkMessage pollIncoming() {
-        return incomingQueue.poll();
+        return session.pollIncoming();
     }
 
     /**
@@ -169,7 +193,7 @@ public class PartyHandler {
      * @return The incoming messages to be read.
      */
     public static boolean hasIncomingMessages() {
-        return !incomingQueue.isEmpty();
+        return session.hasIncomingMessages();
     }
 
     /**
@@ -179,34 +203,19 @@ public class PartyHandler {
      */
     public static void setIncomingMessageListener(Consumer<ReceivedDataEvent> listener) {
         incomingListener = listener;
-        if (incomingTask != null) {
-            incomingTask.addListener(listener);
-        }
+        session.setIncomingMessageListener(listener);
     }
 
     /**
-     * Sets up everything necessary for the multiplayer connection to be monitored.
+     * Sets a listener to be given in game messages as soon as they are received, on the receiving thread rather than
+     * the JavaFX application thread. While set, in game messages aren't queued for {@link #pollIncoming()}.
+     *
+     * @param listener The listener for in game messages, which must be safe to call from any thread, or null to
+     *                 queue them like any other message.
      */
-    private static void setupConnection() {
-        outgoingQueue = new ArrayBlockingQueue<>(15);
-        outgoingTask = new SenderTask(getTCPSocket(), outgoingQueue);
-        outgoingTask.setOnFailed(event -> receiverClosed());
-        outgoingTask.setOnSucceeded(event -> receiverClosed());
-        outgoingTask.setOnCancelled(event -> receiverClosed());
-
-        incomingQueue = new ArrayBlockingQueue<>(15);
-        incomingTask = new ReceiverTask(getTCPSocket(), incomingQueue);
-        incomingTask.setOnSucceeded(event -> receiverClosed());
-        incomingTask.setOnFailed(event -> receiverClosed());
-        incomingTask.setOnCancelled(event -> receiverClosed());
-        if (incomingListener != null) {
-            incomingTask.addListener(incomingListener);
-        }
-
-        ExecutorService executorService = createFixedTimeoutExecutorService(2);
-        executorService.execute(outgoingTask);
-        executorService.execute(incomingTask);
-        executorService.shutdown();
+    public static void setInGameMessageListener(Consumer<NetworkMessage> listener) {
+        inGameListener = listener;
+        session.setInGameMessageListener(listener);
     }
 
     /**
@@ -227,13 +236,18 @@ public class PartyHandler {
     }
 
     /**
-     * Called when the incoming messages task closes.
+     * Sets how often heartbeats are sent, and how long to wait for the other user before disconnecting, for every
+     * session started from now on. See {@link PartySession#setHeartbeat(long, long)}.
+     *
+     * @param interval Longest time (in milliseconds) to go without sending anything before sending a heartbeat.
+     * @param timeout  Longest time (in milliseconds) to go without hearing from the other user before disconnecting.
      */
-    private static void receiverClosed() {
-        disconnect();
-        if (receiverClosedListener != null) {
-            receiverClosedListener.run();
+    public static void setHeartbeat(final long interval, final long timeout) {
+        if (interval <= 0 || timeout <= 0) {
+            throw new IllegalArgumentException("Heartbeat interval and timeout must be positive.");
         }
+        heartbeatInterval = interval;
+        heartbeatTimeout = timeout;
     }
 
     /**
@@ -243,6 +257,7 @@ public class PartyHandler {
      */
     public static void setOnReceiverClosed(Runnable action) {
         receiverClosedListener = action;
+        session.setOnReceiverClosed(action);
     }
 
     /**
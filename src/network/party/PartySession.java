@@ -0,0 +1,514 @@
+package network.party;
+
+import javafx.application.Platform;
+import network.Client;
+import network.Server;
+import network.TCPSocket;
+import network.party.network.ConnectionStats;
+import network.party.network.HostStatus;
+import network.party.network.NetworkMessage;
+import network.party.network.OutgoingQueue;
+import network.party.network.ReceivedDataEvent;
+import network.party.network.ReceiverTask;
+import network.party.network.SenderTask;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * A party with one other user, over its own connection. Any number of sessions can run in the same process without
+ * affecting each other, and every method may be called from any thread.
+ * A session goes through the {@link PartyState states} once: it connects (or hosts) once, and once disconnected a new
+ * session is needed to connect again. Changes of state are made with compare-and-set, so when several threads race to
+ * connect or disconnect, exactly one of them does.
+ * While connected, the session keeps a {@link ClockSync clock} shared with the other user, and sends a heartbeat
+ * whenever it has sent nothing else for a while. If nothing at all arrives from the other user within the heartbeat
+ * timeout, the session disconnects, rather than waiting minutes for TCP to notice that they have gone.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class PartySession {
+    /**
+     * Default longest time (in milliseconds) to go without sending anything before sending a heartbeat.
+     */
+    public static final long DEFAULT_HEARTBEAT_INTERVAL = 200;
+    /**
+     * Default longest time (in milliseconds) to go without hearing from the other user before disconnecting.
+     */
+    public static final long DEFAULT_HEARTBEAT_TIMEOUT = 1000;
+    // Sends every session's pings and heartbeats, so that sessions don't need a thread each just to wait.
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "Party timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicReference<PartyState> state = new AtomicReference<>(PartyState.NEW);
+    private final Executor notifier;
+    private volatile PartyRole role;
+    private volatile TCPSocket socket;
+
+    // Queues for communicating cross-thread.
+    private final OutgoingQueue outgoingQueue = new OutgoingQueue();
+    // Unbounded, since the listener may fall behind for a moment but takes everything once it catches up.
+    private final BlockingQueue<NetworkMessage> incomingQueue = new LinkedBlockingQueue<>();
+    private volatile ReceiverTask incomingTask;
+    private volatile Future<?> incomingFuture, outgoingFuture, pingFuture, statsFuture, heartbeatFuture;
+    private volatile long heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL, heartbeatTimeout = DEFAULT_HEARTBEAT_TIMEOUT;
+    // When the session finished connecting, by System.nanoTime(), for timing out if nothing ever arrives.
+    private volatile long connectedTime;
+    private final ClockSync clock = new ClockSync();
+    private final ConnectionStats stats = new ConnectionStats(outgoingQueue, incomingQueue);
+    private volatile Consumer<ReceivedDataEvent> incomingListener;
+    private volatile Consumer<NetworkMessage> inGameListener;
+    private volatile Runnable receiverClosedListener;
+
+    /**
+     * Instantiates a new session whose listeners are notified on the JavaFX application thread.
+     */
+    public PartySession() {
+        this(Platform::runLater);
+    }
+
+    /**
+     * Instantiates a new session whose listeners are notified by the given executor, for running without JavaFX.
+     *
+     * @param notifier Runs the notifications to the listeners.
+     */
+    public PartySession(Executor notifier) {
+        this.notifier = notifier;
+    }
+
+    /**
+     * Begins the party by connecting to the user at the given IP address.
+     *
+     * @param ip   The ip address.
+     * @param port The port on which the connection should be made.
+     * @return True if the connection attempt is successful, false otherwise, or if this session already connected.
+     */
+    public boolean connect(final String ip, final int port) {
+        boolean didConnect = false;
+        if (state.compareAndSet(PartyState.NEW, PartyState.CONNECTING)) {
+            role = PartyRole.CLIENT;
+            try {
+                Client client = new Client();
+                socket = client;
+                client.connect(ip, port);
+                didConnect = finishConnecting();
+            } catch (IOException e) {
+                disconnect();
+            }
+        }
+        return didConnect;
+    }
+
+    /**
+     * Begins the party by hosting it on this user's machine. NOTE - Blocks until the other user connects, so run in
+     * a separate thread. Disconnecting while waiting stops the wait.
+     *
+     * @param port The port on which the hosting should be done.
+     * @throws IOException if creating the server fails, or it is closed while waiting.
+     */
+    public void host(final int port) throws IOException {
+        if (state.compareAndSet(PartyState.NEW, PartyState.CONNECTING)) {
+            role = PartyRole.SERVER;
+            try {
+                Server server = new Server(port);
+                socket = server;
+                // If disconnected before the socket was set, it wasn't closed, so don't wait on it.
+                if (state.get() == PartyState.CONNECTING) {
+                    server.accept();
+                    finishConnecting();
+                } else {
+                    server.close();
+                }
+            } catch (IOException e) {
+                disconnect();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Starts sending and receiving once the socket is connected, unless the session was disconnected meanwhile.
+     *
+     * @return True if the session is now connected, false if it was disconnected.
+     */
+    private boolean finishConnecting() {
+        final TCPSocket connectedSocket = socket;
+        final ExecutorService executorService = PartyHandler.createFixedTimeoutExecutorService(2);
+
+        final SenderTask outgoingTask = new SenderTask(connectedSocket, outgoingQueue, stats);
+        final ReceiverTask receiverTask = new ReceiverTask(connectedSocket, incomingQueue, notifier, stats);
+        incomingTask = receiverTask;
+        receiverTask.addListener(incomingListener);
+        receiverTask.setInGameListener(inGameListener);
+        receiverTask.setSessionListener(this::sessionMessageReceived);
+
+        // Once either side stops, the whole session is done.
+        outgoingFuture = executorService.submit(() -> runThenDisconnect(outgoingTask));
+        incomingFuture = executorService.submit(() -> runThenDisconnect(receiverTask));
+        executorService.shutdown();
+        pingFuture = TIMER.scheduleAtFixedRate(this::ping, 0, ClockSync.FIRST_PING_INTERVAL, TimeUnit.MILLISECONDS);
+        statsFuture = TIMER.scheduleAtFixedRate(stats::sample, 1, 1, TimeUnit.SECONDS);
+        connectedTime = System.nanoTime();
+        heartbeatFuture = TIMER.scheduleAtFixedRate(this::heartbeat, heartbeatInterval, heartbeatInterval,
+                TimeUnit.MILLISECONDS);
+
+        final boolean connected = state.compareAndSet(PartyState.CONNECTING, PartyState.CONNECTED);
+        // Whoever disconnected might have missed the tasks, so make sure they're stopped.
+        if (!connected) {
+            close(false);
+        }
+        return connected;
+    }
+
+    /**
+     * Sends a ping to the other user, if the clock wants one.
+     */
+    private void ping() {
+        final NetworkMessage message = clock.createPing();
+        if (message != null) {
+            sendMessage(message);
+        }
+    }
+
+    /**
+     * Sends a heartbeat to the other user if nothing else has been sent for a whole interval, and disconnects if
+     * nothing at all has arrived from them within the timeout. Disconnecting closes the socket, so the receiving
+     * task stops and the listener is told {@link ReceivedDataEvent#DISCONNECTED} as usual.
+     */
+    private void heartbeat() {
+        final long sentAge = stats.getLastSentAge();
+        if (outgoingQueue.size() == 0 && (sentAge < 0 || sentAge >= heartbeatInterval * 1_000_000L)) {
+            sendMessage(new NetworkMessage(HostStatus.HEARTBEAT));
+        }
+
+        long receivedAge = stats.getLastMessageAge();
+        if (receivedAge < 0) {
+            receivedAge = System.nanoTime() - connectedTime;
+        }
+        if (receivedAge >= heartbeatTimeout * 1_000_000L) {
+            System.err.println("Other user stopped responding, disconnecting.");
+            disconnect();
+        }
+    }
+
+    /**
+     * Handles a message meant for the session itself, rather than the application. Called on the receiving thread as
+     * soon as the message arrives.
+     *
+     * @param message The ping, pong or role.
+     */
+    private void sessionMessageReceived(NetworkMessage message) {
+        if (message.getHostStatus() == HostStatus.HOSTING) {
+            // A lobby connects two clients to each other, and picks one of them to act as the host.
+            role = PartyRole.SERVER;
+        } else {
+            clockMessageReceived(message);
+        }
+    }
+
+    /**
+     * Answers a ping from the other user, or takes an answer to one of this user's pings into account. Called on the
+     * receiving thread as soon as the message arrives.
+     *
+     * @param message The ping or pong.
+     */
+    private void clockMessageReceived(NetworkMessage message) {
+        final long arrivalTime = System.nanoTime();
+        try {
+            if (message.getHostStatus() == HostStatus.PING) {
+                sendMessage(ClockSync.answer(message, arrivalTime));
+            } else {
+                final long roundTripTime = clock.pongReceived(message, arrivalTime);
+                if (roundTripTime >= 0) {
+                    stats.roundTripMeasured(roundTripTime);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Received malformed clock message.");
+        }
+    }
+
+    /**
+     * Runs a task, and then disconnects the session.
+     *
+     * @param task The task.
+     */
+    private void runThenDisconnect(Runnable task) {
+        task.run();
+        disconnect();
+    }
+
+    /**
+     * Disconnects from the party. The receiver closed listener is notified, if the session was connected.
+     */
+    public void disconnect() {
+        PartyState previous = state.get();
+        while (isOpen(previous) && !state.compareAndSet(previous, PartyState.DISCONNECTING)) {
+            previous = state.get();
+        }
+        // Only the thread that moved the session to disconnecting closes it.
+        if (isOpen(previous)) {
+            close(previous == PartyState.CONNECTED);
+        }
+    }
+
+    /**
+     * Determines if a session in the given state still needs to be disconnected.
+     *
+     * @param state The state.
+     * @return True if not yet disconnecting or closed, false otherwise.
+     */
+    private static boolean isOpen(PartyState state) {
+        return state != PartyState.DISCONNECTING && state != PartyState.CLOSED;
+    }
+
+    /**
+     * Stops the tasks and closes the socket. Safe to call more than once.
+     *
+     * @param notify True to notify the receiver closed listener.
+     */
+    private void close(boolean notify) {
+        final Future<?> incoming = incomingFuture, outgoing = outgoingFuture, ping = pingFuture, sampling = statsFuture;
+        final Future<?> heart = heartbeatFuture;
+        if (ping != null) {
+            ping.cancel(false);
+        }
+        if (heart != null) {
+            heart.cancel(false);
+        }
+        if (sampling != null) {
+            sampling.cancel(false);
+        }
+        if (incoming != null) {
+            incoming.cancel(true);
+        }
+        if (outgoing != null) {
+            outgoing.cancel(true);
+        }
+        final TCPSocket closingSocket = socket;
+        if (closingSocket != null) {
+            try {
+                closingSocket.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close socket.");
+            }
+        }
+        role = null;
+        state.set(PartyState.CLOSED);
+
+        final Runnable listener = receiverClosedListener;
+        if (notify && listener != null) {
+            notifier.execute(listener);
+        }
+    }
+
+    /**
+     * Gets the state of the session.
+     *
+     * @return The current state.
+     */
+    public PartyState getState() {
+        return state.get();
+    }
+
+    /**
+     * Gets the role of this user in the party, either client or server. A user that connected to a lobby starts out
+     * as a client, and becomes the server if the lobby says so when matching it with the other user.
+     *
+     * @return The role of the local user, or null once disconnected.
+     */
+    public PartyRole getRole() {
+        return role;
+    }
+
+    /**
+     * Determines if the party is in session.
+     *
+     * @return True if connected, false otherwise.
+     */
+    public boolean isConnected() {
+        final TCPSocket connectedSocket = socket;
+        return state.get() == PartyState.CONNECTED && connectedSocket != null && connectedSocket.isConnected();
+    }
+
+    /**
+     * Gets the client object for the client local party member, if the local user connected rather than hosting.
+     *
+     * @return The Client object.
+     */
+    public Client getClient() {
+        final TCPSocket connectedSocket = socket;
+        return (getRole() != null && connectedSocket instanceof Client) ? (Client) connectedSocket : null;
+    }
+
+    /**
+     * Gets the server object for the server local party member, if the local user is hosting.
+     *
+     * @return The Server object.
+     */
+    public Server getServer() {
+        final TCPSocket connectedSocket = socket;
+        return (getRole() != null && connectedSocket instanceof Server) ? (Server) connectedSocket : null;
+    }
+
+    /**
+     * Sends a message to the other user, if connected. If so many messages are waiting that the outgoing queue is
+     * full, the other user can't keep up with the session at all, so it disconnects.
+     *
+     * @param message The message to be sent.
+     */
+    public void sendMessage(NetworkMessage message) {
+        if (isConnected() && !outgoingQueue.add(message)) {
+            System.err.println("Too many messages waiting to be sent, disconnecting.");
+            disconnect();
+        }
+    }
+
+    /**
+     * Gets the clock shared with the other user, which also knows the round trip time to them.
+     *
+     * @return The shared clock.
+     */
+    public ClockSync getClock() {
+        return clock;
+    }
+
+    /**
+     * Sets how often heartbeats are sent, and how long to wait for the other user before giving up on them. Only takes
+     * effect if set before connecting. The timeout should be a few intervals long, so that a heartbeat or two can be
+     * late without disconnecting.
+     *
+     * @param interval Longest time (in milliseconds) to go without sending anything before sending a heartbeat.
+     * @param timeout  Longest time (in milliseconds) to go without hearing from the other user before disconnecting.
+     */
+    public void setHeartbeat(final long interval, final long timeout) {
+        if (interval <= 0 || timeout <= 0) {
+            throw new IllegalArgumentException("Heartbeat interval and timeout must be positive.");
+        }
+        heartbeatInterval = interval;
+        heartbeatTimeout = timeout;
+    }
+
+    /**
+     * Gets the longest time to go without sending anything before sending a heartbeat.
+     *
+     * @return The heartbeat interval, in milliseconds.
+     */
+    public long getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    /**
+     * Gets the longest time to go without hearing from the other user before disconnecting.
+     *
+     * @return The heartbeat timeout, in milliseconds.
+     */
+    public long getHeartbeatTimeout() {
+        return heartbeatTimeout;
+    }
+
+    /**
+     * Gets the measurements of how the connection to the other user is doing.
+     *
+     * @return The connection stats.
+     */
+    public ConnectionStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Gets the number of messages waiting to be sent to the other user.
+     *
+     * @return The number of outgoing messages.
+     */
+    public int getOutgoingDepth() {
+        return outgoingQueue.size();
+    }
+
+    /**
+     * Gets the most messages that have been waiting to be sent to the other user at once.
+     *
+     * @return The peak number of outgoing messages.
+     */
+    public int getOutgoingPeakDepth() {
+        return outgoingQueue.getPeakDepth();
+    }
+
+    /**
+     * Gets the number of latest only messages that were replaced by newer ones before they were sent.
+     *
+     * @return The number of dropped outgoing messages.
+     */
+    public long getDroppedOutgoing() {
+        return outgoingQueue.getDroppedCount();
+    }
+
+    /**
+     * Polls for incoming messages from the other user, removing them once accessed.
+     *
+     * @return The incoming message, or null if there isn't one.
+     */
+    public NetworkMessage pollIncoming() {
+        return incomingQueue.poll();
+    }
+
+    /**
+     * Determines if there are incoming messages from the other user waiting.
+     *
+     * @return True if there are incoming messages to be read, false otherwise.
+     */
+    public boolean hasIncomingMessages() {
+        return !incomingQueue.isEmpty();
+    }
+
+    /**
+     * Sets a listener which will be notified when the session receives data from the other user.
+     *
+     * @param listener The listener to be called when data is received.
+     */
+    public void setIncomingMessageListener(Consumer<ReceivedDataEvent> listener) {
+        incomingListener = listener;
+        final ReceiverTask task = incomingTask;
+        if (task != null) {
+            task.addListener(listener);
+        }
+    }
+
+    /**
+     * Sets a listener to be given in game messages as soon as they are received, on the receiving thread rather than
+     * through the notifier. While set, in game messages aren't queued for {@link #pollIncoming()}.
+     *
+     * @param listener The listener for in game messages, which must be safe to call from any thread, or null to
+     *                 queue them like any other message.
+     */
+    public void setInGameMessageListener(Consumer<NetworkMessage> listener) {
+        inGameListener = listener;
+        final ReceiverTask task = incomingTask;
+        if (task != null) {
+            task.setInGameListener(listener);
+        }
+    }
+
+    /**
+     * Sets an action to be performed once the connected session closes, for whatever reason.
+     *
+     * @param action The action to run.
+     */
+    public void setOnReceiverClosed(Runnable action) {
+        receiverClosedListener = action;
+    }
+}
@@ -0,0 +1,30 @@
+package network.party;
+
+/**
+ * The states that a {@link PartySession} goes through, in order. A session never goes back to an earlier state.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public enum PartyState {
+    /**
+     * Not yet connecting.
+     */
+    NEW,
+    /**
+     * Connecting to or waiting for the other user.
+     */
+    CONNECTING,
+    /**
+     * Connected, and able to send and receive messages.
+     */
+    CONNECTED,
+    /**
+     * Shutting down the connection.
+     */
+    DISCONNECTING,
+    /**
+     * Finished, whether or not it ever connected.
+     */
+    CLOSED
+}
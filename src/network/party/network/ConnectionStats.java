@@ -0,0 +1,260 @@
+package network.party.network;
+
+import java.util.Queue;
+
+/**
+ * Measurements of how a party connection is doing, for working out why a game feels laggy. The sending and receiving
+ * threads record every message, and the round trip time is recorded from each answered ping. Anything may then read
+ * the measurements from any thread.
+ * Each measurement has a single thread that records it, so recording needs no locks, and it never allocates, so it
+ * can be done for every message. Rates are worked out once a second by {@link #sample()}.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class ConnectionStats {
+    // Weights given to each new measurement when smoothing, as in TCP's round trip time estimate.
+    private static final double RTT_WEIGHT = 1.0 / 8, JITTER_WEIGHT = 1.0 / 4, SERIALIZATION_WEIGHT = 1.0 / 16;
+    // Each frame is preceded on the wire by its length.
+    private static final int FRAME_HEADER_SIZE = Integer.BYTES;
+
+    private final OutgoingQueue outgoingQueue;
+    private final Queue<?> incomingQueue;
+
+    // Totals so far, and the totals as of the last sample. Only recorded by the sending and receiving threads.
+    private volatile long messagesSent, bytesSent, messagesReceived, bytesReceived;
+    private long sampledMessagesSent, sampledBytesSent, sampledMessagesReceived, sampledBytesReceived, sampleTime;
+    // Rates over the last sample, per second.
+    private volatile double sentMessageRate, sentByteRate, receivedMessageRate, receivedByteRate;
+
+    // Smoothed times, in nanoseconds.
+    private volatile double roundTripTime, jitter, serializationTime, deserializationTime;
+    private volatile boolean hasRoundTripTime;
+    // When the last message was sent and arrived, by System.nanoTime(), and whether one has.
+    private volatile long lastSentTime, lastReceivedTime;
+    private volatile boolean hasSent, hasReceived;
+
+    /**
+     * Instantiates new stats for a connection.
+     *
+     * @param outgoingQueue The queue of messages waiting to be sent.
+     * @param incomingQueue The queue of messages received but not yet taken.
+     */
+    public ConnectionStats(OutgoingQueue outgoingQueue, Queue<?> incomingQueue) {
+        this.outgoingQueue = outgoingQueue;
+        this.incomingQueue = incomingQueue;
+        sampleTime = System.nanoTime();
+    }
+
+    /**
+     * Records a message that was just sent. Only called by the sending thread.
+     *
+     * @param frameSize         The size of the message's frame, in bytes.
+     * @param serializationTime How long it took to convert the message to a frame, in nanoseconds.
+     * @param sentTime          When the message was sent, by {@link System#nanoTime()}.
+     */
+    public void messageSent(final int frameSize, final long serializationTime, final long sentTime) {
+        messagesSent++;
+        bytesSent += frameSize + FRAME_HEADER_SIZE;
+        this.serializationTime = smooth(this.serializationTime, serializationTime, SERIALIZATION_WEIGHT,
+                messagesSent == 1);
+        lastSentTime = sentTime;
+        hasSent = true;
+    }
+
+    /**
+     * Records a message that was just received. Only called by the receiving thread.
+     *
+     * @param frameSize           The size of the message's frame, in bytes.
+     * @param deserializationTime How long it took to convert the frame to a message, in nanoseconds.
+     * @param arrivalTime         When the message arrived, by {@link System#nanoTime()}.
+     */
+    public void messageReceived(final int frameSize, final long deserializationTime, final long arrivalTime) {
+        messagesReceived++;
+        bytesReceived += frameSize + FRAME_HEADER_SIZE;
+        this.deserializationTime = smooth(this.deserializationTime, deserializationTime, SERIALIZATION_WEIGHT,
+                messagesReceived == 1);
+        lastReceivedTime = arrivalTime;
+        hasReceived = true;
+    }
+
+    /**
+     * Records the round trip time of an answered ping. Jitter is how much the round trip time varies from its
+     * average. Only called by the receiving thread.
+     *
+     * @param roundTripTime The round trip time, in nanoseconds.
+     */
+    public void roundTripMeasured(final long roundTripTime) {
+        if (hasRoundTripTime) {
+            jitter = smooth(jitter, Math.abs(this.roundTripTime - roundTripTime), JITTER_WEIGHT, false);
+            this.roundTripTime = smooth(this.roundTripTime, roundTripTime, RTT_WEIGHT, false);
+        } else {
+            jitter = roundTripTime / 2.0;
+            this.roundTripTime = roundTripTime;
+            hasRoundTripTime = true;
+        }
+    }
+
+    /**
+     * Works out the rates of messages and bytes since the last sample. Meant to be called once a second, by one
+     * thread.
+     */
+    public void sample() {
+        final long now = System.nanoTime();
+        final double seconds = (now - sampleTime) / 1e9;
+        if (seconds > 0) {
+            final long sentMessages = messagesSent, sentBytes = bytesSent;
+            final long receivedMessages = messagesReceived, receivedBytes = bytesReceived;
+            sentMessageRate = (sentMessages - sampledMessagesSent) / seconds;
+            sentByteRate = (sentBytes - sampledBytesSent) / seconds;
+            receivedMessageRate = (receivedMessages - sampledMessagesReceived) / seconds;
+            receivedByteRate = (receivedBytes - sampledBytesReceived) / seconds;
+            sampledMessagesSent = sentMessages;
+            sampledBytesSent = sentBytes;
+            sampledMessagesReceived = receivedMessages;
+            sampledBytesReceived = receivedBytes;
+            sampleTime = now;
+        }
+    }
+
+    /**
+     * Blends a new measurement into a smoothed one.
+     *
+     * @param smoothed The smoothed measurement.
+     * @param value    The new measurement.
+     * @param weight   The weight given to the new measurement.
+     * @param first    True if this is the first measurement, which is taken as it is.
+     * @return The new smoothed measurement.
+     */
+    private static double smooth(final double smoothed, final double value, final double weight, final boolean first) {
+        return first ? value : smoothed + (value - smoothed) * weight;
+    }
+
+    /**
+     * Gets the smoothed round trip time to the other user.
+     *
+     * @return The round trip time, in nanoseconds, or 0 if no ping has been answered yet.
+     */
+    public long getRoundTripTime() {
+        return (long) roundTripTime;
+    }
+
+    /**
+     * Gets how much the round trip time varies, on average.
+     *
+     * @return The jitter, in nanoseconds, or 0 if no ping has been answered yet.
+     */
+    public long getJitter() {
+        return (long) jitter;
+    }
+
+    /**
+     * Gets the number of messages sent per second, over the last second.
+     *
+     * @return The rate of messages sent.
+     */
+    public double getSentMessageRate() {
+        return sentMessageRate;
+    }
+
+    /**
+     * Gets the number of bytes sent per second, over the last second, counting the length before each frame.
+     *
+     * @return The rate of bytes sent.
+     */
+    public double getSentByteRate() {
+        return sentByteRate;
+    }
+
+    /**
+     * Gets the number of messages received per second, over the last second.
+     *
+     * @return The rate of messages received.
+     */
+    public double getReceivedMessageRate() {
+        return receivedMessageRate;
+    }
+
+    /**
+     * Gets the number of bytes received per second, over the last second, counting the length before each frame.
+     *
+     * @return The rate of bytes received.
+     */
+    public double getReceivedByteRate() {
+        return receivedByteRate;
+    }
+
+    /**
+     * Gets the total number of messages sent.
+     *
+     * @return The number of messages sent.
+     */
+    public long getMessagesSent() {
+        return messagesSent;
+    }
+
+    /**
+     * Gets the total number of messages received.
+     *
+     * @return The number of messages received.
+     */
+    public long getMessagesReceived() {
+        return messagesReceived;
+    }
+
+    /**
+     * Gets the number of messages waiting to be sent.
+     *
+     * @return The depth of the outgoing queue.
+     */
+    public int getOutgoingDepth() {
+        return outgoingQueue.size();
+    }
+
+    /**
+     * Gets the number of messages received that haven't been taken yet.
+     *
+     * @return The depth of the incoming queue.
+     */
+    public int getIncomingDepth() {
+        return incomingQueue.size();
+    }
+
+    /**
+     * Gets the smoothed time taken to convert a message to a frame for sending.
+     *
+     * @return The serialization time, in nanoseconds.
+     */
+    public long getSerializationTime() {
+        return (long) serializationTime;
+    }
+
+    /**
+     * Gets the smoothed time taken to convert a received frame to a message.
+     *
+     * @return The deserialization time, in nanoseconds.
+     */
+    public long getDeserializationTime() {
+        return (long) deserializationTime;
+    }
+
+    /**
+     * Gets how long it has been since the last message arrived. A long time during a game means the other user, or
+     * the connection to them, has stalled.
+     *
+     * @return The age of the last message, in nanoseconds, or -1 if nothing has arrived yet.
+     */
+    public long getLastMessageAge() {
+        return hasReceived ? System.nanoTime() - lastReceivedTime : -1;
+    }
+
+    /**
+     * Gets how long it has been since the last message was sent.
+     *
+     * @return The age of the last message sent, in nanoseconds, or -1 if nothing has been sent yet.
+     */
+    public long getLastSentAge() {
+        return hasSent ? System.nanoTime() - lastSentTime : -1;
+    }
+}
@@ -7,5 +7,5 @@ package network.party.network;
  * ICS4U RST
  */
 public enum HostStatus {
-    DISCONNECTING, PENDING_GAME_INVITE, IN_GAME, CONNECTED, DECLINED_GAME_INVITE, ACCEPTED_GAME_INVITE
+    DISCONNECTING, PENDING_GAME_INVITE, IN_GAME, CONNECTED, DECLINED_GAME_INVITE, ACCEPTED_GAME_INVITE, PING, PONG, HEARTBEAT, HOSTING
 }
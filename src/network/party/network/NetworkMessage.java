@@ -1,6 +1,10 @@
 package network.party.network;
 
-import com.google.gson.Gson;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Predicate;
 
 /**
  * Class representing a message to be sent or received to/from a multiplayer client.
@@ -10,21 +14,34 @@ import com.google.gson.Gson;
  */
 @SuppressWarnings("WeakerAccess")
 public class NetworkMessage {
+    /**
+     * Type byte of frames holding a network message.
+     */
+    public static final byte FRAME_TYPE = 1;
+    // Size of everything in a frame other than the strings and the game data.
+    private static final int FIXED_SIZE = 2 + 2 * Short.BYTES + Integer.BYTES;
+
     private String hostName;
     private HostStatus hostStatus;
-    private String gameData;
+    private byte[] gameData;
 
     // The game that the user is currently playing.
     private String currentGame;
 
+    // True if a newer message makes this one pointless to send, and how to keep what it can't replace. Only used
+    // locally, never sent.
+    private boolean latestOnly;
+    private Predicate<NetworkMessage> merger;
+    private Object attachment;
+
     /**
      * Constructs a new NetworkMessage object.
      *
      * @param hostName The host name.
      * @param status   The status of the application.
-     * @param gameData The string game data.
+     * @param gameData The game data.
      */
-    public NetworkMessage(String hostName, HostStatus status, String gameData) {
+    public NetworkMessage(String hostName, HostStatus status, byte[] gameData) {
         setHostName(hostName);
         setGameData(gameData);
         setHostStatus(status);
@@ -36,7 +53,7 @@ public class NetworkMessage {
      * @param status   The current status.
      * @param gameData The game data to be sent.
      */
-    public NetworkMessage(HostStatus status, String gameData) {
+    public NetworkMessage(HostStatus status, byte[] gameData) {
         this(null, status, gameData);
     }
 
@@ -80,9 +97,9 @@ public class NetworkMessage {
     /**
      * Gets the game data sent by the other client.
      *
-     * @return The game data string.
+     * @return The game data.
      */
-    public String getGameData() {
+    public byte[] getGameData() {
         return gameData;
     }
 
@@ -91,7 +108,7 @@ public class NetworkMessage {
      *
      * @param gameData The game data.
      */
-    public void setGameData(String gameData) {
+    public void setGameData(byte[] gameData) {
         this.gameData = gameData;
     }
 
@@ -122,32 +139,190 @@ public class NetworkMessage {
     }
 
     /**
-     * Converts the network message into json string.
+     * Determines if this message only carries state that a newer message replaces, so that it may be dropped in
+     * favour of the next one if that is ready before it is sent.
+     *
+     * @return True if only the latest of these messages needs to be sent, false if this message must be sent.
+     */
+    public boolean isLatestOnly() {
+        return latestOnly;
+    }
+
+    /**
+     * Sets whether or not this message only carries state that a newer message replaces. Messages are latest only if
+     * they are {@link HostStatus#IN_GAME} state updates; everything else must be sent.
+     *
+     * @param latestOnly True if only the latest of these messages needs to be sent, false if this one must be sent.
+     */
+    public void setLatestOnly(boolean latestOnly) {
+        this.latestOnly = latestOnly;
+    }
+
+    /**
+     * Sets how a latest only message takes in the unsent message it replaces. Without one, the unsent message is
+     * simply dropped.
+     *
+     * @param merger Given the unsent message, folds anything in it that mustn't be lost into this message. Returns
+     *               false if that can't be done, in which case both messages are sent.
+     */
+    public void setMerger(Predicate<NetworkMessage> merger) {
+        this.merger = merger;
+    }
+
+    /**
+     * Takes in an unsent message that this one is about to replace.
+     *
+     * @param unsent The message being replaced.
+     * @return True if this message can replace it, false if both must be sent.
+     */
+    boolean merge(NetworkMessage unsent) {
+        return merger == null || merger.test(unsent);
+    }
+
+    /**
+     * Gets the object attached to this message.
      *
-     * @return The json string representation of this object.
+     * @return The attachment, or null if there isn't one.
      */
-    public String toJsonString() {
-        return toJSONString(this);
+    public Object getAttachment() {
+        return attachment;
     }
 
     /**
-     * Instantiates a new NetworkMessage from json string.
+     * Attaches an object to this message, such as what the game data was made from, so that it can be merged. Only
+     * used locally, never sent.
      *
-     * @param jsonString The json string to parse.
+     * @param attachment The object to attach.
+     */
+    public void setAttachment(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    /**
+     * Converts the network message into a frame to be sent over a {@link network.TCPSocket}.
+     * The frame is the type byte, the host status, the host name and current game, and finally the game data.
+     *
+     * @return The frame representing this message.
+     */
+    public byte[] toFrame() {
+        final byte[] name = encodeString(hostName), game = encodeString(currentGame);
+        final int gameDataLength = (gameData == null) ? -1 : gameData.length;
+        final ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + length(name) + length(game)
+                + Math.max(gameDataLength, 0));
+
+        buffer.put(FRAME_TYPE);
+        buffer.put((byte) ((hostStatus == null) ? -1 : hostStatus.ordinal()));
+        putBytes(buffer, name);
+        putBytes(buffer, game);
+        buffer.putInt(gameDataLength);
+        if (gameData != null) {
+            buffer.put(gameData);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Instantiates a new NetworkMessage from a frame received over a {@link network.TCPSocket}.
+     *
+     * @param frame The frame to parse.
      * @return The parsed NetworkMessage.
+     * @throws IOException Thrown if the frame isn't a valid network message.
      */
-    public static NetworkMessage fromJson(final String jsonString) {
-        return new Gson().fromJson(jsonString, NetworkMessage.class);
+    public static NetworkMessage fromFrame(final byte[] frame) throws IOException {
+        final NetworkMessage message = new NetworkMessage(null);
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(frame);
+            final byte type = buffer.get();
+            if (type != FRAME_TYPE) {
+                throw new IOException("Expected a network message frame, received type " + type);
+            }
+            final byte status = buffer.get();
+            message.setHostStatus((status < 0) ? null : HostStatus.values()[status]);
+            message.setHostName(getString(buffer));
+            message.setCurrentGame(getString(buffer));
+            final int gameDataLength = buffer.getInt();
+            // Checked before allocating, so that a frame claiming a huge length can't run out of memory.
+            if (gameDataLength > buffer.remaining()) {
+                throw new IOException("Game data longer than the frame: " + gameDataLength);
+            }
+            if (gameDataLength >= 0) {
+                final byte[] data = new byte[gameDataLength];
+                buffer.get(data);
+                message.setGameData(data);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Malformed network message frame.", e);
+        }
+        return message;
     }
 
+    /**
+     * Reads just the host status of a network message frame, without parsing the rest of it. Useful for passing
+     * frames along without paying to decode them.
+     *
+     * @param frame The frame.
+     * @return The host status of the message in the frame, which may be null.
+     * @throws IOException Thrown if the frame isn't a network message or has an invalid status.
+     */
+    public static HostStatus peekHostStatus(final byte[] frame) throws IOException {
+        if (frame.length < 2 || frame[0] != FRAME_TYPE || frame[1] >= HostStatus.values().length) {
+            throw new IOException("Malformed network message frame.");
+        }
+        return (frame[1] < 0) ? null : HostStatus.values()[frame[1]];
+    }
+
+    /**
+     * Encodes a string as UTF-8.
+     *
+     * @param string The string, which may be null.
+     * @return The UTF-8 bytes of the string, or null if the string is null.
+     */
+    private static byte[] encodeString(String string) {
+        return (string == null) ? null : string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the length of an array which may be null.
+     *
+     * @param bytes The array.
+     * @return The length of the array, or 0 if it is null.
+     */
+    private static int length(byte[] bytes) {
+        return (bytes == null) ? 0 : bytes.length;
+    }
+
+    /**
+     * Puts an encoded string into the buffer, preceded by its length as a short (-1 for null).
+     *
+     * @param buffer The buffer to write to.
+     * @param bytes  The encoded string, or null.
+     */
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+    }
 
     /**
-     * Converts the given network message into json string.
+     * Gets a string written by {@link #putBytes(ByteBuffer, byte[])} from the buffer.
      *
-     * @param message The message to be converted.
-     * @return The json string representation of the message.
+     * @param buffer The buffer to read from.
+     * @return The string, or null if null was written.
+     * @throws IOException Thrown if the string is said to be longer than what's left of the buffer.
      */
-    public static String toJSONString(final NetworkMessage message) {
-        return new Gson().toJson(message);
+    private static String getString(ByteBuffer buffer) throws IOException {
+        final short length = buffer.getShort();
+        if (length > buffer.remaining()) {
+            throw new IOException("String longer than the frame: " + length);
+        }
+        String string = null;
+        if (length >= 0) {
+            string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        }
+        return string;
     }
 }
@@ -0,0 +1,142 @@
+package network.party.network;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.ListIterator;
+
+/**
+ * Queue of messages waiting to be sent to the other client. Messages are sent in the order that they were added, and
+ * none are ever dropped except for those marked {@link NetworkMessage#isLatestOnly() latest only}: only one of those
+ * waits to be sent for each {@link HostStatus}, and a newer one takes its place wherever it is in the queue. That way
+ * a burst of state updates only sends the newest one, as soon as the oldest would have been sent, rather than falling
+ * further and further behind. Anything in the replaced message that mustn't be lost is first
+ * {@link NetworkMessage#setMerger(java.util.function.Predicate) merged} into the newer one; if it can't be, both are
+ * sent.
+ * Messages that must all be sent can only build up to the queue's capacity. Past that the other client isn't keeping
+ * up at all, so rather than fall ever further behind, adding fails and the connection should be given up on.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+@SuppressWarnings("WeakerAccess")
+public class OutgoingQueue {
+    /**
+     * Default most messages that may wait to be sent, around a quarter of a minute of game messages.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final LinkedList<NetworkMessage> messages = new LinkedList<>();
+    private final int capacity;
+    private long droppedCount;
+    private int peakDepth;
+
+    /**
+     * Instantiates a new queue with the default capacity.
+     */
+    public OutgoingQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instantiates a new queue.
+     *
+     * @param capacity The most messages that may wait to be sent.
+     */
+    public OutgoingQueue(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a message to the queue. A latest only message takes the place of the one with the same host status already
+     * waiting, if there is one and the two can be merged, and otherwise goes at the end.
+     *
+     * @param message The message to be sent.
+     * @return True if the message was added, false if the queue is full.
+     */
+    public synchronized boolean add(NetworkMessage message) {
+        boolean replaced = false;
+        if (message.isLatestOnly()) {
+            final ListIterator<NetworkMessage> iterator = messages.listIterator(messages.size());
+            boolean found = false;
+            while (!found && iterator.hasPrevious()) {
+                final NetworkMessage waiting = iterator.previous();
+                found = waiting.isLatestOnly() && waiting.getHostStatus() == message.getHostStatus();
+                if (found && message.merge(waiting)) {
+                    iterator.set(message);
+                    droppedCount++;
+                    replaced = true;
+                }
+            }
+        }
+
+        final boolean added = replaced || messages.size() < capacity;
+        if (!replaced && added) {
+            messages.add(message);
+            peakDepth = Math.max(peakDepth, messages.size());
+        }
+        notifyAll();
+        return added;
+    }
+
+    /**
+     * Takes the first message in the queue, waiting until there is one.
+     *
+     * @return The first message in the queue.
+     * @throws InterruptedException Thrown if interrupted while waiting.
+     */
+    public synchronized NetworkMessage take() throws InterruptedException {
+        while (messages.isEmpty()) {
+            wait();
+        }
+        return messages.poll();
+    }
+
+    /**
+     * Takes every message in the queue, without waiting.
+     *
+     * @param destination The collection to which the messages are added, in order.
+     * @return The number of messages taken.
+     */
+    public synchronized int drainTo(Collection<NetworkMessage> destination) {
+        final int count = messages.size();
+        destination.addAll(messages);
+        messages.clear();
+        return count;
+    }
+
+    /**
+     * Gets the number of messages waiting to be sent.
+     *
+     * @return The depth of the queue.
+     */
+    public synchronized int size() {
+        return messages.size();
+    }
+
+    /**
+     * Gets the most messages that have been waiting to be sent at once.
+     *
+     * @return The peak depth of the queue.
+     */
+    public synchronized int getPeakDepth() {
+        return peakDepth;
+    }
+
+    /**
+     * Gets the most messages that may wait to be sent.
+     *
+     * @return The capacity of the queue.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of latest only messages that were replaced by newer ones before they could be sent.
+     *
+     * @return The number of dropped messages.
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+}
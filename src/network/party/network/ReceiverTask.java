@@ -1,57 +1,124 @@
 package network.party.network;
 
-import javafx.application.Platform;
-import javafx.concurrent.Task;
 import network.TCPSocket;
 
 import java.io.IOException;
 import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 /**
+ * Task for receiving messages from the multiplayer network. Received messages are queued, and the listener is told
+ * about them through the notifier, which is normally the JavaFX application thread. However many messages arrive,
+ * there is only ever one notification waiting to be run, and the listener is expected to take every queued message
+ * when it is.
+ *
  * @author Kyle Anderson
  */
-public class ReceiverTask extends Task<Void> {
+public class ReceiverTask implements Runnable {
 
     private final TCPSocket socket;
     private final Queue<NetworkMessage> queue;
-    private Consumer<ReceivedDataEvent> listener;
+    private final Executor notifier;
+    private final ConnectionStats stats;
+    private volatile Consumer<ReceivedDataEvent> listener;
+    private volatile Consumer<NetworkMessage> inGameListener;
+    private volatile Consumer<NetworkMessage> sessionListener;
+    // True while a notification is waiting to be run on the JavaFX application thread.
+    private final AtomicBoolean notificationPending = new AtomicBoolean();
 
     public void addListener(Consumer<ReceivedDataEvent> listener) {
         this.listener = listener;
     }
 
+    /**
+     * Sets a listener to be given {@link HostStatus#IN_GAME} messages directly on the receiving thread, rather than
+     * having them queued for the JavaFX application thread. Must be safe to call from any thread.
+     *
+     * @param listener The listener for in game messages, or null to queue them like any other message.
+     */
+    public void setInGameListener(Consumer<NetworkMessage> listener) {
+        inGameListener = listener;
+    }
+
+    /**
+     * Sets a listener to be given {@link HostStatus#PING}, {@link HostStatus#PONG} and {@link HostStatus#HOSTING}
+     * messages directly on the receiving thread. They are for the session itself, so they are never queued: pings so
+     * that the times they arrive aren't thrown off by waiting, and the role so that it is taken before anything after
+     * it is handled.
+     *
+     * @param listener The listener for session messages, which must be safe to call from any thread.
+     */
+    public void setSessionListener(Consumer<NetworkMessage> listener) {
+        sessionListener = listener;
+    }
+
     /**
      * Constructs a new ReceiverTask for creating a thread to monitor the multiplayer network.
      *
      * @param incoming The queue to convey incoming messages.
      * @param socket   The socket on which data will be set.
+     * @param notifier Runs the notifications to the listener, such as {@code Platform::runLater}.
+     * @param stats    Records each message received.
      */
-    public ReceiverTask(TCPSocket socket, Queue<NetworkMessage> incoming) {
+    public ReceiverTask(TCPSocket socket, Queue<NetworkMessage> incoming, Executor notifier, ConnectionStats stats) {
         this.socket = socket;
         queue = incoming;
+        this.notifier = notifier;
+        this.stats = stats;
     }
 
     @Override
-    protected Void call() {
-        ReceivedDataEvent event = null;
-        while (event != ReceivedDataEvent.DISCONNECTED) {
-            String receivedMessage = null;
+    public void run() {
+        boolean disconnected = false;
+        while (!disconnected) {
             try {
-                receivedMessage = socket.listenForData();
-                event = ReceivedDataEvent.RECEIVED_DATA;
+                final byte[] frame = socket.listenForFrame();
+                // No frame means that the other end closed the connection.
+                disconnected = frame == null;
+                if (!disconnected) {
+                    final long arrivalTime = System.nanoTime();
+                    final NetworkMessage message = NetworkMessage.fromFrame(frame);
+                    stats.messageReceived(frame.length, System.nanoTime() - arrivalTime, arrivalTime);
+                    deliver(message);
+                }
             } catch (IOException e) {
-                event = ReceivedDataEvent.DISCONNECTED;
+                disconnected = true;
             }
-            final ReceivedDataEvent goodEvent = event;
-            if (receivedMessage != null) {
-                queue.add(NetworkMessage.fromJson(receivedMessage));
+        }
+
+        final Consumer<ReceivedDataEvent> disconnectListener = listener;
+        if (disconnectListener != null) {
+            notifier.execute(() -> disconnectListener.accept(ReceivedDataEvent.DISCONNECTED));
+        }
+    }
+
+    /**
+     * Hands a received message to the in game listener if it's for them, or queues it and makes sure the listener
+     * will be notified. Heartbeats go no further, since they only show that the other user is still there.
+     *
+     * @param message The received message.
+     */
+    private void deliver(NetworkMessage message) {
+        final Consumer<NetworkMessage> gameListener = inGameListener, ownListener = sessionListener;
+        final HostStatus status = message.getHostStatus();
+        if (status == HostStatus.PING || status == HostStatus.PONG || status == HostStatus.HOSTING) {
+            if (ownListener != null) {
+                ownListener.accept(message);
             }
-            // Notify of the received value.
-            if (listener != null) {
-                Platform.runLater(() -> listener.accept(goodEvent));
+        } else if (status == HostStatus.IN_GAME && gameListener != null) {
+            gameListener.accept(message);
+        } else if (status != HostStatus.HEARTBEAT) {
+            queue.add(message);
+            final Consumer<ReceivedDataEvent> dataListener = listener;
+            if (dataListener != null && notificationPending.compareAndSet(false, true)) {
+                notifier.execute(() -> {
+                    // Anything arriving from here on needs another notification, as it might be missed by this one.
+                    notificationPending.set(false);
+                    dataListener.accept(ReceivedDataEvent.RECEIVED_DATA);
+                });
             }
         }
-        return null;
     }
 }
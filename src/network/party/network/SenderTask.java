@@ -1,47 +1,61 @@
 package network.party.network;
 
-import javafx.concurrent.Task;
 import network.TCPSocket;
 
 import java.io.IOException;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Task for easily sending updates to the multiplayer network.
+ * Task for easily sending updates to the multiplayer network. The task sleeps until there is something to send, then
+ * sends every message waiting at that point with a single flush.
  *
  * @author Kyle Anderson
  * ICS4U RST
  */
-public class SenderTask extends Task<Void> {
+public class SenderTask implements Runnable {
     private final TCPSocket socket;
-    private final Queue<NetworkMessage> queue;
+    private final OutgoingQueue queue;
+    private final ConnectionStats stats;
 
     /**
      * Instantiates a new sender task for the provided socket and with the given queue.
      *
      * @param socket   The socket.
      * @param outgoing The queue.
+     * @param stats    Records each message sent.
      */
-    public SenderTask(TCPSocket socket, Queue<NetworkMessage> outgoing) {
+    public SenderTask(TCPSocket socket, OutgoingQueue outgoing, ConnectionStats stats) {
         this.socket = socket;
         queue = outgoing;
+        this.stats = stats;
     }
 
 
     @Override
-    protected Void call() {
+    public void run() {
+        final List<NetworkMessage> batch = new ArrayList<>();
         boolean exit = false;
         while (!exit) {
-            NetworkMessage message = queue.poll();
-            if (message != null) {
-                exit = message.getHostStatus() == HostStatus.DISCONNECTING;
-                try {
-                    socket.send(message.toJsonString());
-                } catch (IOException e) {
-                    exit = true;
+            try {
+                // Wait for a message, then take everything else that's already waiting along with it.
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (NetworkMessage message : batch) {
+                    // Nothing is sent after disconnecting.
+                    if (!exit) {
+                        exit = message.getHostStatus() == HostStatus.DISCONNECTING;
+                        final long start = System.nanoTime();
+                        final byte[] frame = message.toFrame();
+                        stats.messageSent(frame.length, System.nanoTime() - start, start);
+                        socket.write(frame);
+                    }
                 }
+                socket.flush();
+            } catch (InterruptedException | IOException e) {
+                exit = true;
             }
+            batch.clear();
         }
-        return null;
     }
 }
@@ -28,6 +28,10 @@ public class Preferences {
 
     // The user's name.
     private String hostName;
+    // True to play network pong with rollback netcode instead of sharing the game's state.
+    private boolean rollbackNetcode;
+    // True to play network pong on a pong server, which runs the game for both players.
+    private boolean dedicatedServer;
 
     /**
      * Constructs a new preferences object.
@@ -53,6 +57,43 @@ public class Preferences {
         this.hostName = hostName;
     }
 
+    /**
+     * Determines if network games of pong should use rollback netcode. Both players must have the same setting.
+     *
+     * @return True if rollback netcode is enabled, false otherwise.
+     */
+    public boolean isRollbackNetcode() {
+        return rollbackNetcode;
+    }
+
+    /**
+     * Sets whether network games of pong should use rollback netcode.
+     *
+     * @param rollbackNetcode True to enable rollback netcode, false to disable it.
+     */
+    public void setRollbackNetcode(boolean rollbackNetcode) {
+        this.rollbackNetcode = rollbackNetcode;
+    }
+
+    /**
+     * Determines if network games of pong should be played on a pong server that the user joins like a party,
+     * rather than directly with another player.
+     *
+     * @return True if playing on a dedicated server, false otherwise.
+     */
+    public boolean isDedicatedServer() {
+        return dedicatedServer;
+    }
+
+    /**
+     * Sets whether network games of pong should be played on a pong server.
+     *
+     * @param dedicatedServer True to play on a dedicated server, false to play directly with another player.
+     */
+    public void setDedicatedServer(boolean dedicatedServer) {
+        this.dedicatedServer = dedicatedServer;
+    }
+
     /**
      * Saves current object to json file.
      */
@@ -5,6 +5,7 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
@@ -60,27 +61,45 @@ public class PreferencesMenu extends GridPane {
         // get host name from preferences
         usernameField.setText(Preferences.getInstance().getHostName());
 
+        // checkbox for rollback netcode
+        CheckBox rollbackCheckBox = new CheckBox("Rollback netcode (both players need it on)");
+        rollbackCheckBox.setTextFill(Color.WHITE);
+        MainMenu.setupFont(rollbackCheckBox, inputFontSize, inputFont);
+        rollbackCheckBox.setSelected(Preferences.getInstance().isRollbackNetcode());
+        GridPane.setConstraints(rollbackCheckBox, 0, 2, 2, 1);
+
+        // checkbox for playing on a pong server
+        CheckBox serverCheckBox = new CheckBox("Play on a pong server (join the server's party)");
+        serverCheckBox.setTextFill(Color.WHITE);
+        MainMenu.setupFont(serverCheckBox, inputFontSize, inputFont);
+        serverCheckBox.setSelected(Preferences.getInstance().isDedicatedServer());
+        GridPane.setConstraints(serverCheckBox, 0, 3, 2, 1);
+
         // button when user is finished entering data
         Button okButton = new Button("Save");
         MainMenu.setupFont(okButton, headerFontSize, headerFont);
-        okButton.setOnAction(evt -> validate(usernameField.getText()));
-        GridPane.setConstraints(okButton, 0, 2);
+        okButton.setOnAction(evt -> validate(usernameField.getText(), rollbackCheckBox.isSelected(),
+                serverCheckBox.isSelected()));
+        GridPane.setConstraints(okButton, 0, 4);
 
         Button cancelButton = new Button("Cancel");
         MainMenu.setupFont(cancelButton, headerFontSize, headerFont);
         cancelButton.setOnAction(event -> close());
-        GridPane.setConstraints(cancelButton, 1, 2);
+        GridPane.setConstraints(cancelButton, 1, 4);
 
         // add everything to grid
-        getChildren().addAll(headerText, userNameLabel, usernameField, okButton, cancelButton);
+        getChildren().addAll(headerText, userNameLabel, usernameField, rollbackCheckBox, serverCheckBox, okButton,
+                cancelButton);
     }
 
     /**
      * Constructor to create the preferences menu
      *
-     * @param name The name to be validated.
+     * @param name            The name to be validated.
+     * @param rollbackNetcode True if rollback netcode was selected.
+     * @param dedicatedServer True if playing on a pong server was selected.
      */
-    private void validate(String name) {
+    private void validate(String name, boolean rollbackNetcode, boolean dedicatedServer) {
         /*
         Check to make sure that name is not blank and as a size of at least three characters and does not contain any spaces
         constant for min username chars.
@@ -92,6 +111,8 @@ public class PreferencesMenu extends GridPane {
         } else {
             // set the host name
             Preferences.getInstance().setHostName(name);
+            Preferences.getInstance().setRollbackNetcode(rollbackNetcode);
+            Preferences.getInstance().setDedicatedServer(dedicatedServer);
             Preferences.getInstance().save();
             // close the window
             close();
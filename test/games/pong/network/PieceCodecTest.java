@@ -0,0 +1,134 @@
+package games.pong.network;
+
+import games.pong.Pong;
+import games.pong.pieces.Paddle;
+import games.pong.pieces.PongBall;
+import games.pong.pieces.Side;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the ball and paddles come back from {@link PieceCodec} within its stated error bounds, and that
+ * positions outside the range that can be sent are clamped to its edges rather than wrapping around.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public class PieceCodecTest {
+    private static final int STATES = 200_000;
+    // Lowest position that can be sent, and the highest, one step short of 1024 units above it.
+    private static final double MIN_POSITION = -256, MAX_POSITION = 768 - PieceCodec.POSITION_RESOLUTION;
+    // Leeway for the rounding of the sines and cosines themselves.
+    private static final double EPSILON = 1e-9;
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void errorBoundsAreWithinSpecification() {
+        assertTrue(PieceCodec.MAX_POSITION_ERROR <= 1.0 / 64);
+        assertTrue(PieceCodec.MAX_BALL_VELOCITY_ERROR < 0.02);
+    }
+
+    @Test
+    public void ballRoundTripsWithinBounds() {
+        final int[] fields = new int[PieceCodec.FIELDS_PER_PIECE];
+        for (int i = 0; i < STATES; i++) {
+            final PongBall ball = new PongBall(Pong.BALL_RADIUS);
+            ball.setX(randomPosition());
+            ball.setY(randomPosition());
+            final double heading = (random.nextDouble() * 2 - 1) * Math.PI;
+            ball.setVelocity(Pong.PONG_BALL_VELOCITY * Math.sin(heading), Pong.PONG_BALL_VELOCITY * Math.cos(heading));
+
+            PieceCodec.putBall(ball, fields, 0);
+            final PongBall decoded = PieceCodec.getBall(fields, 0);
+            assertEquals(ball.getX(), decoded.getX(), PieceCodec.MAX_POSITION_ERROR + EPSILON);
+            assertEquals(ball.getY(), decoded.getY(), PieceCodec.MAX_POSITION_ERROR + EPSILON);
+            assertEquals(ball.getRisePerSecond(), decoded.getRisePerSecond(),
+                    PieceCodec.MAX_BALL_VELOCITY_ERROR + EPSILON);
+            assertEquals(ball.getRunPerSecond(), decoded.getRunPerSecond(),
+                    PieceCodec.MAX_BALL_VELOCITY_ERROR + EPSILON);
+            assertEquals(Pong.BALL_RADIUS, decoded.getRadius(), 0);
+        }
+    }
+
+    @Test
+    public void stoppedBallStaysStopped() {
+        final int[] fields = new int[PieceCodec.FIELDS_PER_PIECE];
+        final PongBall ball = new PongBall(Pong.BALL_RADIUS);
+        ball.setX(100);
+        ball.setY(50);
+
+        PieceCodec.putBall(ball, fields, 0);
+        final PongBall decoded = PieceCodec.getBall(fields, 0);
+        assertEquals(0, decoded.getRisePerSecond(), 0);
+        assertEquals(0, decoded.getRunPerSecond(), 0);
+    }
+
+    @Test
+    public void paddleRoundTripsWithinBounds() {
+        final int[] fields = new int[PieceCodec.FIELDS_PER_PIECE];
+        final double[] velocities = {Pong.PADDLE_MOVEMENT_RATE, 0, -Pong.PADDLE_MOVEMENT_RATE};
+        final Side[] sides = {Side.LEFT, Side.RIGHT};
+        for (int i = 0; i < STATES; i++) {
+            final Paddle paddle = new Paddle(randomPosition(), randomPosition(), Pong.PADDLE_WIDTH,
+                    Pong.PADDLE_HEIGHT, sides[i % sides.length]);
+            paddle.setVelY(velocities[i % velocities.length]);
+
+            PieceCodec.putPaddle(paddle, fields, 0);
+            final Paddle decoded = PieceCodec.getPaddle(fields, 0);
+            assertEquals(paddle.getX(), decoded.getX(), PieceCodec.MAX_POSITION_ERROR + EPSILON);
+            assertEquals(paddle.getY(), decoded.getY(), PieceCodec.MAX_POSITION_ERROR + EPSILON);
+            assertEquals(paddle.getVelY(), decoded.getVelY(), 0);
+            assertEquals(paddle.getSide(), decoded.getSide());
+            assertEquals(Pong.PADDLE_WIDTH, decoded.getWidth(), 0);
+            assertEquals(Pong.PADDLE_HEIGHT, decoded.getHeight(), 0);
+        }
+    }
+
+    @Test
+    public void edgesOfRangeRoundTripExactly() {
+        assertEquals(0, PieceCodec.quantizePosition(MIN_POSITION));
+        assertEquals(0xFFFF, PieceCodec.quantizePosition(MAX_POSITION));
+        assertEquals(MIN_POSITION, PieceCodec.position(PieceCodec.quantizePosition(MIN_POSITION)), 0);
+        assertEquals(MAX_POSITION, PieceCodec.position(PieceCodec.quantizePosition(MAX_POSITION)), 0);
+        // Just inside either edge still rounds to the nearest step.
+        assertEquals(MIN_POSITION, PieceCodec.position(PieceCodec.quantizePosition(MIN_POSITION + 0.001)),
+                PieceCodec.MAX_POSITION_ERROR);
+        assertEquals(768, PieceCodec.position(PieceCodec.quantizePosition(768)), PieceCodec.POSITION_RESOLUTION);
+    }
+
+    @Test
+    public void outOfRangePositionsClamp() {
+        final double[] below = {MIN_POSITION - PieceCodec.POSITION_RESOLUTION, -300, -1024, -1e9};
+        final double[] above = {768 + PieceCodec.POSITION_RESOLUTION, 800, 1280, 1e9};
+        for (double position : below) {
+            assertEquals(0, PieceCodec.quantizePosition(position));
+        }
+        for (double position : above) {
+            assertEquals(0xFFFF, PieceCodec.quantizePosition(position));
+        }
+
+        // A whole piece off the edge comes back at the edge, not on the far side of the board.
+        final int[] fields = new int[PieceCodec.FIELDS_PER_PIECE];
+        final PongBall ball = new PongBall(Pong.BALL_RADIUS);
+        ball.setX(-5000);
+        ball.setY(5000);
+        PieceCodec.putBall(ball, fields, 0);
+        final PongBall decoded = PieceCodec.getBall(fields, 0);
+        assertEquals(MIN_POSITION, decoded.getX(), 0);
+        assertEquals(MAX_POSITION, decoded.getY(), 0);
+    }
+
+    /**
+     * Picks a position anywhere in the range that can be sent.
+     *
+     * @return The position.
+     */
+    private double randomPosition() {
+        return MIN_POSITION + random.nextDouble() * (MAX_POSITION - MIN_POSITION);
+    }
+}
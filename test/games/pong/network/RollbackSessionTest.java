@@ -0,0 +1,133 @@
+package games.pong.network;
+
+import games.pong.EndReason;
+import games.pong.Pong;
+import games.pong.PongEvent;
+import games.pong.clock.ManualClock;
+import games.pong.pieces.Paddle;
+import games.pong.pieces.Side;
+import games.pong.players.Action;
+import games.pong.players.PongKeyboardPlayer;
+import games.pong.players.PongRollbackPlayer;
+import network.party.network.NetworkMessage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Plays two {@link RollbackSession}s against each other, passing their messages along with one of them arriving late,
+ * and checks that both games finish the match the same way, even when one only finds out that the match ended by
+ * rolling back.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public class RollbackSessionTest {
+    private static final int TIMEOUT = 30_000;
+    private static final int WIDTH = 512, HEIGHT = 256;
+    // How many frames the right player's messages take to reach the left player's game, well inside the rollback
+    // window but long enough for the ball to get past the right paddle before the left game hears it moved.
+    private static final int RIGHT_DELAY_FRAMES = 90;
+    // How close the ball gets to the right paddle before the right player moves out of its way.
+    private static final double DODGE_DISTANCE = 60;
+    // Longest the match can take: every point pauses the game for a few seconds.
+    private static final int MAX_FRAMES = 30 * Pong.TICK_RATE;
+
+    private static final Side[] SIDES = {Side.LEFT, Side.RIGHT};
+    private final Pong[] games = new Pong[2];
+    private final RollbackSession[] sessions = new RollbackSession[2];
+    private final ManualClock[] realClocks = {new ManualClock(), new ManualClock()};
+    private final int[] endEvents = new int[2];
+    // Messages on their way to each game, with the step on which each arrives.
+    private final Queue<NetworkMessage> toLeft = new ArrayDeque<>(), toRight = new ArrayDeque<>();
+    private final Queue<Long> toLeftArrivals = new ArrayDeque<>();
+    private long step;
+
+    @Before
+    public void setUp() {
+        final PongRollbackPlayer[] remotePlayers = new PongRollbackPlayer[2];
+        for (int i = 0; i < 2; i++) {
+            final PongKeyboardPlayer localPlayer = new PongKeyboardPlayer();
+            localPlayer.setSide(SIDES[i]);
+            remotePlayers[i] = new PongRollbackPlayer();
+            remotePlayers[i].setSide(SIDES[1 - i]);
+            games[i] = new Pong(localPlayer, remotePlayers[i], WIDTH, HEIGHT);
+            sessions[i] = new RollbackSession(games[i], localPlayer, remotePlayers[i]);
+            sessions[i].setRealClock(realClocks[i]);
+
+            // One point away from winning, so that the next point ends the match.
+            localPlayer.setPoints(10);
+            remotePlayers[i].setPoints(10);
+            final int game = i;
+            games[i].addEventListener(event -> endEvents[game]++, PongEvent.EventType.GAME_ENDED);
+        }
+        remotePlayers[0].setOnGameDataSend(toRight::add);
+        remotePlayers[1].setOnGameDataSend(message -> {
+            toLeft.add(message);
+            toLeftArrivals.add(step + RIGHT_DELAY_FRAMES);
+        });
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void matchEndsInBothGamesWhenEndIsOnlySeenAfterRollback() {
+        sessions[0].begin();
+        sessions[1].begin();
+
+        // The ball is served straight at the right paddle, which dodges it at the last moment.
+        final Paddle rightPaddle = games[1].getPaddle(games[1].getLocalPlayer());
+        boolean dodged = false;
+        while (step < MAX_FRAMES && !(games[0].isEnded() && games[1].isEnded())) {
+            if (!dodged && rightPaddle.getX() - games[1].getBall().getX() < DODGE_DISTANCE) {
+                sessions[1].setLocalAction(Action.MOVE_UP);
+                dodged = true;
+            }
+            step();
+        }
+        // Let the last inputs arrive and settle.
+        for (int i = 0; i < RIGHT_DELAY_FRAMES; i++) {
+            step();
+        }
+
+        assertTrue("The left game should have rolled back", sessions[0].getRollbacks() > 0);
+        for (int i = 0; i < 2; i++) {
+            assertTrue("Game " + i + " should have ended", games[i].isEnded());
+            assertEquals(EndReason.SCORE_LIMIT_REACHED, games[i].getEndReason());
+            assertEquals("Listeners should hear the game end exactly once", 1, endEvents[i]);
+            assertEquals(11, games[i].getLeftPlayer().getPoints());
+            assertEquals(10, games[i].getRightPlayer().getPoints());
+        }
+    }
+
+    /**
+     * Moves both games on by a frame's worth of real time, delivering the messages that have arrived first.
+     */
+    private void step() {
+        step++;
+        while (!toRight.isEmpty()) {
+            deliver(1, toRight.remove());
+        }
+        while (!toLeftArrivals.isEmpty() && toLeftArrivals.peek() <= step) {
+            toLeftArrivals.remove();
+            deliver(0, toLeft.remove());
+        }
+        for (int i = 0; i < 2; i++) {
+            realClocks[i].advance(Pong.TICK_NANOS);
+            sessions[i].update();
+        }
+    }
+
+    /**
+     * Hands a message to the remote player of a game.
+     *
+     * @param game    The index of the game.
+     * @param message The message.
+     */
+    private void deliver(final int game, NetworkMessage message) {
+        ((PongRollbackPlayer) games[game].getPlayer2()).receiveData(message);
+    }
+}
@@ -0,0 +1,368 @@
+package games.pong.network;
+
+import games.pong.Pong;
+import games.pong.pieces.Paddle;
+import games.pong.pieces.PongBall;
+import games.pong.pieces.Side;
+import games.pong.players.PongKeyboardPlayer;
+import games.pong.players.PongNetworkPlayer;
+import network.party.network.HostStatus;
+import network.party.network.NetworkMessage;
+import network.party.network.OutgoingQueue;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sends snapshots from a {@link SnapshotEncoder} to a {@link SnapshotDecoder}, checking that every one that arrives
+ * comes back exactly as if it had been sent whole: relative to the last one acknowledged, with only the fields that
+ * changed, or whole again once that one is too old to be kept. Snapshots are dropped, replaced before being sent and
+ * acknowledged late along the way, and enough are sent for the sequence numbers to go around the ring many times.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public class SnapshotEncoderTest {
+    private static final int SNAPSHOTS = 20_000;
+    // Number of snapshots kept by either side.
+    private static final int RING_SIZE = 32;
+
+    private final Random random = new Random(42);
+    private final SnapshotEncoder encoder = new SnapshotEncoder();
+    private final SnapshotDecoder decoder = new SnapshotDecoder();
+
+    @Test
+    public void firstSnapshotIsWholeState() throws IOException {
+        final PongNetworkMessage message = message(ball(100, 50), paddle(10, 80, 0), null);
+        final PongNetworkMessage decoded = decoder.decode(encoder.encode(message));
+
+        assertEquals(1, decoded.getSnapshotSequence());
+        assertEquals(0, decoded.getBaselineSequence());
+        assertSameState(message, decoded);
+        assertEquals(1, decoder.getLastSequence());
+    }
+
+    @Test
+    public void snapshotsAreWrittenRelativeToLastAcknowledged() throws IOException {
+        final PongNetworkMessage first = message(ball(100, 50), paddle(10, 80, 0), paddle(500, 80, 0));
+        final byte[] whole = encoder.encode(first);
+        decoder.decode(whole);
+        encoder.acknowledge(decoder.getLastSequence());
+
+        // Nothing changed, so each piece is only its mask.
+        final PongNetworkMessage same = message(ball(100, 50), paddle(10, 80, 0), paddle(500, 80, 0));
+        final byte[] unchanged = encoder.encode(same);
+        final PongNetworkMessage decodedSame = decoder.decode(unchanged);
+        assertEquals(1, decodedSame.getBaselineSequence());
+        assertSameState(same, decodedSame);
+        assertEquals(whole.length + 3 - fieldsSize(true) - 2 * fieldsSize(false), unchanged.length);
+
+        // Only the velocity of one paddle changed, so only that field is added.
+        final PongNetworkMessage moved = message(ball(100, 50), paddle(10, 80, Pong.PADDLE_MOVEMENT_RATE),
+                paddle(500, 80, 0));
+        final byte[] oneField = encoder.encode(moved);
+        final PongNetworkMessage decodedMoved = decoder.decode(oneField);
+        // Still relative to the first, since the second wasn't acknowledged.
+        assertEquals(1, decodedMoved.getBaselineSequence());
+        assertSameState(moved, decodedMoved);
+        assertEquals(unchanged.length + PieceCodec.fieldSize(false, 2), oneField.length);
+    }
+
+    @Test
+    public void wholeStateIsSentOnceAcknowledgedSnapshotLeavesRing() throws IOException {
+        decoder.decode(encoder.encode(message(ball(100, 50), paddle(10, 80, 0), null)));
+        encoder.acknowledge(decoder.getLastSequence());
+
+        // Sent, but never acknowledged, until the acknowledged snapshot's slot is reused.
+        for (int i = 0; i < RING_SIZE; i++) {
+            final PongNetworkMessage message = message(ball(100 + i, 50), paddle(10, 80, 0), null);
+            final PongNetworkMessage decoded = decoder.decode(encoder.encode(message));
+            // The snapshot that takes the acknowledged one's slot is still written relative to it.
+            assertEquals(1, decoded.getBaselineSequence());
+            assertSameState(message, decoded);
+        }
+        final PongNetworkMessage message = message(ball(200, 50), paddle(10, 80, 0), null);
+        final PongNetworkMessage decoded = decoder.decode(encoder.encode(message));
+        assertEquals(RING_SIZE + 2, decoded.getSnapshotSequence());
+        assertEquals(0, decoded.getBaselineSequence());
+        assertSameState(message, decoded);
+    }
+
+    @Test
+    public void piecesMissingFromBaselineAreSentWhole() throws IOException {
+        decoder.decode(encoder.encode(message(null, paddle(10, 80, 0), null)));
+        encoder.acknowledge(decoder.getLastSequence());
+
+        // The ball and the other paddle appear, and are sent whole even though the paddle isn't.
+        final PongNetworkMessage appeared = message(ball(100, 50), paddle(10, 80, 0), paddle(500, 80, 0));
+        final PongNetworkMessage decoded = decoder.decode(encoder.encode(appeared));
+        assertEquals(1, decoded.getBaselineSequence());
+        assertSameState(appeared, decoded);
+        encoder.acknowledge(decoder.getLastSequence());
+
+        // A piece missing now, but not from the baseline, is just left out.
+        final PongNetworkMessage gone = message(ball(100, 50), null, paddle(500, 90, 0));
+        final PongNetworkMessage decodedGone = decoder.decode(encoder.encode(gone));
+        assertEquals(2, decodedGone.getBaselineSequence());
+        assertSameState(gone, decodedGone);
+    }
+
+    @Test
+    public void droppedReplacedAndLateSnapshotsRoundTrip() throws IOException {
+        // Acknowledgements on their way back, and the snapshot on which each arrives.
+        final Queue<Integer> acks = new ArrayDeque<>(), ackArrivals = new ArrayDeque<>();
+        final PongBall ball = ball(100, 50);
+        final Paddle left = paddle(10, 80, 0), right = paddle(500, 80, 0);
+        int delta = 0, whole = 0, dropped = 0;
+
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            change(ball, left, right);
+            // Now and then a piece is left out.
+            final PongNetworkMessage message = message(random.nextInt(10) == 0 ? null : copy(ball), copy(left),
+                    random.nextInt(5) == 0 ? null : copy(right));
+            final byte[] bytes = encoder.encode(message);
+
+            // Some are replaced in the outgoing queue and never sent, so the receiver never sees their numbers.
+            if (random.nextInt(8) == 0) {
+                dropped++;
+            } else {
+                final PongNetworkMessage decoded = decoder.decode(bytes);
+                assertEquals(message.getSnapshotSequence(), decoded.getSnapshotSequence());
+                assertSameState(message, decoded);
+                if (decoded.getBaselineSequence() == 0) {
+                    whole++;
+                } else {
+                    delta++;
+                }
+                // Mostly acknowledged right away, but now and then too late for the snapshot to still be kept,
+                // holding up the acknowledgements behind it.
+                acks.add(decoder.getLastSequence());
+                ackArrivals.add(i + ((random.nextInt(50) == 0) ? random.nextInt(3 * RING_SIZE) : random.nextInt(4)));
+            }
+            while (!ackArrivals.isEmpty() && ackArrivals.peek() <= i) {
+                ackArrivals.remove();
+                encoder.acknowledge(acks.remove());
+            }
+        }
+
+        assertTrue("Most snapshots should be relative to another", delta > SNAPSHOTS / 2);
+        assertTrue("Some snapshots should have had to be sent whole", whole > 1);
+        assertTrue(dropped > 0);
+    }
+
+    @Test
+    public void mergedMessagesAreNumberedAgain() throws IOException {
+        final PongKeyboardPlayer localPlayer = new PongKeyboardPlayer();
+        final PongNetworkPlayer networkPlayer = new PongNetworkPlayer();
+        localPlayer.setSide(Side.LEFT);
+        networkPlayer.setSide(Side.RIGHT);
+        final Pong game = new Pong(localPlayer, networkPlayer, 512, 256);
+        final OutgoingQueue queue = new OutgoingQueue();
+        networkPlayer.setOnGameDataSend(queue::add);
+        final Paddle paddle = game.getPaddle(localPlayer);
+        final List<NetworkMessage> sent = new ArrayList<>();
+
+        // Each change replaces the one before it, which is written again under a new number.
+        game.paddleUp(paddle);
+        game.paddleDown(paddle);
+        game.stopPaddle(paddle);
+        queue.drainTo(sent);
+        assertEquals(1, sent.size());
+        PongNetworkMessage decoded = decoder.decode(sent.get(0).getGameData());
+        assertEquals(5, decoded.getSnapshotSequence());
+        assertEquals(0, decoded.getBaselineSequence());
+        assertEquals(0, decoded.getLocalPlayerPaddle().getVelY(), 0);
+
+        // Once the other player acknowledges it, merged messages are written relative to it instead.
+        acknowledge(networkPlayer, decoder.getLastSequence());
+        game.paddleUp(paddle);
+        paddle.setY(paddle.getY() + 20);
+        game.paddleDown(paddle);
+        sent.clear();
+        queue.drainTo(sent);
+        assertEquals(1, sent.size());
+        decoded = decoder.decode(sent.get(0).getGameData());
+        assertEquals(8, decoded.getSnapshotSequence());
+        assertEquals(5, decoded.getBaselineSequence());
+        assertEquals(paddle.getY(), decoded.getLocalPlayerPaddle().getY(), PieceCodec.MAX_POSITION_ERROR);
+        assertEquals(-Pong.PADDLE_MOVEMENT_RATE, decoded.getLocalPlayerPaddle().getVelY(), 0);
+    }
+
+    /**
+     * Has the other player acknowledge a snapshot, the way it would in a message of its own.
+     *
+     * @param networkPlayer The network player.
+     * @param sequence      The sequence number of the snapshot.
+     */
+    private static void acknowledge(PongNetworkPlayer networkPlayer, final int sequence) {
+        final PongNetworkMessage ack = new PongNetworkMessage(0);
+        ack.setSnapshotAck(sequence);
+        networkPlayer.receiveData(new NetworkMessage(HostStatus.IN_GAME, ack.toBytes()));
+    }
+
+    /**
+     * Checks that a decoded snapshot has exactly the pieces of the message it was written from, as they would be if
+     * the message had been sent whole.
+     *
+     * @param message The message that was encoded.
+     * @param decoded The decoded message.
+     * @throws IOException Thrown if the message can't be written whole and read back.
+     */
+    private static void assertSameState(PongNetworkMessage message, PongNetworkMessage decoded) throws IOException {
+        final PongNetworkMessage expected = PongNetworkMessage.fromBytes(message.toBytes());
+        if (expected.getBall() == null) {
+            assertNull(decoded.getBall());
+        } else {
+            assertNotNull(decoded.getBall());
+            assertEquals(expected.getBall().getX(), decoded.getBall().getX(), 0);
+            assertEquals(expected.getBall().getY(), decoded.getBall().getY(), 0);
+            assertEquals(expected.getBall().getRisePerSecond(), decoded.getBall().getRisePerSecond(), 0);
+            assertEquals(expected.getBall().getRunPerSecond(), decoded.getBall().getRunPerSecond(), 0);
+        }
+        assertSamePaddle(expected.getLocalPlayerPaddle(), decoded.getLocalPlayerPaddle());
+        assertSamePaddle(expected.getNetworkPlayerPaddle(), decoded.getNetworkPlayerPaddle());
+    }
+
+    /**
+     * Checks that a decoded paddle is exactly the expected one.
+     *
+     * @param expected The expected paddle, or null if there shouldn't be one.
+     * @param decoded  The decoded paddle.
+     */
+    private static void assertSamePaddle(Paddle expected, Paddle decoded) {
+        if (expected == null) {
+            assertNull(decoded);
+        } else {
+            assertNotNull(decoded);
+            assertEquals(expected.getX(), decoded.getX(), 0);
+            assertEquals(expected.getY(), decoded.getY(), 0);
+            assertEquals(expected.getVelY(), decoded.getVelY(), 0);
+            assertEquals(expected.getSide(), decoded.getSide());
+        }
+    }
+
+    /**
+     * Moves the pieces about, changing only some of their fields each time so that snapshots differ by a few fields.
+     *
+     * @param ball  The ball.
+     * @param left  The left paddle.
+     * @param right The right paddle.
+     */
+    private void change(PongBall ball, Paddle left, Paddle right) {
+        if (random.nextBoolean()) {
+            ball.setX(random.nextDouble() * 512);
+        }
+        if (random.nextBoolean()) {
+            ball.setY(random.nextDouble() * 256);
+        }
+        if (random.nextInt(4) == 0) {
+            final double heading = (random.nextDouble() * 2 - 1) * Math.PI;
+            ball.setVelocity(Pong.PONG_BALL_VELOCITY * Math.sin(heading), Pong.PONG_BALL_VELOCITY * Math.cos(heading));
+        }
+        for (Paddle paddle : new Paddle[]{left, right}) {
+            if (random.nextInt(3) == 0) {
+                paddle.setY(random.nextDouble() * 256);
+            }
+            if (random.nextInt(3) == 0) {
+                paddle.setVelY((random.nextInt(3) - 1) * Pong.PADDLE_MOVEMENT_RATE);
+            }
+        }
+    }
+
+    /**
+     * Makes a snapshot message of the given pieces.
+     *
+     * @param ball          The ball, or null to leave it out.
+     * @param paddle        The sender's paddle, or null to leave it out.
+     * @param networkPaddle The receiver's paddle, or null to leave it out.
+     * @return The message.
+     */
+    private static PongNetworkMessage message(PongBall ball, Paddle paddle, Paddle networkPaddle) {
+        final PongNetworkMessage message = new PongNetworkMessage(1000);
+        message.setInGame(true);
+        message.setBall(ball);
+        message.setLocalPlayerPaddle(paddle);
+        message.setNetworkPlayerPaddle(networkPaddle);
+        return message;
+    }
+
+    /**
+     * Makes a ball heading to the right.
+     *
+     * @param x The x position of the ball.
+     * @param y The y position of the ball.
+     * @return The ball.
+     */
+    private static PongBall ball(final double x, final double y) {
+        final PongBall ball = new PongBall(Pong.BALL_RADIUS);
+        ball.setX(x);
+        ball.setY(y);
+        ball.setVelocity(0, Pong.PONG_BALL_VELOCITY);
+        return ball;
+    }
+
+    /**
+     * Makes a paddle.
+     *
+     * @param x    The x position of the paddle.
+     * @param y    The y position of the paddle.
+     * @param velY The vertical velocity of the paddle.
+     * @return The paddle.
+     */
+    private static Paddle paddle(final double x, final double y, final double velY) {
+        final Paddle paddle = new Paddle(x, y, Pong.PADDLE_WIDTH, Pong.PADDLE_HEIGHT, (x < 256) ? Side.LEFT : Side.RIGHT);
+        paddle.setVelY(velY);
+        return paddle;
+    }
+
+    /**
+     * Copies a ball, so that later changes to it don't change a message already made.
+     *
+     * @param ball The ball.
+     * @return The copy.
+     */
+    private static PongBall copy(PongBall ball) {
+        final PongBall copy = new PongBall(ball.getRadius());
+        copy.setX(ball.getX());
+        copy.setY(ball.getY());
+        copy.setVelocity(ball.getRisePerSecond(), ball.getRunPerSecond());
+        return copy;
+    }
+
+    /**
+     * Copies a paddle, so that later changes to it don't change a message already made.
+     *
+     * @param paddle The paddle.
+     * @return The copy.
+     */
+    private static Paddle copy(Paddle paddle) {
+        final Paddle copy = new Paddle(paddle.getX(), paddle.getY(), paddle.getWidth(), paddle.getHeight(),
+                paddle.getSide());
+        copy.setVelY(paddle.getVelY());
+        return copy;
+    }
+
+    /**
+     * Gets the size of every field of a piece.
+     *
+     * @param ball True for the ball, false for a paddle.
+     * @return The size, in bytes.
+     */
+    private static int fieldsSize(final boolean ball) {
+        int size = 0;
+        for (int i = 0; i < PieceCodec.FIELDS_PER_PIECE; i++) {
+            size += PieceCodec.fieldSize(ball, i);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,91 @@
+package games.pong.simulation;
+
+import games.pong.Pong;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Plays the same bot versus bot matches in fixed ticks and from event to event, checking that both play out the same:
+ * exactly over a couple of minutes, and within a paddle hit or so over a full length match, where rounding has had
+ * time to add up.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public class HeadlessPongMatchTest {
+    private static final int TIMEOUT = 60_000;
+    private static final String[][] PAIRINGS = {
+            {"advanced", "beginner"},
+            {"beginner", "advanced"},
+            {"advanced", "advanced"},
+            {"beginner", "beginner"}
+    };
+    // Short enough that rounding hasn't changed anything yet.
+    private static final long SHORT_TICK_LIMIT = 2L * 60 * Pong.TICK_RATE;
+    // How far apart the paddle hits of a full length match may be, as a fraction of them.
+    private static final double PADDLE_HIT_TOLERANCE = 0.01;
+
+    @Test(timeout = TIMEOUT)
+    public void shortMatchesPlayOutExactlyTheSame() {
+        for (String[] pairing : PAIRINGS) {
+            final MatchResult fixed = play(pairing, SimulationMode.FIXED_TICK, SHORT_TICK_LIMIT);
+            final MatchResult event = play(pairing, SimulationMode.EVENT_DRIVEN, SHORT_TICK_LIMIT);
+            final String name = pairing[0] + " versus " + pairing[1];
+
+            assertEquals(name, fixed.getLeftPoints(), event.getLeftPoints());
+            assertEquals(name, fixed.getRightPoints(), event.getRightPoints());
+            assertEquals(name, fixed.getEndReason(), event.getEndReason());
+            assertEquals(name, fixed.getPaddleHits(), event.getPaddleHits());
+            assertEquals(name, fixed.getTicks(), event.getTicks());
+            assertEquals(name, fixed.getTicks(), fixed.getSteps());
+            assertTrue(name, event.getSteps() <= fixed.getSteps());
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void longMatchesStayWithinTolerance() {
+        for (String[] pairing : PAIRINGS) {
+            final MatchResult fixed = play(pairing, SimulationMode.FIXED_TICK, HeadlessPongMatch.DEFAULT_TICK_LIMIT);
+            final MatchResult event = play(pairing, SimulationMode.EVENT_DRIVEN, HeadlessPongMatch.DEFAULT_TICK_LIMIT);
+            final String name = pairing[0] + " versus " + pairing[1];
+
+            assertEquals(name, fixed.getWinner(), event.getWinner());
+            assertEquals(name, fixed.getLeftPoints(), event.getLeftPoints(), 1);
+            assertEquals(name, fixed.getRightPoints(), event.getRightPoints(), 1);
+            assertEquals(name, fixed.getPaddleHits(), event.getPaddleHits(),
+                    Math.max(fixed.getPaddleHits() * PADDLE_HIT_TOLERANCE, 1));
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void stepsEndOnTickBoundaries() {
+        final HeadlessPongMatch match = new HeadlessPongMatch(HeadlessPongMatch.createBot("advanced"),
+                HeadlessPongMatch.createBot("beginner"));
+        match.getGame().initialize();
+        match.getGame().begin();
+        match.getGame().setPause(false);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, match.getStepper().step(Long.MAX_VALUE) % Pong.TICK_NANOS);
+        }
+        // Cut short only by the most that the game may be advanced.
+        assertEquals(Pong.TICK_NANOS / 2, match.getStepper().nextStep(Pong.TICK_NANOS / 2));
+    }
+
+    /**
+     * Plays a match between two bots.
+     *
+     * @param pairing   The names of the left and the right bots.
+     * @param mode      How the match is advanced through time.
+     * @param tickLimit The most ticks that the match may take.
+     * @return The result of the match.
+     */
+    private static MatchResult play(String[] pairing, SimulationMode mode, final long tickLimit) {
+        final HeadlessPongMatch match = new HeadlessPongMatch(HeadlessPongMatch.createBot(pairing[0]),
+                HeadlessPongMatch.createBot(pairing[1]));
+        match.setMode(mode);
+        match.setTickLimit(tickLimit);
+        return match.run();
+    }
+}
@@ -0,0 +1,240 @@
+package network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sends frames between plain {@link Client} sockets and a {@link NioEventLoop} over loopback, checking that every
+ * frame arrives intact and in order however it is split up on the way: frames bigger than a connection's buffers,
+ * frames split across reads, writes that the socket only partly takes, and listeners that close the connection
+ * partway through what was read.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public class NioEventLoopTest {
+    private static final int TIMEOUT = 30_000;
+    // Bigger than the buffers that each connection starts with.
+    private static final int LARGE_FRAME_SIZE = 20 * 1024;
+
+    private NioEventLoop loop;
+    private int port;
+    private final BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+    private final BlockingQueue<NioConnection> accepted = new LinkedBlockingQueue<>();
+    private final CountDownLatch disconnected = new CountDownLatch(1);
+    // What to do with each frame received, besides keeping it.
+    private volatile BiConsumer<NioConnection, byte[]> onFrame = (connection, frame) -> {
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        loop = new NioEventLoop();
+        loop.start();
+        port = loop.listen(0, new ConnectionListener() {
+            @Override
+            public void connected(NioConnection connection) {
+                accepted.add(connection);
+            }
+
+            @Override
+            public void frameReceived(NioConnection connection, byte[] frame) {
+                received.add(frame);
+                onFrame.accept(connection, frame);
+            }
+
+            @Override
+            public void disconnected(NioConnection connection) {
+                disconnected.countDown();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        loop.stop();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void largeAndSmallFramesArriveInOrder() throws Exception {
+        final int count = 5000;
+        final Client client = connect();
+        for (int i = 0; i < count; i++) {
+            client.write(frame(i, sizeOf(i)));
+            // Flushed now and then, so that many frames go out together and are read together.
+            if (i % 100 == 99) {
+                client.flush();
+            }
+        }
+        client.flush();
+
+        for (int i = 0; i < count; i++) {
+            assertArrayEquals("Frame " + i, frame(i, sizeOf(i)), take(received));
+        }
+        client.close();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void framesSplitAcrossReadsAreReassembled() throws Exception {
+        final int count = 40;
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setTcpNoDelay(true);
+            final OutputStream out = socket.getOutputStream();
+            for (int i = 0; i < count; i++) {
+                final byte[] frame = frame(i, (i % 4 == 0) ? LARGE_FRAME_SIZE : 3 + i);
+                final byte[] bytes = ByteBuffer.allocate(Integer.BYTES + frame.length).putInt(frame.length)
+                        .put(frame).array();
+                // Dribbled out a few bytes at a time, so that even the lengths arrive in pieces.
+                for (int offset = 0; offset < bytes.length; offset += 3) {
+                    out.write(bytes, offset, Math.min(3, bytes.length - offset));
+                    out.flush();
+                    if (offset % 4096 == 0) {
+                        Thread.sleep(1);
+                    }
+                }
+            }
+
+            for (int i = 0; i < count; i++) {
+                assertArrayEquals("Frame " + i, frame(i, (i % 4 == 0) ? LARGE_FRAME_SIZE : 3 + i), take(received));
+            }
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void partialWritesResumeWhenSocketHasRoom() throws Exception {
+        final int count = 400;
+        final Client client = connect();
+        // Only a small frame is sent, to learn which connection is the client's.
+        client.send(frame(-1, 1));
+        take(received);
+        final NioConnection connection = accepted.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+        assertNotNull(connection);
+
+        // Far more than the socket's buffers hold, while the client isn't reading.
+        for (int i = 0; i < count; i++) {
+            connection.send(frame(i, TCPSocket.MAX_FRAME_SIZE - (i % 7)));
+        }
+        Thread.sleep(200);
+        assertTrue("The socket should have filled up", connection.getQueuedFrames() > 0);
+
+        for (int i = 0; i < count; i++) {
+            assertArrayEquals("Frame " + i, frame(i, TCPSocket.MAX_FRAME_SIZE - (i % 7)), client.listenForFrame());
+        }
+        assertEquals(0, connection.getQueuedFrames());
+        client.close();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void closingFromListenerStopsFurtherFrames() throws Exception {
+        final int closeAfter = 5;
+        final AtomicInteger frames = new AtomicInteger();
+        onFrame = (connection, frame) -> {
+            if (frames.incrementAndGet() == closeAfter) {
+                connection.close();
+            }
+        };
+
+        final Client client = connect();
+        // All written together, so that they're most likely read together too.
+        for (int i = 0; i < 50; i++) {
+            client.write(frame(i, 10));
+        }
+        client.flush();
+
+        assertTrue(disconnected.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertNull("The client should see the connection close", client.listenForFrame());
+        assertEquals(closeAfter, frames.get());
+        assertEquals(closeAfter, received.size());
+        client.close();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void failingTaskDoesNotStopLoop() throws Exception {
+        final Client client = connect();
+        client.send(frame(0, 10));
+        assertArrayEquals(frame(0, 10), take(received));
+
+        loop.execute(() -> {
+            throw new IllegalStateException("Task failed on purpose.");
+        });
+        client.send(frame(1, 10));
+        assertArrayEquals(frame(1, 10), take(received));
+        assertEquals(1, disconnected.getCount());
+        client.close();
+    }
+
+    /**
+     * Connects a new plain client to the event loop.
+     *
+     * @return The connected client.
+     * @throws IOException Thrown if the client can't connect.
+     */
+    private Client connect() throws IOException {
+        final Client client = new Client();
+        client.connect("127.0.0.1", port);
+        return client;
+    }
+
+    /**
+     * Takes the next frame received, failing if none arrives in time.
+     *
+     * @param queue The queue of received frames.
+     * @return The frame.
+     * @throws InterruptedException Thrown if interrupted while waiting.
+     */
+    private static byte[] take(BlockingQueue<byte[]> queue) throws InterruptedException {
+        final byte[] frame = queue.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+        assertNotNull("Timed out waiting for a frame", frame);
+        return frame;
+    }
+
+    /**
+     * Picks the size of a frame, mostly small, but every so often bigger than a connection's buffers, up to the
+     * biggest frame allowed.
+     *
+     * @param index The index of the frame.
+     * @return The size of the frame.
+     */
+    private static int sizeOf(final int index) {
+        int size = 1 + (index * 31) % 200;
+        if (index % 250 == 0) {
+            size = TCPSocket.MAX_FRAME_SIZE;
+        } else if (index % 50 == 0) {
+            size = LARGE_FRAME_SIZE + index;
+        }
+        return size;
+    }
+
+    /**
+     * Makes a frame whose every byte depends on its index, so that frames that are cut short, mixed up or out of
+     * order don't match.
+     *
+     * @param index The index of the frame.
+     * @param size  The size of the frame.
+     * @return The frame.
+     */
+    private static byte[] frame(final int index, final int size) {
+        final byte[] frame = new byte[size];
+        for (int i = 0; i < size; i++) {
+            frame[i] = (byte) (index * 7 + i * 13);
+        }
+        return frame;
+    }
+}
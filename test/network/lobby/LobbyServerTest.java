@@ -0,0 +1,161 @@
+package network.lobby;
+
+import network.Client;
+import network.party.network.HostStatus;
+import network.party.network.NetworkMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Connects plain {@link Client} sockets to a {@link LobbyServer} over loopback, checking that they are paired up, that
+ * one of each pair is told to host, that messages are passed between partners, and that a partner is told when the
+ * other leaves.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public class LobbyServerTest {
+    private static final int TIMEOUT = 30_000;
+    private static final int CLIENTS = 200;
+
+    private LobbyServer lobby;
+    private int port;
+    private final Client[] clients = new Client[CLIENTS];
+    // Index of each client's partner, and whether it was told to host.
+    private final int[] partners = new int[CLIENTS];
+    private final boolean[] hosting = new boolean[CLIENTS];
+
+    @Before
+    public void setUp() throws IOException {
+        lobby = new LobbyServer();
+        port = lobby.start(0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Client client : clients) {
+            if (client != null) {
+                client.close();
+            }
+        }
+        lobby.stop();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void clientsArePairedWithOneHostEach() throws Exception {
+        connectAll();
+        for (int i = 0; i < CLIENTS; i++) {
+            assertNotEquals(i, partners[i]);
+            assertEquals("Partners should be each other's", i, partners[partners[i]]);
+            assertTrue("Exactly one of each pair should host", hosting[i] != hosting[partners[i]]);
+        }
+        assertEquals(CLIENTS / 2, lobby.getMatchCount());
+        assertEquals(CLIENTS, lobby.getSessionCount());
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void messagesAreForwardedToPartner() throws Exception {
+        connectAll();
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i].send(new NetworkMessage("p" + i, HostStatus.IN_GAME, new byte[]{(byte) i}).toFrame());
+        }
+        for (int i = 0; i < CLIENTS; i++) {
+            final NetworkMessage message = receive(clients[i]);
+            assertEquals(HostStatus.IN_GAME, message.getHostStatus());
+            assertEquals("p" + partners[i], message.getHostName());
+            assertEquals((byte) partners[i], message.getGameData()[0]);
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void partnerIsToldWhenClientLeaves() throws Exception {
+        connectAll();
+
+        // Leaving politely passes the client's own message along.
+        final int polite = 0;
+        clients[polite].send(new NetworkMessage("p" + polite, HostStatus.DISCONNECTING).toFrame());
+        final NetworkMessage goodbye = receive(clients[partners[polite]]);
+        assertEquals(HostStatus.DISCONNECTING, goodbye.getHostStatus());
+        assertEquals("p" + polite, goodbye.getHostName());
+
+        // Just dropping the connection has the lobby say so instead.
+        int rude = 1;
+        while (rude == polite || rude == partners[polite]) {
+            rude++;
+        }
+        clients[rude].close();
+        clients[rude] = null;
+        assertEquals(HostStatus.DISCONNECTING, receive(clients[partners[rude]]).getHostStatus());
+
+        waitFor(() -> lobby.getMatchCount() == CLIENTS / 2 - 2 && lobby.getSessionCount() == CLIENTS - 1);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void unmatchedClientIsAnswered() throws Exception {
+        final Client client = new Client();
+        clients[0] = client;
+        client.connect("127.0.0.1", port);
+        client.send(new NetworkMessage("alone", HostStatus.CONNECTED).toFrame());
+        client.send(new NetworkMessage(HostStatus.HEARTBEAT).toFrame());
+        assertEquals(HostStatus.HEARTBEAT, receive(client).getHostStatus());
+        assertEquals(0, lobby.getMatchCount());
+    }
+
+    /**
+     * Connects every client and has each introduce itself, then works out who each was paired with from the
+     * introduction each one got.
+     *
+     * @throws Exception Thrown if a client can't connect, or gets something other than an introduction.
+     */
+    private void connectAll() throws Exception {
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = new Client();
+            clients[i].connect("127.0.0.1", port);
+            clients[i].send(new NetworkMessage("p" + i, HostStatus.CONNECTED).toFrame());
+        }
+        for (int i = 0; i < CLIENTS; i++) {
+            NetworkMessage message = receive(clients[i]);
+            hosting[i] = message.getHostStatus() == HostStatus.HOSTING;
+            // The host is told so before it is introduced.
+            if (hosting[i]) {
+                message = receive(clients[i]);
+            }
+            assertEquals(HostStatus.CONNECTED, message.getHostStatus());
+            partners[i] = Integer.parseInt(message.getHostName().substring(1));
+        }
+    }
+
+    /**
+     * Waits for the next message to a client.
+     *
+     * @param client The client.
+     * @return The message.
+     * @throws IOException Thrown if the message can't be read.
+     */
+    private static NetworkMessage receive(Client client) throws IOException {
+        final byte[] frame = client.listenForFrame();
+        assertNotNull("The lobby closed the connection", frame);
+        return NetworkMessage.fromFrame(frame);
+    }
+
+    /**
+     * Waits until the lobby's counts settle, since it updates them on its own thread.
+     *
+     * @param condition The condition to wait for.
+     * @throws InterruptedException Thrown if interrupted while waiting.
+     */
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        while (!condition.getAsBoolean()) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package network.party.network;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that network messages come back from their frames as they were sent, and that frames claiming more data
+ * than they hold are rejected as malformed instead of being allocated for.
+ *
+ * @author Kyle Anderson
+ * ICS4U RST
+ */
+public class NetworkMessageTest {
+    @Test
+    public void messageRoundTrips() throws IOException {
+        final NetworkMessage message = new NetworkMessage("host", HostStatus.IN_GAME, new byte[]{1, 2, 3});
+        message.setCurrentGame("pong");
+
+        final NetworkMessage parsed = NetworkMessage.fromFrame(message.toFrame());
+        assertEquals("host", parsed.getHostName());
+        assertEquals("pong", parsed.getCurrentGame());
+        assertEquals(HostStatus.IN_GAME, parsed.getHostStatus());
+        assertArrayEquals(new byte[]{1, 2, 3}, parsed.getGameData());
+    }
+
+    @Test
+    public void emptyMessageRoundTrips() throws IOException {
+        final NetworkMessage parsed = NetworkMessage.fromFrame(new NetworkMessage(HostStatus.PING).toFrame());
+        assertEquals(HostStatus.PING, parsed.getHostStatus());
+        assertNull(parsed.getHostName());
+        assertNull(parsed.getGameData());
+    }
+
+    @Test(expected = IOException.class)
+    public void hugeGameDataLengthIsRejected() throws IOException {
+        final byte[] frame = ByteBuffer.allocate(10).put(NetworkMessage.FRAME_TYPE)
+                .put((byte) HostStatus.IN_GAME.ordinal()).putShort((short) -1).putShort((short) -1)
+                .putInt(0x7FFFFFF0).array();
+        NetworkMessage.fromFrame(frame);
+    }
+
+    @Test(expected = IOException.class)
+    public void gameDataLongerThanFrameIsRejected() throws IOException {
+        final byte[] frame = ByteBuffer.allocate(12).put(NetworkMessage.FRAME_TYPE)
+                .put((byte) HostStatus.IN_GAME.ordinal()).putShort((short) -1).putShort((short) -1)
+                .putInt(3).put((byte) 1).put((byte) 2).array();
+        NetworkMessage.fromFrame(frame);
+    }
+
+    @Test(expected = IOException.class)
+    public void stringLongerThanFrameIsRejected() throws IOException {
+        final byte[] frame = ByteBuffer.allocate(6).put(NetworkMessage.FRAME_TYPE)
+                .put((byte) HostStatus.CONNECTED.ordinal()).putShort(Short.MAX_VALUE).put((byte) 'a')
+                .put((byte) 'b').array();
+        NetworkMessage.fromFrame(frame);
+    }
+}